@@ -0,0 +1,494 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+/**
+ * Chooses the compression level and block size of a {@link DataFileWriter} as
+ * it writes, instead of fixing them with {@link DataFileWriter#setCodec} and
+ * {@link DataFileWriter#setSyncInterval}. The writer reports the size and
+ * compression time of every block; every few blocks the level moves one step
+ * towards the best level measured so far for the chosen {@link Goal}, or probes
+ * a neighbouring level not yet measured. Other levels are measured again from
+ * time to time, so the choice follows changes in the data.
+ *
+ * Levels only change how blocks are compressed, not how they are decompressed,
+ * so any reader can read the file. The goal and bounds are recorded in the
+ * file's metadata. The most recent choices are available from
+ * {@link #getDecisions()}; every choice can also be written to a log, separate
+ * from the data file like a {@link BloomFilterIndex}, with
+ * {@link DataFileWriter#setAdaptiveCompression(AdaptiveCompression, OutputStream)}
+ * and read back with {@link #readDecisions(InputStream)}.
+ *
+ * An instance holds the state of one writer and must not be shared.
+ */
+public class AdaptiveCompression {
+
+  /** What to optimize for. */
+  public enum Goal {
+    /**
+     * Least compression time per byte, with the largest blocks allowed. Levels
+     * whose times are within a tenth of each other are ranked by their ratio.
+     */
+    THROUGHPUT,
+    /** Smallest output, with the largest blocks allowed. */
+    SIZE,
+    /**
+     * Smallest output while compressing each block within a time budget; blocks are
+     * sized to fit the budget.
+     */
+    LATENCY
+  }
+
+  /** A change of level or block size, and the measurements behind it. */
+  public static final class Decision {
+    private final long block;
+    private final int level;
+    private final int blockSize;
+    private final double ratio;
+    private final double nanosPerByte;
+
+    private Decision(long block, int level, int blockSize, double ratio, double nanosPerByte) {
+      this.block = block;
+      this.level = level;
+      this.blockSize = blockSize;
+      this.ratio = ratio;
+      this.nanosPerByte = nanosPerByte;
+    }
+
+    /** The number of blocks written before this decision. */
+    public long getBlock() {
+      return block;
+    }
+
+    /** The level chosen. */
+    public int getLevel() {
+      return level;
+    }
+
+    /** The block size chosen, in uncompressed bytes. */
+    public int getBlockSize() {
+      return blockSize;
+    }
+
+    /** Compressed bytes per uncompressed byte over the last blocks. */
+    public double getRatio() {
+      return ratio;
+    }
+
+    /** Compression time per uncompressed byte over the last blocks. */
+    public double getNanosPerByte() {
+      return nanosPerByte;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("block %d: level %d, block size %d (ratio %.3f, %.2f ns/byte)", block, level, blockSize,
+          ratio, nanosPerByte);
+    }
+  }
+
+  static final String GOAL = "avro.adaptive.goal";
+  static final String LEVELS = "avro.adaptive.levels";
+  static final String BLOCK_SIZES = "avro.adaptive.block.sizes";
+  static final String LATENCY_NANOS = "avro.adaptive.latency.nanos";
+  static final String SYNC = "adaptive.sync";
+
+  static final Schema DECISION_SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"AdaptiveCompressionDecision\",\"namespace\":\"org.apache.avro.file\","
+          + "\"fields\":[{\"name\":\"block\",\"type\":\"long\"},{\"name\":\"level\",\"type\":\"int\"},"
+          + "{\"name\":\"blockSize\",\"type\":\"int\"},{\"name\":\"ratio\",\"type\":\"double\"},"
+          + "{\"name\":\"nanosPerByte\",\"type\":\"double\"}]}");
+
+  private static final int WINDOW = 8; // blocks measured per decision
+  private static final int REPROBE = 64; // windows before other levels are measured again
+  private static final int MAX_DECISIONS = 1024;
+  private static final double LATENCY_HEADROOM = 0.8;
+  private static final double RATIO_TOLERANCE = 0.01;
+  private static final double TIME_TOLERANCE = 0.1;
+
+  private final Goal goal;
+  private final IntFunction<CodecFactory> codecs;
+  private final int minLevel;
+  private final int maxLevel;
+  private final long latencyNanos;
+  private int minBlockSize = 16 * 1024;
+  private int maxBlockSize = 1024 * 1024;
+  private boolean started;
+
+  private Codec[] instances;
+  private double[] ratios;
+  private double[] nanosPerByte;
+  private int level;
+  private int blockSize;
+
+  private long windowIn;
+  private long windowOut;
+  private long windowNanos;
+  private int windowBlocks;
+  private long blocks;
+  private long windows;
+  private final Deque<Decision> decisions = new ArrayDeque<>();
+  private DataFileWriter<GenericRecord> log;
+
+  private AdaptiveCompression(Goal goal, IntFunction<CodecFactory> codecs, int minLevel, int maxLevel,
+      long latencyNanos) {
+    if (minLevel > maxLevel) {
+      throw new IllegalArgumentException("Invalid level range: " + minLevel + "-" + maxLevel);
+    }
+    this.goal = goal;
+    this.codecs = codecs;
+    this.minLevel = minLevel;
+    this.maxLevel = maxLevel;
+    this.latencyNanos = latencyNanos;
+  }
+
+  /**
+   * Adapt for the least compression time per byte.
+   *
+   * @param codecs   creates the codec for a level, for example
+   *                 {@code CodecFactory::zstandardCodec}
+   * @param minLevel the lowest level to use
+   * @param maxLevel the highest level to use
+   */
+  public static AdaptiveCompression throughput(IntFunction<CodecFactory> codecs, int minLevel, int maxLevel) {
+    return new AdaptiveCompression(Goal.THROUGHPUT, codecs, minLevel, maxLevel, 0);
+  }
+
+  /**
+   * Adapt for the smallest output.
+   *
+   * @see #throughput(IntFunction, int, int)
+   */
+  public static AdaptiveCompression size(IntFunction<CodecFactory> codecs, int minLevel, int maxLevel) {
+    return new AdaptiveCompression(Goal.SIZE, codecs, minLevel, maxLevel, 0);
+  }
+
+  /**
+   * Adapt for the smallest output that keeps the compression of each block within
+   * a time budget.
+   *
+   * @param maxBlockNanos the budget for compressing one block, in nanoseconds
+   * @see #throughput(IntFunction, int, int)
+   */
+  public static AdaptiveCompression latency(IntFunction<CodecFactory> codecs, int minLevel, int maxLevel,
+      long maxBlockNanos) {
+    if (maxBlockNanos <= 0) {
+      throw new IllegalArgumentException("Invalid latency budget: " + maxBlockNanos);
+    }
+    return new AdaptiveCompression(Goal.LATENCY, codecs, minLevel, maxLevel, maxBlockNanos);
+  }
+
+  /**
+   * Set the range of block sizes, in uncompressed bytes, that may be chosen.
+   * Defaults to 16KB to 1MB. Values range from 32 to 2^30, like
+   * {@link DataFileWriter#setSyncInterval(int)}. Must be called before the writer
+   * this is set on creates or appends to a file.
+   *
+   * @throws IllegalStateException if the writer has started
+   */
+  public AdaptiveCompression setBlockSizes(int min, int max) {
+    if (started) {
+      throw new IllegalStateException("Block sizes can't change once writing has started");
+    }
+    if (min < 32 || max > (1 << 30) || min > max) {
+      throw new IllegalArgumentException("Invalid block size range: " + min + "-" + max);
+    }
+    this.minBlockSize = min;
+    this.maxBlockSize = max;
+    return this;
+  }
+
+  public Goal getGoal() {
+    return goal;
+  }
+
+  /** The level currently in use. */
+  public int getLevel() {
+    return level;
+  }
+
+  /** The block size currently in use. */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /** The most recent changes of level or block size, oldest first. */
+  public List<Decision> getDecisions() {
+    return new ArrayList<>(decisions);
+  }
+
+  /** Read the decisions logged while writing a file. */
+  public static List<Decision> readDecisions(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return readDecisions(in);
+    }
+  }
+
+  /**
+   * Read the decisions logged while writing a file, oldest first. The stream is
+   * closed when done.
+   */
+  public static List<Decision> readDecisions(InputStream in) throws IOException {
+    try (DataFileStream<GenericRecord> entries = new DataFileStream<>(in,
+        new GenericDatumReader<>(DECISION_SCHEMA, DECISION_SCHEMA))) {
+      if (entries.getMetaString(logKey(GOAL)) == null) {
+        throw new IOException("Not an adaptive compression log");
+      }
+      List<Decision> result = new ArrayList<>();
+      GenericRecord entry = null;
+      while (entries.hasNext()) {
+        entry = entries.next(entry);
+        result.add(new Decision((Long) entry.get("block"), (Integer) entry.get("level"),
+            (Integer) entry.get("blockSize"), (Double) entry.get("ratio"), (Double) entry.get("nanosPerByte")));
+      }
+      return result;
+    }
+  }
+
+  /** Create the codecs and pick the starting level and block size. */
+  void start() {
+    started = true;
+    int levels = maxLevel - minLevel + 1;
+    instances = new Codec[levels];
+    String name = null;
+    for (int i = 0; i < levels; i++) {
+      CodecFactory factory = codecs.apply(minLevel + i);
+      if (factory == null) {
+        throw new AvroRuntimeException("No codec for level " + (minLevel + i));
+      }
+      instances[i] = factory.createInstance();
+      if (name != null && !name.equals(instances[i].getName())) {
+        throw new AvroRuntimeException("Levels must share a codec: " + name + ", " + instances[i].getName());
+      }
+      name = instances[i].getName();
+    }
+    ratios = new double[levels];
+    nanosPerByte = new double[levels];
+    Arrays.fill(nanosPerByte, Double.NaN);
+    level = goal == Goal.SIZE ? minLevel + (maxLevel - minLevel) / 2 : minLevel;
+    blockSize = goal == Goal.LATENCY ? minBlockSize : maxBlockSize;
+    decisions.addLast(new Decision(blocks, level, blockSize, Double.NaN, Double.NaN));
+  }
+
+  /** The goal and bounds, to store in the file's metadata. */
+  Map<String, String> getMeta() {
+    Map<String, String> meta = new LinkedHashMap<>();
+    meta.put(GOAL, goal.name().toLowerCase());
+    meta.put(LEVELS, minLevel + "-" + maxLevel);
+    meta.put(BLOCK_SIZES, minBlockSize + "-" + maxBlockSize);
+    if (goal == Goal.LATENCY) {
+      meta.put(LATENCY_NANOS, Long.toString(latencyNanos));
+    }
+    return meta;
+  }
+
+  /**
+   * Write every decision, starting with those already made, to a log. The log
+   * records the metadata of {@link #getMeta()}, without the reserved
+   * {@code avro.} prefix, and the sync marker of the data file.
+   */
+  void openLog(OutputStream out, byte[] sync) throws IOException {
+    log = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(DECISION_SCHEMA));
+    for (Map.Entry<String, String> entry : getMeta().entrySet()) {
+      log.setMeta(logKey(entry.getKey()), entry.getValue());
+    }
+    log.setMeta(SYNC, sync);
+    log.create(DECISION_SCHEMA, out);
+    for (Decision decision : decisions) {
+      logDecision(decision);
+    }
+  }
+
+  private static String logKey(String metaKey) {
+    return metaKey.substring("avro.".length());
+  }
+
+  void flushLog() throws IOException {
+    if (log != null) {
+      log.flush();
+    }
+  }
+
+  void closeLog() throws IOException {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
+
+  /** The codec for the current level. */
+  Codec codec() {
+    return instances[level - minLevel];
+  }
+
+  /** Account for a block compressed with {@link #codec()}. */
+  void blockCompressed(int uncompressed, int compressed, long nanos) throws IOException {
+    blocks++;
+    windowIn += uncompressed;
+    windowOut += compressed;
+    windowNanos += nanos;
+    if (++windowBlocks < WINDOW || windowIn == 0) {
+      return;
+    }
+    double ratio = (double) windowOut / windowIn;
+    double perByte = (double) windowNanos / windowIn;
+    int current = level - minLevel;
+    if (Double.isNaN(nanosPerByte[current])) {
+      ratios[current] = ratio;
+      nanosPerByte[current] = perByte;
+    } else {
+      ratios[current] = (ratios[current] + ratio) / 2;
+      nanosPerByte[current] = (nanosPerByte[current] + perByte) / 2;
+    }
+    windowIn = windowOut = windowNanos = 0;
+    windowBlocks = 0;
+    if (++windows % REPROBE == 0) {
+      forgetOthers(current);
+    }
+
+    int next = chooseLevel();
+    int nextSize = blockSizeFor(next);
+    if (next == level && Math.abs(nextSize - blockSize) <= blockSize / 4) {
+      nextSize = blockSize; // ignore small changes due to noise
+    }
+    if (next != level || nextSize != blockSize) {
+      level = next;
+      blockSize = nextSize;
+      record(ratio, perByte);
+    }
+  }
+
+  private void forgetOthers(int current) {
+    for (int i = 0; i < nanosPerByte.length; i++) {
+      if (i != current) {
+        nanosPerByte[i] = Double.NaN;
+      }
+    }
+  }
+
+  // step towards the best measured level, or probe an unmeasured neighbour
+  private int chooseLevel() {
+    int best = level;
+    for (int l = minLevel; l <= maxLevel; l++) {
+      if (measured(l) && better(l, best)) {
+        best = l;
+      }
+    }
+    if (best != level) {
+      return level + Integer.signum(best - level);
+    }
+    int towards = goal == Goal.THROUGHPUT ? -1 : 1;
+    for (int direction : new int[] { towards, -towards }) {
+      int neighbour = level + direction;
+      if (neighbour >= minLevel && neighbour <= maxLevel && !measured(neighbour)) {
+        return neighbour;
+      }
+    }
+    return level;
+  }
+
+  private boolean measured(int l) {
+    return !Double.isNaN(nanosPerByte[l - minLevel]);
+  }
+
+  private boolean better(int a, int b) {
+    double ratioA = ratios[a - minLevel], ratioB = ratios[b - minLevel];
+    double timeA = nanosPerByte[a - minLevel], timeB = nanosPerByte[b - minLevel];
+    switch (goal) {
+    case THROUGHPUT:
+      return faster(ratioA, timeA, ratioB, timeB);
+    case SIZE:
+      return smaller(ratioA, timeA, ratioB, timeB);
+    default:
+      boolean fitsA = timeA * minBlockSize <= latencyNanos, fitsB = timeB * minBlockSize <= latencyNanos;
+      if (fitsA != fitsB) {
+        return fitsA;
+      }
+      return fitsA ? smaller(ratioA, timeA, ratioB, timeB) : faster(ratioA, timeA, ratioB, timeB);
+    }
+  }
+
+  // ratios within a percent of each other are a tie, won by the faster level
+  private static boolean smaller(double ratioA, double timeA, double ratioB, double timeB) {
+    if (Math.abs(ratioA - ratioB) > RATIO_TOLERANCE * Math.max(ratioA, ratioB)) {
+      return ratioA < ratioB;
+    }
+    return timeA < timeB;
+  }
+
+  // times within a tenth of each other are a tie, won by the smaller ratio
+  private static boolean faster(double ratioA, double timeA, double ratioB, double timeB) {
+    if (Math.abs(timeA - timeB) > TIME_TOLERANCE * Math.max(timeA, timeB)) {
+      return timeA < timeB;
+    }
+    return ratioA < ratioB;
+  }
+
+  private int blockSizeFor(int l) {
+    if (goal != Goal.LATENCY) {
+      return maxBlockSize;
+    }
+    if (!measured(l)) {
+      return minBlockSize; // probing a level: start small
+    }
+    double fits = latencyNanos * LATENCY_HEADROOM / nanosPerByte[l - minLevel];
+    return (int) Math.max(minBlockSize, Math.min(maxBlockSize, fits));
+  }
+
+  private void record(double ratio, double perByte) throws IOException {
+    if (decisions.size() == MAX_DECISIONS) {
+      decisions.removeFirst();
+    }
+    Decision decision = new Decision(blocks, level, blockSize, ratio, perByte);
+    decisions.addLast(decision);
+    if (log != null) {
+      logDecision(decision);
+    }
+  }
+
+  private void logDecision(Decision decision) throws IOException {
+    GenericData.Record entry = new GenericData.Record(DECISION_SCHEMA);
+    entry.put("block", decision.block);
+    entry.put("level", decision.level);
+    entry.put("blockSize", decision.blockSize);
+    entry.put("ratio", decision.ratio);
+    entry.put("nanosPerByte", decision.nanosPerByte);
+    log.append(entry);
+  }
+}
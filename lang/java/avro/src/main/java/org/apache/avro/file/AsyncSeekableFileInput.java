@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link SeekableInput} that reads a file ahead of the current position with
+ * an {@link AsynchronousFileChannel}, so that the next chunks of a file are
+ * being fetched while the current one is decoded. This hides read latency on
+ * network filesystems and slow disks when a {@link DataFileReader} scans a file
+ * sequentially.
+ *
+ * The file is read in chunks of a fixed size, at most {@code prefetchDepth} of
+ * them in flight at once. Chunk buffers come from a fixed pool of
+ * {@code prefetchDepth + 1} buffers and are reused. Seeking within the current
+ * or a prefetched chunk keeps the read-ahead going; any other seek discards the
+ * prefetched chunks and restarts read-ahead at the new position.
+ *
+ * Not thread safe.
+ */
+public class AsyncSeekableFileInput implements SeekableInput {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  public static final int DEFAULT_PREFETCH_DEPTH = 4;
+
+  private static final class Chunk {
+    private final long start;
+    private final ByteBuffer buffer;
+    private final Future<Integer> read;
+
+    private Chunk(long start, ByteBuffer buffer, Future<Integer> read) {
+      this.start = start;
+      this.buffer = buffer;
+      this.read = read;
+    }
+
+    private boolean contains(long position) {
+      return position >= start && position < start + buffer.limit();
+    }
+  }
+
+  private final AsynchronousFileChannel channel;
+  private final int bufferSize;
+  private final int prefetchDepth;
+  private final ArrayDeque<ByteBuffer> pool;
+  private final ArrayDeque<Chunk> pending;
+  private Chunk current;
+  private long position;
+  private long nextFetch;
+
+  public AsyncSeekableFileInput(File file) throws IOException {
+    this(file, DEFAULT_BUFFER_SIZE, DEFAULT_PREFETCH_DEPTH, null);
+  }
+
+  /**
+   * @param file          the file to read
+   * @param bufferSize    the size of each chunk read ahead
+   * @param prefetchDepth the maximum number of chunks read ahead of the one being
+   *                      consumed
+   * @param executor      the executor handling I/O completion, or null for the
+   *                      default
+   */
+  public AsyncSeekableFileInput(File file, int bufferSize, int prefetchDepth, ExecutorService executor)
+      throws IOException {
+    if (bufferSize < 1 || prefetchDepth < 1) {
+      throw new IllegalArgumentException("Invalid buffer size " + bufferSize + " or depth " + prefetchDepth);
+    }
+    this.channel = AsynchronousFileChannel.open(file.toPath(), Collections.singleton(StandardOpenOption.READ),
+        executor);
+    this.bufferSize = bufferSize;
+    this.prefetchDepth = prefetchDepth;
+    this.pool = new ArrayDeque<>(prefetchDepth + 1);
+    for (int i = 0; i <= prefetchDepth; i++) {
+      pool.add(ByteBuffer.allocate(bufferSize));
+    }
+    this.pending = new ArrayDeque<>(prefetchDepth);
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (current == null || !current.contains(position)) {
+      if (position >= channel.size()) {
+        return -1;
+      }
+      advance();
+    }
+    int start = (int) (position - current.start);
+    int n = Math.min(len, current.buffer.limit() - start);
+    System.arraycopy(current.buffer.array(), start, b, off, n);
+    position += n;
+    return n;
+  }
+
+  // make current the chunk holding position, restarting read-ahead if needed
+  private void advance() throws IOException {
+    release(current);
+    current = null;
+    while (!pending.isEmpty()) {
+      Chunk next = pending.peekFirst();
+      if (position < next.start) {
+        break;
+      }
+      pending.removeFirst();
+      await(next);
+      if (next.contains(position)) {
+        current = next;
+        fill();
+        return;
+      }
+      release(next); // skipped over, or a short read
+    }
+    // random access: drop what was read ahead and start again from here
+    while (!pending.isEmpty()) {
+      Chunk stale = pending.removeFirst();
+      await(stale);
+      release(stale);
+    }
+    nextFetch = position;
+    fill();
+    Chunk next = pending.removeFirst();
+    await(next);
+    current = next;
+    fill();
+  }
+
+  // issue reads until the prefetch depth is reached
+  private void fill() throws IOException {
+    long length = channel.size();
+    while (pending.size() < prefetchDepth && nextFetch < length && !pool.isEmpty()) {
+      ByteBuffer buffer = pool.removeFirst();
+      ((Buffer) buffer).clear();
+      pending.addLast(new Chunk(nextFetch, buffer, channel.read(buffer, nextFetch)));
+      nextFetch += bufferSize;
+    }
+  }
+
+  private void await(Chunk chunk) throws IOException {
+    int n;
+    try {
+      n = chunk.read.get();
+    } catch (InterruptedException e) {
+      // the read may still complete into the old buffer, so don't reuse it
+      pool.addLast(ByteBuffer.allocate(bufferSize));
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading ahead");
+    } catch (ExecutionException e) {
+      pool.addLast(chunk.buffer);
+      Throwable cause = e.getCause();
+      throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+    }
+    ((Buffer) chunk.buffer).flip();
+    if (n < 0) {
+      ((Buffer) chunk.buffer).limit(0);
+    }
+  }
+
+  private void release(Chunk chunk) {
+    if (chunk != null) {
+      pool.addLast(chunk.buffer);
+    }
+  }
+
+  /**
+   * Read the ranges concurrently with the channel, without waiting for them or
+   * disturbing read-ahead.
+   */
+  @Override
+  public void readVectored(List<FileRange> ranges) throws IOException {
+    for (FileRange range : ranges) {
+      readRange(range, ByteBuffer.allocate(range.getLength()), range.getOffset());
+    }
+  }
+
+  private void readRange(FileRange range, ByteBuffer buffer, long at) {
+    channel.read(buffer, at, null, new CompletionHandler<Integer, Void>() {
+      @Override
+      public void completed(Integer n, Void attachment) {
+        if (!buffer.hasRemaining()) {
+          ((Buffer) buffer).flip();
+          range.getData().complete(buffer);
+        } else if (n < 0) {
+          range.getData().completeExceptionally(new EOFException("Range " + range + " is beyond the end of the file"));
+        } else {
+          readRange(range, buffer, at + n);
+        }
+      }
+
+      @Override
+      public void failed(Throwable e, Void attachment) {
+        range.getData().completeExceptionally(e);
+      }
+    });
+  }
+
+  /** The size of each chunk read ahead. */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /** The maximum number of chunks read ahead. */
+  public int getPrefetchDepth() {
+    return prefetchDepth;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -24,12 +24,12 @@ import java.nio.ByteBuffer;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
 
 /** * Implements bzip2 compression and decompression. */
 public class BZip2Codec extends Codec {
 
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
-  private final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
 
   static class Option extends CodecFactory {
     @Override
@@ -45,34 +45,45 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    return compress(uncompressedData, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer reuse) throws IOException {
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
 
     try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos)) {
       outputStream.write(uncompressedData.array(), computeOffset(uncompressedData), uncompressedData.remaining());
     }
 
-    return baos.asByteBuffer();
+    return baos.asByteBuffer(reuse);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    return decompress(compressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
     ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
         compressedData.remaining());
 
-    @SuppressWarnings("resource")
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
 
     try (BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais)) {
-
-      int readCount = -1;
-      while ((readCount = inputStream.read(buffer, compressedData.position(), buffer.length)) > 0) {
-        baos.write(buffer, 0, readCount);
-      }
-
-      return baos.asByteBuffer();
+      IOUtils.copy(inputStream, baos);
+      return baos.asByteBuffer(reuse);
     }
   }
 
+  // write into reuse when possible, else into a fresh array the caller may keep;
+  // no stream is kept, so instances may be shared
+  private static NonCopyingByteArrayOutputStream outputStream(ByteBuffer reuse) {
+    return isReusable(reuse) ? new NonCopyingByteArrayOutputStream(reuse)
+        : new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+  }
+
   @Override
   public int hashCode() {
     return getName().hashCode();
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * A cache of decompressed blocks, shared by any number of
+ * {@link DataFileReader}s and threads, so that blocks read repeatedly are only
+ * decompressed once. Install it with
+ * {@link DataFileReader#setBlockCache(BlockCache)}.
+ *
+ * Blocks are identified by the synchronization marker of their file, their
+ * position in it, and the length and CRC-32 of their compressed bytes, so
+ * readers need not name their files and a file that is appended to keeps its
+ * cached blocks. Files that share a marker, such as those written with an
+ * explicitly chosen one or copied with {@link DataFileWriter#appendTo}, only
+ * share the blocks whose compressed bytes match.
+ *
+ * Cached blocks are held outside the Java heap, in direct buffers, up to a
+ * bound on their total size, and are copied into a reader's buffer when found.
+ * The cache is split into segments, each with its own lock, evicting the least
+ * recently used blocks. Before a block displaces others it must have been
+ * requested more often recently than each of them (the TinyLFU admission
+ * policy), so a single scan over a large file does not flush blocks read
+ * repeatedly. Blocks of uncompressed files are not cached.
+ */
+public class BlockCache {
+  private static final int SEGMENTS = 16;
+
+  static final class Key {
+    private final long sync1;
+    private final long sync2;
+    private final long position;
+    private final int length;
+    private final int crc;
+    private final int hash;
+
+    /** The key of a block, given its compressed bytes. */
+    Key(byte[] sync, long position, ByteBuffer compressed) {
+      this.sync1 = ByteBuffer.wrap(sync).getLong(0);
+      this.sync2 = ByteBuffer.wrap(sync).getLong(8);
+      this.position = position;
+      this.length = compressed.remaining();
+      CRC32 checksum = new CRC32();
+      checksum.update(compressed.duplicate());
+      this.crc = (int) checksum.getValue();
+      long h = ((sync1 * 31 + sync2) * 31 + position) * 31 + crc;
+      h *= 0x9E3779B97F4A7C15L;
+      this.hash = (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return position == that.position && sync1 == that.sync1 && sync2 == that.sync2 && length == that.length
+          && crc == that.crc;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /** Approximate recent request counts, in a count-min sketch of 4 rows. */
+  private static final class FrequencySketch {
+    private final byte[] counts;
+    private final int mask;
+    private final int resetAt;
+    private int samples;
+
+    private FrequencySketch(int width) {
+      int w = Integer.highestOneBit(Math.max(64, width) - 1) << 1;
+      this.counts = new byte[4 * w];
+      this.mask = w - 1;
+      this.resetAt = 10 * w;
+    }
+
+    private int index(int hash, int row) {
+      int h = hash * (0x9E3779B9 + 2 * row + 1);
+      return row * (mask + 1) + ((h ^ (h >>> 16)) & mask);
+    }
+
+    private void increment(int hash) {
+      for (int row = 0; row < 4; row++) {
+        int i = index(hash, row);
+        if (counts[i] < 15) {
+          counts[i]++;
+        }
+      }
+      if (++samples == resetAt) { // age the counts, so that old popularity fades
+        for (int i = 0; i < counts.length; i++) {
+          counts[i] >>= 1;
+        }
+        samples /= 2;
+      }
+    }
+
+    private int frequency(int hash) {
+      int min = 15;
+      for (int row = 0; row < 4; row++) {
+        min = Math.min(min, counts[index(hash, row)]);
+      }
+      return min;
+    }
+  }
+
+  private static final class Segment extends LinkedHashMap<Key, ByteBuffer> {
+    private static final long serialVersionUID = 1L;
+    private final long capacity;
+    private final transient FrequencySketch sketch;
+    private long size;
+
+    private Segment(long capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+      this.sketch = new FrequencySketch((int) Math.min(1 << 20, capacity / 4096));
+    }
+  }
+
+  private final long capacity;
+  private final Segment[] segments;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder bytesSaved = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+
+  /**
+   * @param capacity the most bytes of decompressed blocks to hold. Blocks larger
+   *                 than a sixteenth of this are not cached.
+   */
+  public BlockCache(long capacity) {
+    if (capacity < SEGMENTS) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    this.capacity = capacity;
+    this.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(capacity / SEGMENTS);
+    }
+  }
+
+  private Segment segment(Key key) {
+    return segments[(key.hash >>> 28) & (SEGMENTS - 1)];
+  }
+
+  /**
+   * Copy a cached block into a heap buffer.
+   *
+   * @param reuse a buffer to copy into if large enough, or null
+   * @return the block, or null if it is not cached
+   */
+  ByteBuffer get(Key key, ByteBuffer reuse) {
+    Segment segment = segment(key);
+    synchronized (segment) {
+      segment.sketch.increment(key.hash);
+      ByteBuffer cached = segment.get(key);
+      if (cached == null) {
+        misses.increment();
+        return null;
+      }
+      int length = cached.remaining();
+      ByteBuffer result = (reuse != null && reuse.capacity() >= length) ? reuse : ByteBuffer.allocate(length);
+      ((Buffer) result).clear();
+      result.put(cached.duplicate());
+      ((Buffer) result).flip();
+      hits.increment();
+      bytesSaved.add(length);
+      return result;
+    }
+  }
+
+  /** Offer a block that was just decompressed after a miss. */
+  void put(Key key, ByteBuffer block) {
+    int length = block.remaining();
+    Segment segment = segment(key);
+    if (length > segment.capacity) {
+      rejections.increment();
+      return;
+    }
+    synchronized (segment) {
+      if (segment.containsKey(key)) {
+        return;
+      }
+      // only displace blocks that were requested less often
+      int frequency = segment.sketch.frequency(key.hash);
+      long needed = segment.size + length - segment.capacity;
+      Iterator<Map.Entry<Key, ByteBuffer>> eldest = segment.entrySet().iterator();
+      for (long freed = 0; freed < needed;) {
+        Map.Entry<Key, ByteBuffer> victim = eldest.next();
+        if (segment.sketch.frequency(victim.getKey().hash) >= frequency) {
+          rejections.increment();
+          return;
+        }
+        freed += victim.getValue().capacity();
+      }
+      ByteBuffer recycled = null;
+      eldest = segment.entrySet().iterator();
+      while (segment.size + length > segment.capacity) {
+        ByteBuffer victim = eldest.next().getValue();
+        eldest.remove();
+        segment.size -= victim.capacity();
+        evictions.increment();
+        if (victim.capacity() >= length && victim.capacity() <= 2 * length) {
+          recycled = victim;
+        }
+      }
+      boolean fits = recycled != null && segment.size + recycled.capacity() <= segment.capacity;
+      ByteBuffer copy = fits ? recycled : ByteBuffer.allocateDirect(length);
+      ((Buffer) copy).clear();
+      copy.put(block.duplicate());
+      ((Buffer) copy).flip();
+      segment.put(key, copy);
+      segment.size += copy.capacity();
+    }
+  }
+
+  /** The most bytes this cache holds. */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /** The bytes of blocks now held. */
+  public long getSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size;
+      }
+    }
+    return size;
+  }
+
+  /** The number of blocks found in this cache. */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /** The number of blocks looked up but not found. */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /** The decompressed size of the blocks found, so not decompressed again. */
+  public long getBytesSaved() {
+    return bytesSaved.sum();
+  }
+
+  /** The number of blocks evicted to make room for others. */
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /** The number of blocks not admitted, by size or by frequency. */
+  public long getRejectionCount() {
+    return rejections.sum();
+  }
+
+  /** Remove every block. */
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+        segment.size = 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flushes the blocks of any number of {@link DataFileWriter}s once they reach a
+ * maximum age, so that datums appended to slow streams reach the output within
+ * a bounded time. Install it with
+ * {@link DataFileWriter#setMaxBlockAge(long, TimeUnit, BlockFlushScheduler)}.
+ *
+ * When the first datum of a block is appended, its writer schedules a flush of
+ * that block; the flush is cancelled if the block is written first, because it
+ * filled up or was synced. Flushes run on the scheduler's threads, a single
+ * daemon thread unless a number of threads or an executor is given, and should
+ * be quick compared to the ages they enforce. A writer busy on another thread
+ * is not waited for: its flush is tried again shortly.
+ */
+public class BlockFlushScheduler implements Closeable {
+  private final ScheduledExecutorService executor;
+  private final boolean ownsExecutor;
+  private final AtomicLong flushes = new AtomicLong();
+
+  /** Create a scheduler with its own daemon thread. */
+  public BlockFlushScheduler() {
+    this(1);
+  }
+
+  /**
+   * Create a scheduler with its own daemon threads, so that a slow flush only
+   * delays the flushes of other writers once every thread is busy.
+   */
+  public BlockFlushScheduler(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid threads: " + threads);
+    }
+    ScheduledThreadPoolExecutor own = new ScheduledThreadPoolExecutor(threads, r -> {
+      Thread thread = new Thread(r, "avro-block-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    own.setRemoveOnCancelPolicy(true);
+    this.executor = own;
+    this.ownsExecutor = true;
+  }
+
+  /**
+   * Create a scheduler running flushes on an executor, which is not shut down
+   * when this is closed.
+   */
+  public BlockFlushScheduler(ScheduledExecutorService executor) {
+    this.executor = executor;
+    this.ownsExecutor = false;
+  }
+
+  ScheduledFuture<?> schedule(Runnable flush, long delayNanos) {
+    return executor.schedule(flush, delayNanos, TimeUnit.NANOSECONDS);
+  }
+
+  void flushed() {
+    flushes.incrementAndGet();
+  }
+
+  /** The number of blocks flushed because of their age. */
+  public long getFlushCount() {
+    return flushes.get();
+  }
+
+  /**
+   * Stop flushing. Blocks of open writers are then only written when full or
+   * synced.
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor) {
+      executor.shutdownNow();
+    }
+  }
+}
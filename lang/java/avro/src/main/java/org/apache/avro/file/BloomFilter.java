@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size Bloom filter over binary-encoded keys. Membership tests may
+ * return false positives but never false negatives.
+ *
+ * Each key is hashed twice and the probe positions are derived from the two
+ * hashes with double hashing, so adding hash functions only costs bit lookups.
+ */
+public final class BloomFilter {
+  private static final double LN2 = Math.log(2);
+  private static final int MAX_HASHES = 30;
+  static final long SEED1 = 0L;
+  static final long SEED2 = 0x9E3779B97F4A7C15L;
+
+  private final long[] bits;
+  private final long numBits;
+  private final int numHashes;
+
+  private BloomFilter(long[] bits, int numHashes) {
+    this.bits = bits;
+    this.numBits = (long) bits.length * Long.SIZE;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates a filter sized to hold {@code expectedInsertions} keys with the given
+   * false-positive probability, but never using more than {@code maxBytes} bytes
+   * of bit storage. When the cap applies the effective false-positive rate is
+   * higher than requested.
+   */
+  public static BloomFilter create(long expectedInsertions, double fpp, int maxBytes) {
+    if (fpp <= 0 || fpp >= 1) {
+      throw new IllegalArgumentException("False positive probability must be in (0, 1): " + fpp);
+    }
+    if (maxBytes < Long.BYTES) {
+      throw new IllegalArgumentException("Bloom filter must have at least " + Long.BYTES + " bytes: " + maxBytes);
+    }
+    long n = Math.max(1, expectedInsertions);
+    long wantedBits = (long) Math.ceil(-n * Math.log(fpp) / (LN2 * LN2));
+    long maxBits = (long) (maxBytes / Long.BYTES) * Long.SIZE;
+    long m = Math.max(Long.SIZE, Math.min(wantedBits, maxBits));
+    int words = (int) ((m + Long.SIZE - 1) / Long.SIZE);
+    int k = (int) Math.round((double) words * Long.SIZE / n * LN2);
+    return new BloomFilter(new long[words], Math.max(1, Math.min(MAX_HASHES, k)));
+  }
+
+  /** Adds a key. */
+  public void put(byte[] key, int offset, int length) {
+    put(hash64(key, offset, length, SEED1), hash64(key, offset, length, SEED2));
+  }
+
+  /** Adds a key by its pre-computed hash pair, see {@link #hash64}. */
+  void put(long h1, long h2) {
+    long combined = h1;
+    for (int i = 0; i < numHashes; i++) {
+      long bit = (combined & Long.MAX_VALUE) % numBits;
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+      combined += h2;
+    }
+  }
+
+  /** Returns false if the key was definitely never added. */
+  public boolean mightContain(byte[] key, int offset, int length) {
+    long h1 = hash64(key, offset, length, SEED1);
+    long h2 = hash64(key, offset, length, SEED2);
+    long combined = h1;
+    for (int i = 0; i < numHashes; i++) {
+      long bit = (combined & Long.MAX_VALUE) % numBits;
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+      combined += h2;
+    }
+    return true;
+  }
+
+  /** The number of bytes of bit storage used by this filter. */
+  public int sizeInBytes() {
+    return bits.length * Long.BYTES;
+  }
+
+  /** The number of hash functions applied per key. */
+  public int getNumHashes() {
+    return numHashes;
+  }
+
+  /** Serializes this filter as one byte of hash count followed by the bits. */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer out = ByteBuffer.allocate(1 + sizeInBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    out.put((byte) numHashes);
+    for (long word : bits) {
+      out.putLong(word);
+    }
+    ((Buffer) out).flip();
+    return out;
+  }
+
+  /** Reads a filter written by {@link #toByteBuffer()}. */
+  public static BloomFilter fromByteBuffer(ByteBuffer in) {
+    ByteBuffer buf = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int numHashes = buf.get();
+    if (numHashes <= 0 || numHashes > MAX_HASHES || buf.remaining() == 0 || buf.remaining() % Long.BYTES != 0) {
+      throw new IllegalArgumentException("Invalid serialized Bloom filter");
+    }
+    long[] bits = new long[buf.remaining() / Long.BYTES];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = buf.getLong();
+    }
+    return new BloomFilter(bits, numHashes);
+  }
+
+  // a word-at-a-time multiplicative hash with a murmur3 finalizer
+  static long hash64(byte[] b, int offset, int length, long seed) {
+    long h = seed ^ (length * 0xC6A4A7935BD1E995L);
+    int i = offset;
+    int end = offset + length;
+    for (; i + Long.BYTES <= end; i += Long.BYTES) {
+      long k = (b[i] & 0xffL) | (b[i + 1] & 0xffL) << 8 | (b[i + 2] & 0xffL) << 16 | (b[i + 3] & 0xffL) << 24
+          | (b[i + 4] & 0xffL) << 32 | (b[i + 5] & 0xffL) << 40 | (b[i + 6] & 0xffL) << 48 | (b[i + 7] & 0xffL) << 56;
+      h = Long.rotateLeft(h ^ mix(k), 27) * 5 + 0x52DCE729;
+    }
+    long tail = 0;
+    for (int shift = 0; i < end; i++, shift += 8) {
+      tail |= (b[i] & 0xffL) << shift;
+    }
+    h ^= mix(tail);
+    return fmix64(h);
+  }
+
+  private static long mix(long k) {
+    k *= 0x87C37B91114253D5L;
+    k = Long.rotateLeft(k, 31);
+    return k * 0x4CF5AD432745937FL;
+  }
+
+  private static long fmix64(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
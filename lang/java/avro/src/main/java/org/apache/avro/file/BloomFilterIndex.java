@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+
+/**
+ * Per-block Bloom filters over key fields of a data file, written by
+ * {@link DataFileWriter#setBloomFilter(OutputStream, double, int, String...)}
+ * and consulted by
+ * {@link DataFileReader#lookup(BloomFilterIndex, String, Object)}.
+ *
+ * The index is stored separately from the data file so that the data file stays
+ * readable by every Avro implementation. It is itself an Avro data file holding
+ * one entry per block of the data file: the block's position, its record count
+ * and one serialized {@link BloomFilter} for each key field. Keys are hashed in
+ * their binary Avro encoding. Blocks whose keys were not seen by the writer
+ * (for example blocks copied by {@link DataFileWriter#appendAllFrom}) have no
+ * filters and are always treated as possible matches.
+ */
+public class BloomFilterIndex {
+  static final String FIELDS = "bloom.fields";
+  static final String FPP = "bloom.fpp";
+  static final String SYNC = "bloom.sync";
+
+  static final Schema ENTRY_SCHEMA = new Schema.Parser()
+      .parse("{\"type\":\"record\",\"name\":\"BloomFilterIndexEntry\",\"namespace\":\"org.apache.avro.file\","
+          + "\"fields\":[{\"name\":\"position\",\"type\":\"long\"},{\"name\":\"count\",\"type\":\"long\"},"
+          + "{\"name\":\"filters\",\"type\":[\"null\",{\"type\":\"array\",\"items\":\"bytes\"}]}]}");
+
+  private final List<String> fields;
+  private final byte[] sync;
+  private final long[] positions;
+  private final BloomFilter[][] filters;
+
+  private BloomFilterIndex(List<String> fields, byte[] sync, long[] positions, BloomFilter[][] filters) {
+    this.fields = fields;
+    this.sync = sync;
+    this.positions = positions;
+    this.filters = filters;
+  }
+
+  /** Read an index from a file. */
+  public static BloomFilterIndex read(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return read(in);
+    }
+  }
+
+  /** Read an index from a stream. The stream is closed when done. */
+  public static BloomFilterIndex read(InputStream in) throws IOException {
+    try (DataFileStream<GenericRecord> entries = new DataFileStream<>(in,
+        new GenericDatumReader<>(ENTRY_SCHEMA, ENTRY_SCHEMA))) {
+      String fieldList = entries.getMetaString(FIELDS);
+      byte[] sync = entries.getMeta(SYNC);
+      if (fieldList == null || sync == null) {
+        throw new IOException("Not a Bloom filter index");
+      }
+      List<String> fields = Collections.unmodifiableList(Arrays.asList(fieldList.split(",")));
+      List<Long> positions = new ArrayList<>();
+      List<BloomFilter[]> filters = new ArrayList<>();
+      GenericRecord entry = null;
+      while (entries.hasNext()) {
+        entry = entries.next(entry);
+        positions.add((Long) entry.get("position"));
+        @SuppressWarnings("unchecked")
+        List<ByteBuffer> serialized = (List<ByteBuffer>) entry.get("filters");
+        if (serialized == null) {
+          filters.add(null);
+        } else {
+          BloomFilter[] blockFilters = new BloomFilter[serialized.size()];
+          for (int i = 0; i < blockFilters.length; i++) {
+            blockFilters[i] = BloomFilter.fromByteBuffer(serialized.get(i));
+          }
+          filters.add(blockFilters);
+        }
+      }
+      long[] pos = new long[positions.size()];
+      for (int i = 0; i < pos.length; i++) {
+        pos[i] = positions.get(i);
+      }
+      return new BloomFilterIndex(fields, sync, pos, filters.toArray(new BloomFilter[0][]));
+    }
+  }
+
+  /** The key fields covered by this index. */
+  public List<String> getFields() {
+    return fields;
+  }
+
+  /** The number of blocks covered by this index. */
+  public int getBlockCount() {
+    return positions.length;
+  }
+
+  byte[] getSync() {
+    return sync;
+  }
+
+  /**
+   * Return the positions of the blocks that may contain a key, in file order.
+   * Positions may be passed to {@link DataFileReader#seek(long)}.
+   *
+   * @param field      the indexed field
+   * @param encodedKey the binary Avro encoding of the key
+   */
+  public long[] candidateBlocks(String field, byte[] encodedKey) {
+    int f = fields.indexOf(field);
+    if (f < 0) {
+      throw new AvroRuntimeException("Field is not indexed: " + field);
+    }
+    long[] result = new long[positions.length];
+    int n = 0;
+    for (int i = 0; i < positions.length; i++) {
+      if (filters[i] == null || filters[i][f].mightContain(encodedKey, 0, encodedKey.length)) {
+        result[n++] = positions[i];
+      }
+    }
+    return Arrays.copyOf(result, n);
+  }
+
+  /**
+   * The end of the block at a position, which is the start of the next indexed
+   * block, or the end of the file for the last.
+   */
+  long blockEnd(long position, long fileLength) {
+    int i = Arrays.binarySearch(positions, position);
+    return (i >= 0 && i + 1 < positions.length) ? positions[i + 1] : fileLength;
+  }
+
+  /** Builds and writes the index while a {@link DataFileWriter} writes blocks. */
+  static final class Writer implements Closeable {
+    private final DataFileWriter<GenericRecord> entries;
+    private final GenericData data;
+    private final double fpp;
+    private final int maxBytes;
+    private final Schema.Field[] keyFields;
+    private final DatumWriter<Object>[] keyWriters;
+    private final long[][] hashes;
+    private int keysInBlock;
+    private boolean unfiltered;
+
+    private final ByteArrayOutputStream keyBuffer = new ByteArrayOutputStream();
+    private BinaryEncoder keyEncoder;
+
+    @SuppressWarnings("unchecked")
+    Writer(OutputStream out, Schema schema, GenericData data, double fpp, int maxBytes, String[] fields, byte[] sync)
+        throws IOException {
+      if (schema.getType() != Schema.Type.RECORD) {
+        throw new AvroRuntimeException("Bloom filters require a record schema: " + schema);
+      }
+      // validate the sizing up front rather than at the first block
+      BloomFilter.create(1, fpp, maxBytes);
+      this.data = data;
+      this.fpp = fpp;
+      this.maxBytes = maxBytes;
+      this.keyFields = new Schema.Field[fields.length];
+      this.keyWriters = new DatumWriter[fields.length];
+      this.hashes = new long[fields.length][];
+      for (int i = 0; i < fields.length; i++) {
+        keyFields[i] = schema.getField(fields[i]);
+        if (keyFields[i] == null) {
+          throw new AvroRuntimeException("No such field for Bloom filter: " + fields[i]);
+        }
+        keyWriters[i] = data.createDatumWriter(keyFields[i].schema());
+        hashes[i] = new long[64];
+      }
+      this.entries = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(ENTRY_SCHEMA));
+      entries.setMeta(FIELDS, String.join(",", fields));
+      entries.setMeta(FPP, Double.toString(fpp));
+      entries.setMeta(SYNC, sync);
+      entries.create(ENTRY_SCHEMA, out);
+    }
+
+    /** Remember the keys of a datum appended to the current block. */
+    void add(Object datum) throws IOException {
+      if (keysInBlock * 2 == hashes[0].length) {
+        for (int i = 0; i < hashes.length; i++) {
+          hashes[i] = Arrays.copyOf(hashes[i], hashes[i].length * 2);
+        }
+      }
+      for (int i = 0; i < keyFields.length; i++) {
+        Object key = data.getField(datum, keyFields[i].name(), keyFields[i].pos());
+        keyBuffer.reset();
+        keyEncoder = EncoderFactory.get().directBinaryEncoder(keyBuffer, keyEncoder);
+        keyWriters[i].write(key, keyEncoder);
+        byte[] bytes = keyBuffer.toByteArray();
+        hashes[i][keysInBlock * 2] = BloomFilter.hash64(bytes, 0, bytes.length, BloomFilter.SEED1);
+        hashes[i][keysInBlock * 2 + 1] = BloomFilter.hash64(bytes, 0, bytes.length, BloomFilter.SEED2);
+      }
+      keysInBlock++;
+    }
+
+    /**
+     * Note that the current block contains data whose keys were not seen, so it
+     * must not be filtered.
+     */
+    void markUnfiltered() {
+      unfiltered = true;
+    }
+
+    /** Write the entry for a block that was just written at a position. */
+    void blockWritten(long position, long count) throws IOException {
+      GenericData.Record entry = new GenericData.Record(ENTRY_SCHEMA);
+      entry.put("position", position);
+      entry.put("count", count);
+      if (!unfiltered) {
+        List<ByteBuffer> blockFilters = new ArrayList<>(keyFields.length);
+        for (long[] keyHashes : hashes) {
+          BloomFilter filter = BloomFilter.create(keysInBlock, fpp, maxBytes);
+          for (int k = 0; k < keysInBlock; k++) {
+            filter.put(keyHashes[k * 2], keyHashes[k * 2 + 1]);
+          }
+          blockFilters.add(filter.toByteBuffer());
+        }
+        entry.put("filters", blockFilters);
+      }
+      entries.append(entry);
+      keysInBlock = 0;
+      unfiltered = false;
+    }
+
+    /** Write the entry for a block copied without decoding it. */
+    void rawBlockWritten(long position, long count) throws IOException {
+      markUnfiltered();
+      blockWritten(position, count);
+    }
+
+    void flush() throws IOException {
+      entries.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      entries.close();
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SeekableInput} for storage where each read is a costly round trip,
+ * such as an object store, reading through a {@link RangeSource} that can read
+ * any range of the file at any time, from any thread.
+ *
+ * Ranges passed to {@link #readVectored(List)} are sorted, and ranges separated
+ * by gaps of at most {@link #setMaxGap(int) maxGap} bytes are merged into one
+ * read of at most {@link #setMaxMergedSize(int) maxMergedSize} bytes. The
+ * merged reads run concurrently on an executor. Sequential reads fetch
+ * {@link #setReadSize(int) readSize} bytes at a time. Everything fetched is
+ * kept in a cache bounded by {@link #setCacheSize(long) cacheSize}, evicting
+ * the least recently used reads, so that reading the ranges afterwards with
+ * {@link #seek(long)} and {@link #read(byte[], int, int)} does not go back to
+ * the source.
+ *
+ * Seeking and reading are not thread safe, but the source must be.
+ */
+public class CoalescingSeekableInput implements SeekableInput {
+  public static final int DEFAULT_MAX_GAP = 256 * 1024;
+  public static final int DEFAULT_MAX_MERGED_SIZE = 8 * 1024 * 1024;
+  public static final int DEFAULT_READ_SIZE = 1024 * 1024;
+  public static final long DEFAULT_CACHE_SIZE = 32L * 1024 * 1024;
+
+  /** Reads ranges of a file, possibly from several threads at once. */
+  @FunctionalInterface
+  public interface RangeSource {
+    /** Read exactly {@code len} bytes of the file at a position. */
+    void readFully(long position, byte[] b, int off, int len) throws IOException;
+  }
+
+  private static final class Chunk {
+    private final long offset;
+    private final byte[] data;
+    private long used;
+
+    private Chunk(long offset, byte[] data) {
+      this.offset = offset;
+      this.data = data;
+    }
+
+    private boolean contains(long start, long end) {
+      return start >= offset && end <= offset + data.length;
+    }
+
+    private ByteBuffer slice(FileRange range) {
+      return ByteBuffer.wrap(data, (int) (range.getOffset() - offset), range.getLength()).slice();
+    }
+  }
+
+  private final RangeSource source;
+  private final long length;
+  private final Executor executor;
+  private int maxGap = DEFAULT_MAX_GAP;
+  private int maxMergedSize = DEFAULT_MAX_MERGED_SIZE;
+  private int readSize = DEFAULT_READ_SIZE;
+  private long cacheSize = DEFAULT_CACHE_SIZE;
+
+  private final TreeMap<Long, Chunk> cache = new TreeMap<>(); // by offset
+  private long cached; // bytes in cache
+  private long clock;
+  private final AtomicLong reads = new AtomicLong();
+  private final AtomicLong bytesRead = new AtomicLong();
+
+  private long position;
+
+  /**
+   * @param source   reads the file; closed with this input if {@link Closeable}
+   * @param length   the length of the file
+   * @param executor runs merged reads concurrently, or null to run them in the
+   *                 calling thread
+   */
+  public CoalescingSeekableInput(RangeSource source, long length, Executor executor) {
+    this.source = source;
+    this.length = length;
+    this.executor = executor;
+  }
+
+  /** Merge ranges separated by at most this many bytes. */
+  public CoalescingSeekableInput setMaxGap(int maxGap) {
+    if (maxGap < 0) {
+      throw new IllegalArgumentException("Invalid gap: " + maxGap);
+    }
+    this.maxGap = maxGap;
+    return this;
+  }
+
+  /** Don't merge ranges into reads larger than this. */
+  public CoalescingSeekableInput setMaxMergedSize(int maxMergedSize) {
+    if (maxMergedSize < 1) {
+      throw new IllegalArgumentException("Invalid merged size: " + maxMergedSize);
+    }
+    this.maxMergedSize = maxMergedSize;
+    return this;
+  }
+
+  /** Fetch this many bytes when a sequential read misses the cache. */
+  public CoalescingSeekableInput setReadSize(int readSize) {
+    if (readSize < 1) {
+      throw new IllegalArgumentException("Invalid read size: " + readSize);
+    }
+    this.readSize = readSize;
+    return this;
+  }
+
+  /** Keep at most this many fetched bytes, besides the most recent read. */
+  public CoalescingSeekableInput setCacheSize(long cacheSize) {
+    if (cacheSize < 0) {
+      throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+    }
+    this.cacheSize = cacheSize;
+    return this;
+  }
+
+  /** The number of reads made from the source. */
+  public long getReadCount() {
+    return reads.get();
+  }
+
+  /** The number of bytes read from the source. */
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0) {
+      throw new IOException("Illegal seek: " + p);
+    }
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return length;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= length) {
+      return -1;
+    }
+    Chunk chunk = find(position, position + 1);
+    if (chunk == null) {
+      chunk = fetch(position, (int) Math.min(readSize, length - position));
+    }
+    int start = (int) (position - chunk.offset);
+    int n = Math.min(len, chunk.data.length - start);
+    System.arraycopy(chunk.data, start, b, off, n);
+    position += n;
+    return n;
+  }
+
+  @Override
+  public void readVectored(List<FileRange> ranges) throws IOException {
+    List<FileRange> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(FileRange::getOffset));
+    List<FileRange> group = new ArrayList<>();
+    long groupStart = 0;
+    long groupEnd = 0;
+    for (FileRange range : sorted) {
+      if (range.getEnd() > length) {
+        range.getData().completeExceptionally(new EOFException("Range " + range + " is beyond the end of the file"));
+        continue;
+      }
+      Chunk chunk = find(range.getOffset(), range.getEnd());
+      if (chunk != null) {
+        range.getData().complete(chunk.slice(range));
+        continue;
+      }
+      long end = Math.max(groupEnd, range.getEnd());
+      if (!group.isEmpty() && (range.getOffset() - groupEnd > maxGap || end - groupStart > maxMergedSize)) {
+        submit(group, groupStart, groupEnd);
+        group = new ArrayList<>();
+      }
+      if (group.isEmpty()) {
+        groupStart = range.getOffset();
+        end = range.getEnd();
+      }
+      group.add(range);
+      groupEnd = end;
+    }
+    if (!group.isEmpty()) {
+      submit(group, groupStart, groupEnd);
+    }
+  }
+
+  // read a group of ranges at once and complete them
+  private void submit(List<FileRange> group, long start, long end) {
+    Runnable read = () -> {
+      try {
+        Chunk chunk = fetch(start, (int) (end - start));
+        for (FileRange range : group) {
+          range.getData().complete(chunk.slice(range));
+        }
+      } catch (Throwable e) {
+        for (FileRange range : group) {
+          range.getData().completeExceptionally(e);
+        }
+      }
+    };
+    if (executor == null) {
+      read.run();
+    } else {
+      executor.execute(read);
+    }
+  }
+
+  // a cached chunk holding a range, or null
+  private Chunk find(long start, long end) {
+    synchronized (cache) {
+      Map.Entry<Long, Chunk> entry = cache.floorEntry(start);
+      if (entry == null || !entry.getValue().contains(start, end)) {
+        return null;
+      }
+      entry.getValue().used = ++clock;
+      return entry.getValue();
+    }
+  }
+
+  private Chunk fetch(long offset, int len) throws IOException {
+    byte[] data = new byte[len];
+    source.readFully(offset, data, 0, len);
+    reads.incrementAndGet();
+    bytesRead.addAndGet(len);
+    Chunk chunk = new Chunk(offset, data);
+    synchronized (cache) {
+      chunk.used = ++clock;
+      Chunk replaced = cache.put(offset, chunk);
+      cached += len - ((replaced == null) ? 0 : replaced.data.length);
+      while (cached > cacheSize && cache.size() > 1) {
+        Chunk oldest = null;
+        for (Chunk c : cache.values()) {
+          if (c != chunk && (oldest == null || c.used < oldest.used)) {
+            oldest = c;
+          }
+        }
+        cache.remove(oldest.offset);
+        cached -= oldest.data.length;
+      }
+    }
+    return chunk;
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (cache) {
+      cache.clear();
+      cached = 0;
+    }
+    if (source instanceof Closeable) {
+      ((Closeable) source).close();
+    }
+  }
+}
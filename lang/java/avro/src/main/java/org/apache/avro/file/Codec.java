@@ -18,6 +18,7 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 
 /**
@@ -36,6 +37,27 @@ public abstract class Codec {
   /** Decompress the data */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
 
+  /**
+   * Compresses the input data, writing into a caller-provided buffer when
+   * possible. The result is {@code reuse} itself, or a new buffer when
+   * {@code reuse} is null, not a heap buffer, or too small. Callers that pass the
+   * result of each call as {@code reuse} for the next one stop allocating output
+   * buffers once the buffer has grown to fit their blocks. {@code reuse} must not
+   * share storage with the input. The default implementation ignores
+   * {@code reuse}.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer reuse) throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompresses the data, writing into a caller-provided buffer when possible.
+   * See {@link #compress(ByteBuffer, ByteBuffer)}.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    return decompress(compressedData);
+  }
+
   /**
    * Codecs must implement an equals() method. Two codecs, A and B are equal if:
    * the result of A and B decompressing content compressed by A is the same AND
@@ -61,4 +83,32 @@ public abstract class Codec {
   protected static int computeOffset(ByteBuffer data) {
     return data.arrayOffset() + data.position();
   }
+
+  /** True if a buffer can be written through its whole backing array. */
+  protected static boolean isReusable(ByteBuffer reuse) {
+    return reuse != null && reuse.hasArray() && reuse.arrayOffset() == 0;
+  }
+
+  /**
+   * Returns {@code reuse}, cleared, if it is reusable and holds at least
+   * {@code capacity} bytes, or else a new heap buffer of {@code capacity} bytes.
+   */
+  protected static ByteBuffer reusable(ByteBuffer reuse, int capacity) {
+    if (isReusable(reuse) && reuse.capacity() >= capacity) {
+      ((Buffer) reuse).clear();
+      return reuse;
+    }
+    return ByteBuffer.allocate(capacity);
+  }
+
+  /**
+   * Returns a heap buffer with twice the capacity of a full buffer, holding its
+   * contents and positioned after them.
+   */
+  protected static ByteBuffer grow(ByteBuffer full) {
+    ByteBuffer grown = ByteBuffer.allocate(Math.max(full.capacity() * 2, 1024));
+    ((Buffer) full).flip();
+    grown.put(full);
+    return grown;
+  }
 }
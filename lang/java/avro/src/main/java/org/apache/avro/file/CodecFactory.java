@@ -73,6 +73,27 @@ public abstract class CodecFactory {
     }
   }
 
+  /** LZ4 codec, using the fast compressor. */
+  public static CodecFactory lz4Codec() {
+    return lz4Codec(DEFAULT_LZ4_LEVEL);
+  }
+
+  /**
+   * LZ4 codec, with specific compression level.
+   *
+   * @param level 0 for the fast compressor, or between 1 and 17 for the
+   *              high-compression compressor. Decompression speed is the same for
+   *              every level.
+   */
+  public static CodecFactory lz4Codec(int level) {
+    try {
+      return new LZ4Codec.Option(level);
+    } catch (Throwable t) {
+      LOG.debug("LZ4 was not available", t);
+      return null;
+    }
+  }
+
   /** bzip2 codec. */
   public static CodecFactory bzip2Codec() {
     return new BZip2Codec.Option();
@@ -117,6 +138,23 @@ public abstract class CodecFactory {
     return new ZstandardCodec.Option(level, useChecksum, useBufferPool);
   }
 
+  /**
+   * zstandard codec that compresses every block with a dictionary, which is
+   * stored in the file's metadata so that readers use it automatically. A
+   * dictionary helps most when blocks are small, for example when a writer
+   * flushes often.
+   *
+   * @param level       The compression level should be between -5 and 22,
+   *                    inclusive.
+   * @param useChecksum if true, will include a checksum with each data block
+   * @param dictionary  a dictionary trained with
+   *                    {@link ZstandardCodec#trainDictionary(java.util.List, int)}
+   *                    or by the zstd command line tool
+   */
+  public static CodecFactory zstandardCodec(int level, boolean useChecksum, byte[] dictionary) {
+    return new ZstandardCodec.Option(level, useChecksum, false, dictionary);
+  }
+
   /** Creates internal Codec. */
   protected abstract Codec createInstance();
 
@@ -130,6 +168,7 @@ public abstract class CodecFactory {
   public static final int DEFAULT_XZ_LEVEL = XZCodec.DEFAULT_COMPRESSION;
   public static final int DEFAULT_ZSTANDARD_LEVEL = ZstandardCodec.DEFAULT_COMPRESSION;
   public static final boolean DEFAULT_ZSTANDARD_BUFFERPOOL = ZstandardCodec.DEFAULT_USE_BUFFERPOOL;
+  public static final int DEFAULT_LZ4_LEVEL = LZ4Codec.DEFAULT_COMPRESSION;
 
   static {
     addCodec(DataFileConstants.NULL_CODEC, nullCodec());
@@ -138,12 +177,13 @@ public abstract class CodecFactory {
     addCodec(DataFileConstants.XZ_CODEC, xzCodec(DEFAULT_XZ_LEVEL));
     addCodec(DataFileConstants.ZSTANDARD_CODEC, zstandardCodec(DEFAULT_ZSTANDARD_LEVEL, DEFAULT_ZSTANDARD_BUFFERPOOL));
     addCodec(DataFileConstants.SNAPPY_CODEC, snappyCodec());
+    addCodec(DataFileConstants.LZ4_CODEC, lz4Codec());
   }
 
   /**
    * Maps a codec name into a CodecFactory.
    *
-   * Currently there are six codecs registered by default:
+   * Currently there are seven codecs registered by default:
    * <ul>
    * <li>{@code null}</li>
    * <li>{@code deflate}</li>
@@ -151,6 +191,7 @@ public abstract class CodecFactory {
    * <li>{@code bzip2}</li>
    * <li>{@code xz}</li>
    * <li>{@code zstandard}</li>
+   * <li>{@code lz4}</li>
    * </ul>
    */
   public static CodecFactory fromString(String s) {
@@ -161,6 +202,21 @@ public abstract class CodecFactory {
     return o;
   }
 
+  /**
+   * Returns the factory for the codec a file was written with, from its metadata:
+   * the codec name, or null for no compression, and the zstandard dictionary, if
+   * any.
+   */
+  static CodecFactory fromMeta(String name, byte[] zstandardDictionary) {
+    if (name == null) {
+      return nullCodec();
+    }
+    if (zstandardDictionary != null && DataFileConstants.ZSTANDARD_CODEC.equals(name)) {
+      return zstandardCodec(DEFAULT_ZSTANDARD_LEVEL, false, zstandardDictionary);
+    }
+    return fromString(name);
+  }
+
   /**
    * Adds a new codec implementation. If name already had a codec associated with
    * it, returns the previous codec.
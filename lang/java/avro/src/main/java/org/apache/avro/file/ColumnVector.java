@@ -0,0 +1,675 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+
+/**
+ * A column of values decoded by a {@link ColumnarBatchReader}, held in
+ * primitive arrays rather than as objects. Each vector type corresponds to Avro
+ * types:
+ * <ul>
+ * <li>{@link IntVector}: {@code int}, and {@code enum} as symbol ordinals</li>
+ * <li>{@link LongVector}, {@link FloatVector}, {@link DoubleVector},
+ * {@link BooleanVector}: their types</li>
+ * <li>{@link BytesVector}: {@code string}, {@code bytes} and {@code fixed}, as
+ * offsets into one byte array</li>
+ * <li>{@link ListVector}: {@code array}, as offsets into a vector of all the
+ * elements</li>
+ * <li>{@link MapVector}: {@code map}, as offsets into vectors of all the keys
+ * and values</li>
+ * <li>{@link StructVector}: {@code record}, as a vector per field</li>
+ * <li>{@link NullVector}: {@code null}</li>
+ * </ul>
+ * A union of {@code null} and another type is decoded into a vector of the
+ * other type with a validity bitmap; null values are stored as zero or empty.
+ * Other unions, and recursive records, are not supported. Logical types are not
+ * converted: the vector holds their underlying type and {@link #getSchema()}
+ * their logical type.
+ *
+ * Vectors are reused for each block, so their contents are only valid until the
+ * next block is decoded, and the arrays returned by their accessors may be
+ * longer than their contents.
+ */
+public abstract class ColumnVector {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Schema schema;
+  private final int nullIndex; // branch of null in a nullable union, or -1
+  private long[] validity; // bit set for each non-null value
+  protected int size;
+
+  ColumnVector(Schema schema, int nullIndex) {
+    this.schema = schema;
+    this.nullIndex = nullIndex;
+    this.validity = (nullIndex < 0) ? null : new long[1];
+  }
+
+  /** Create the vectors to decode values of a schema. */
+  static ColumnVector create(Schema schema) {
+    return create(schema, new IdentityHashMap<>());
+  }
+
+  private static ColumnVector create(Schema schema, Map<Schema, Boolean> enclosing) {
+    int nullIndex = -1;
+    if (schema.getType() == Schema.Type.UNION) {
+      List<Schema> types = schema.getTypes();
+      if (types.size() != 2
+          || (types.get(0).getType() != Schema.Type.NULL) == (types.get(1).getType() != Schema.Type.NULL)) {
+        throw new AvroRuntimeException("Only unions of null and one other type can be decoded into columns: " + schema);
+      }
+      nullIndex = (types.get(0).getType() == Schema.Type.NULL) ? 0 : 1;
+      schema = types.get(1 - nullIndex);
+      if (schema.getType() == Schema.Type.UNION) {
+        throw new AvroRuntimeException("Nested union: " + schema);
+      }
+    }
+    switch (schema.getType()) {
+    case NULL:
+      return new NullVector(schema);
+    case BOOLEAN:
+      return new BooleanVector(schema, nullIndex);
+    case INT:
+    case ENUM:
+      return new IntVector(schema, nullIndex);
+    case LONG:
+      return new LongVector(schema, nullIndex);
+    case FLOAT:
+      return new FloatVector(schema, nullIndex);
+    case DOUBLE:
+      return new DoubleVector(schema, nullIndex);
+    case STRING:
+    case BYTES:
+    case FIXED:
+      return new BytesVector(schema, nullIndex);
+    case ARRAY:
+      return new ListVector(schema, nullIndex, create(schema.getElementType(), enclosing));
+    case MAP:
+      return new MapVector(schema, nullIndex, create(schema.getValueType(), enclosing));
+    case RECORD:
+      if (enclosing.put(schema, Boolean.TRUE) != null) {
+        throw new AvroRuntimeException("Recursive records cannot be decoded into columns: " + schema.getFullName());
+      }
+      List<ColumnVector> fields = new ArrayList<>(schema.getFields().size());
+      for (Schema.Field field : schema.getFields()) {
+        fields.add(create(field.schema(), enclosing));
+      }
+      enclosing.remove(schema);
+      return new StructVector(schema, nullIndex, fields);
+    default:
+      throw new AvroRuntimeException("Unexpected schema: " + schema);
+    }
+  }
+
+  /** The schema of the values, without null if they are nullable. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** Whether values may be null. */
+  public boolean isNullable() {
+    return nullIndex >= 0;
+  }
+
+  /** The number of values. */
+  public int size() {
+    return size;
+  }
+
+  /** Whether a value is null. */
+  public boolean isNull(int i) {
+    checkIndex(i);
+    return validity != null && (validity[i >>> 6] & (1L << i)) == 0;
+  }
+
+  /**
+   * The validity bitmap: bit {@code i % 64} of word {@code i / 64} is set when
+   * value {@code i} is not null. Null if values cannot be null.
+   */
+  public long[] getValidity() {
+    return validity;
+  }
+
+  final void checkIndex(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException("Index " + i + " out of bounds for " + size + " values");
+    }
+  }
+
+  static int grow(int capacity, int needed) {
+    return Math.max(needed, capacity + (capacity >> 1) + 1);
+  }
+
+  /** Decode and append a value. */
+  final void read(BinaryDecoder in) throws IOException {
+    if (validity != null) {
+      int slot = size;
+      growValidity(slot);
+      int branch = in.readIndex();
+      if (branch == nullIndex) {
+        appendNull();
+        return;
+      } else if (branch != 1 - nullIndex) {
+        throw new AvroRuntimeException("Malformed data. Union index out of bounds: " + branch);
+      }
+      validity[slot >>> 6] |= 1L << slot;
+    }
+    readValue(in);
+  }
+
+  /** Decode and append a value of the type of this vector. */
+  abstract void readValue(BinaryDecoder in) throws IOException;
+
+  /** Append a placeholder for a null value here or in an enclosing vector. */
+  final void appendNull() {
+    if (validity != null) {
+      growValidity(size);
+    }
+    appendNullValue();
+  }
+
+  /** Append the placeholder value of the type of this vector. */
+  abstract void appendNullValue();
+
+  // make room in the validity bitmap for a value; rows appended as nulls of an
+  // enclosing vector may have left it several words behind
+  private void growValidity(int slot) {
+    if (slot >>> 6 >= validity.length) {
+      validity = Arrays.copyOf(validity, Math.max(2 * validity.length, (slot >>> 6) + 1));
+    }
+  }
+
+  /** Remove all values, keeping the capacity. */
+  void reset() {
+    if (validity != null) {
+      Arrays.fill(validity, 0, Math.min(validity.length, (size + 63) >>> 6), 0L);
+    }
+    size = 0;
+  }
+
+  /** Null values: nothing is stored. */
+  public static final class NullVector extends ColumnVector {
+    NullVector(Schema schema) {
+      super(schema, -1);
+    }
+
+    @Override
+    public boolean isNull(int i) {
+      checkIndex(i);
+      return true;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) {
+      size++;
+    }
+
+    @Override
+    void appendNullValue() {
+      size++;
+    }
+  }
+
+  /** Boolean values. */
+  public static final class BooleanVector extends ColumnVector {
+    private boolean[] values = new boolean[INITIAL_CAPACITY];
+
+    BooleanVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+    }
+
+    public boolean getBoolean(int i) {
+      checkIndex(i);
+      return values[i];
+    }
+
+    /** The values, in the first {@link #size()} elements. */
+    public boolean[] getValues() {
+      return values;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = in.readBoolean();
+    }
+
+    @Override
+    void appendNullValue() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = false;
+    }
+  }
+
+  /** Int values, or the ordinals of enum symbols. */
+  public static final class IntVector extends ColumnVector {
+    private final boolean isEnum;
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    IntVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+      this.isEnum = schema.getType() == Schema.Type.ENUM;
+    }
+
+    public int getInt(int i) {
+      checkIndex(i);
+      return values[i];
+    }
+
+    /** The values, in the first {@link #size()} elements. */
+    public int[] getValues() {
+      return values;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = isEnum ? in.readEnum() : in.readInt();
+    }
+
+    @Override
+    void appendNullValue() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = 0;
+    }
+  }
+
+  /** Long values. */
+  public static final class LongVector extends ColumnVector {
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    LongVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+    }
+
+    public long getLong(int i) {
+      checkIndex(i);
+      return values[i];
+    }
+
+    /** The values, in the first {@link #size()} elements. */
+    public long[] getValues() {
+      return values;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = in.readLong();
+    }
+
+    @Override
+    void appendNullValue() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = 0;
+    }
+  }
+
+  /** Float values. */
+  public static final class FloatVector extends ColumnVector {
+    private float[] values = new float[INITIAL_CAPACITY];
+
+    FloatVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+    }
+
+    public float getFloat(int i) {
+      checkIndex(i);
+      return values[i];
+    }
+
+    /** The values, in the first {@link #size()} elements. */
+    public float[] getValues() {
+      return values;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = in.readFloat();
+    }
+
+    @Override
+    void appendNullValue() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = 0;
+    }
+  }
+
+  /** Double values. */
+  public static final class DoubleVector extends ColumnVector {
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    DoubleVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+    }
+
+    public double getDouble(int i) {
+      checkIndex(i);
+      return values[i];
+    }
+
+    /** The values, in the first {@link #size()} elements. */
+    public double[] getValues() {
+      return values;
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = in.readDouble();
+    }
+
+    @Override
+    void appendNullValue() {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, grow(size, size + 1));
+      }
+      values[size++] = 0;
+    }
+  }
+
+  /**
+   * String, bytes or fixed values: value {@code i} is the bytes of
+   * {@link #getData()} from {@code getOffsets()[i]} to
+   * {@code getOffsets()[i + 1]}. Strings are in UTF-8.
+   */
+  public static final class BytesVector extends ColumnVector {
+    private final int fixedSize; // or -1
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+    private byte[] data = new byte[16 * INITIAL_CAPACITY];
+
+    BytesVector(Schema schema, int nullIndex) {
+      super(schema, nullIndex);
+      this.fixedSize = (schema.getType() == Schema.Type.FIXED) ? schema.getFixedSize() : -1;
+    }
+
+    /** The offsets of the values in the data, in the first size + 1 elements. */
+    public int[] getOffsets() {
+      return offsets;
+    }
+
+    /** The bytes of all the values. */
+    public byte[] getData() {
+      return data;
+    }
+
+    /** The offset of a value in the data. */
+    public int getOffset(int i) {
+      checkIndex(i);
+      return offsets[i];
+    }
+
+    /** The length of a value. */
+    public int getLength(int i) {
+      checkIndex(i);
+      return offsets[i + 1] - offsets[i];
+    }
+
+    /** Copy a value. */
+    public byte[] getBytes(int i) {
+      checkIndex(i);
+      return Arrays.copyOfRange(data, offsets[i], offsets[i + 1]);
+    }
+
+    /** Decode a value as a UTF-8 string. */
+    public String getString(int i) {
+      checkIndex(i);
+      return new String(data, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      int length = (fixedSize >= 0) ? fixedSize : in.readInt();
+      if (length < 0) {
+        throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
+      }
+      int start = offsets[size];
+      if (data.length - start < length) {
+        long needed = (long) start + length;
+        if (needed > Integer.MAX_VALUE - 8) {
+          throw new AvroRuntimeException("Column too large: " + needed + " bytes");
+        }
+        data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * data.length)));
+      }
+      in.readFixed(data, start, length);
+      offsets = appendOffset(offsets, size++, start + length);
+    }
+
+    @Override
+    void appendNullValue() {
+      offsets = appendOffset(offsets, size, offsets[size]);
+      size++;
+    }
+  }
+
+  /**
+   * Array values: value {@code i} is the elements from {@code getOffsets()[i]} to
+   * {@code getOffsets()[i + 1]} of {@link #getElements()}.
+   */
+  public static final class ListVector extends ColumnVector {
+    private final ColumnVector elements;
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+    ListVector(Schema schema, int nullIndex, ColumnVector elements) {
+      super(schema, nullIndex);
+      this.elements = elements;
+    }
+
+    /** The elements of all the values. */
+    public ColumnVector getElements() {
+      return elements;
+    }
+
+    /**
+     * The offsets of the values in the elements, in the first size + 1 elements.
+     */
+    public int[] getOffsets() {
+      return offsets;
+    }
+
+    /** The offset of the first element of a value. */
+    public int getOffset(int i) {
+      checkIndex(i);
+      return offsets[i];
+    }
+
+    /** The number of elements of a value. */
+    public int getLength(int i) {
+      checkIndex(i);
+      return offsets[i + 1] - offsets[i];
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      for (long n = in.readArrayStart(); n > 0; n = in.arrayNext()) {
+        for (long j = 0; j < n; j++) {
+          elements.read(in);
+        }
+      }
+      offsets = appendOffset(offsets, size++, elements.size());
+    }
+
+    @Override
+    void appendNullValue() {
+      offsets = appendOffset(offsets, size, offsets[size]);
+      size++;
+    }
+
+    @Override
+    void reset() {
+      super.reset();
+      elements.reset();
+    }
+  }
+
+  /**
+   * Map values: value {@code i} is the entries from {@code getOffsets()[i]} to
+   * {@code getOffsets()[i + 1]} of {@link #getKeys()} and {@link #getValues()}.
+   */
+  public static final class MapVector extends ColumnVector {
+    private final BytesVector keys;
+    private final ColumnVector values;
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+    MapVector(Schema schema, int nullIndex, ColumnVector values) {
+      super(schema, nullIndex);
+      this.keys = new BytesVector(Schema.create(Schema.Type.STRING), -1);
+      this.values = values;
+    }
+
+    /** The keys of all the values. */
+    public BytesVector getKeys() {
+      return keys;
+    }
+
+    /** The values of all the entries. */
+    public ColumnVector getValues() {
+      return values;
+    }
+
+    /** The offsets of the values in the entries, in the first size + 1 elements. */
+    public int[] getOffsets() {
+      return offsets;
+    }
+
+    /** The offset of the first entry of a value. */
+    public int getOffset(int i) {
+      checkIndex(i);
+      return offsets[i];
+    }
+
+    /** The number of entries of a value. */
+    public int getLength(int i) {
+      checkIndex(i);
+      return offsets[i + 1] - offsets[i];
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      for (long n = in.readMapStart(); n > 0; n = in.mapNext()) {
+        for (long j = 0; j < n; j++) {
+          keys.readValue(in);
+          values.read(in);
+        }
+      }
+      offsets = appendOffset(offsets, size++, keys.size());
+    }
+
+    @Override
+    void appendNullValue() {
+      offsets = appendOffset(offsets, size, offsets[size]);
+      size++;
+    }
+
+    @Override
+    void reset() {
+      super.reset();
+      keys.reset();
+      values.reset();
+    }
+  }
+
+  /** Record values: a vector for each field, with a value for each record. */
+  public static final class StructVector extends ColumnVector {
+    private final ColumnVector[] fields;
+
+    StructVector(Schema schema, int nullIndex, List<ColumnVector> fields) {
+      super(schema, nullIndex);
+      this.fields = fields.toArray(new ColumnVector[0]);
+    }
+
+    /** The vector of a field, by position. */
+    public ColumnVector getField(int pos) {
+      return fields[pos];
+    }
+
+    /** The vector of a field, by name, or null if there is no such field. */
+    public ColumnVector getField(String name) {
+      Schema.Field field = getSchema().getField(name);
+      return (field == null) ? null : fields[field.pos()];
+    }
+
+    /** The vectors of the fields, in order. */
+    public List<ColumnVector> getFields() {
+      return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    @Override
+    void readValue(BinaryDecoder in) throws IOException {
+      for (ColumnVector field : fields) {
+        field.read(in);
+      }
+      size++;
+    }
+
+    @Override
+    void appendNullValue() {
+      for (ColumnVector field : fields) {
+        field.appendNull();
+      }
+      size++;
+    }
+
+    @Override
+    void reset() {
+      super.reset();
+      for (ColumnVector field : fields) {
+        field.reset();
+      }
+    }
+  }
+
+  // set offsets[i + 1], growing offsets if needed
+  private static int[] appendOffset(int[] offsets, int i, int end) {
+    if (i + 1 == offsets.length) {
+      offsets = Arrays.copyOf(offsets, grow(offsets.length, i + 2));
+    }
+    offsets[i + 1] = end;
+    return offsets;
+  }
+}
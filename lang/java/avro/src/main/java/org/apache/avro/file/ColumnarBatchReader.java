@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+/**
+ * Decodes the blocks of a data file into columns, one block at a time, without
+ * creating an object per datum. The vectors to decode into are built once from
+ * the file's schema, as a tree of {@link ColumnVector}s that each decode their
+ * part of a datum, and are reused for every block: a record schema gives a
+ * {@link ColumnVector.StructVector} with a vector per field.
+ *
+ * <pre>
+ * try (ColumnarBatchReader batches = new ColumnarBatchReader(new DataFileReader&lt;&gt;(file, new GenericDatumReader&lt;&gt;()))) {
+ *   while (batches.hasNext()) {
+ *     ColumnVector.StructVector batch = (ColumnVector.StructVector) batches.next();
+ *     ColumnVector.LongVector ids = (ColumnVector.LongVector) batch.getField("id");
+ *     ...
+ *   }
+ * }
+ * </pre>
+ *
+ * Datums are decoded with the file's schema, which must be supported by
+ * {@link ColumnVector}. The stream must be at the start of a block and is only
+ * used for its blocks.
+ */
+public class ColumnarBatchReader implements Closeable {
+  private final DataFileStream<?> stream;
+  private final ColumnVector root;
+  private BinaryDecoder decoder;
+
+  /**
+   * @param stream the file to read, closed with this reader
+   * @throws org.apache.avro.AvroRuntimeException if the schema of the file cannot
+   *                                              be decoded into columns
+   */
+  public ColumnarBatchReader(DataFileStream<?> stream) {
+    this.stream = stream;
+    this.root = ColumnVector.create(stream.getSchema());
+  }
+
+  /** The schema of the file. */
+  public Schema getSchema() {
+    return stream.getSchema();
+  }
+
+  /** True if there are more blocks. */
+  public boolean hasNext() {
+    return stream.hasNext();
+  }
+
+  /**
+   * Decode the next block, replacing the previous one in the vectors.
+   *
+   * @return the vector of the datums, with one value per datum of the block
+   * @throws NoSuchElementException if there are no more blocks
+   */
+  public ColumnVector next() throws IOException {
+    ByteBuffer block = stream.nextBlock(); // loads the block if hasNext wasn't called
+    long count = stream.getBlockCount();
+    if (count > Integer.MAX_VALUE) {
+      throw new IOException("Too many datums in a block: " + count);
+    }
+    decoder = DecoderFactory.get().binaryDecoder(block.array(), block.arrayOffset() + block.position(),
+        block.remaining(), decoder);
+    root.reset();
+    for (long i = 0; i < count; i++) {
+      root.read(decoder);
+    }
+    if (!decoder.isEnd()) {
+      throw new IOException("Block read partially, the data may be corrupt");
+    }
+    return root;
+  }
+
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+}
@@ -39,5 +39,15 @@ public class DataFileConstants {
   public static final String BZIP2_CODEC = "bzip2";
   public static final String XZ_CODEC = "xz";
   public static final String ZSTANDARD_CODEC = "zstandard";
+  public static final String LZ4_CODEC = "lz4";
+  /** Metadata holding the dictionary that every zstandard block is coded with. */
+  public static final String ZSTANDARD_DICTIONARY = "avro.zstandard.dictionary";
+  /** Metadata marking a file whose datums are in the order of its schema. */
+  public static final String SORTED = "avro.sorted";
+  /**
+   * Metadata naming the comma-separated fields that a sorted file is ordered by,
+   * when it is not ordered by its whole schema.
+   */
+  public static final String SORT_KEY = "avro.sort.key";
 
 }
@@ -17,14 +17,29 @@
  */
 package org.apache.avro.file;
 
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.avro.io.DatumReader;
 import static org.apache.avro.file.DataFileConstants.SYNC_SIZE;
@@ -38,7 +53,7 @@ import static org.apache.avro.file.DataFileConstants.MAGIC;
 public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D> {
   private SeekableInputStream sin;
   private long blockStart;
-  private int[] partialMatchTable;
+  private SyncMarkerSearch syncSearch;
 
   /** Open a reader for a file. */
   public static <D> FileReader<D> openReader(File file, DatumReader<D> reader) throws IOException {
@@ -188,56 +203,178 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
       return;
     }
 
-    if (this.partialMatchTable == null) {
-      this.partialMatchTable = computePartialMatchTable(getHeader().sync);
+    long found = syncSearch().next(sin, position, Long.MAX_VALUE);
+    // if no match set start to the end position
+    seek(found < 0 ? sin.length() : found);
+  }
+
+  /**
+   * Find the start of every block in a range of this file by scanning for
+   * synchronization markers, without decoding or decompressing any data. Unlike
+   * iteration, this also finds the blocks that follow a corrupt block. This does
+   * not move the position of this reader.
+   *
+   * @param start the position to scan from
+   * @param end   the position to scan to; markers starting before it are found
+   * @return positions that may be passed to {@link #seek(long)}, in file order
+   */
+  public long[] blockBoundaries(long start, long end) throws IOException {
+    long restore = sin.tell();
+    SyncMarkerSearch search = syncSearch();
+    long[] boundaries = new long[16];
+    int n = 0;
+    long length = sin.length();
+    try {
+      for (long found = search.next(sin, start, end); found >= 0
+          && found < length; found = search.next(sin, found, end)) {
+        if (n == boundaries.length) {
+          boundaries = Arrays.copyOf(boundaries, n * 2);
+        }
+        boundaries[n++] = found;
+      }
+    } finally {
+      sin.seek(restore);
     }
+    return Arrays.copyOf(boundaries, n);
+  }
 
-    final byte[] sync = getHeader().sync;
-    final InputStream in = vin.inputStream();
-    final int[] pm = this.partialMatchTable;
+  /**
+   * Read the last datum in this file. Only the end of the file is read, so with
+   * the first datum this gives the key range of a
+   * {@linkplain DataFileWriter#setSorted sorted} file cheaply. This moves the
+   * position of this reader; use {@link #seek(long)} or {@link #sync(long)} to
+   * continue reading afterwards.
+   *
+   * @param reuse an instance to reuse
+   * @return the last datum, or null if the file has none
+   */
+  public D readLast(D reuse) throws IOException {
+    ByteBuffer last = lastEncoded();
+    if (last == null) {
+      return null;
+    }
+    return getDatumReader().read(reuse,
+        DecoderFactory.get().binaryDecoder(last.array(), last.arrayOffset() + last.position(), last.remaining(), null));
+  }
 
-    // Search for the sequence of bytes in the stream using Knuth-Morris-Pratt
-    long i = 0L;
-    for (int b = in.read(), j = 0; b != -1; b = in.read(), i++) {
-      final byte cb = (byte) b;
-      while (j > 0 && sync[j] != cb) {
-        j = pm[j - 1];
-      }
-      if (sync[j] == cb) {
-        j++;
+  // the encoding of the last datum, or null if there is none
+  ByteBuffer lastEncoded() throws IOException {
+    long length = sin.length();
+    long[] blocks;
+    long from = length;
+    do {
+      from = Math.max(0, from - Math.max(DataFileConstants.DEFAULT_SYNC_INTERVAL, length - from));
+      blocks = blockBoundaries(from, length);
+    } while (blocks.length == 0 && from > 0);
+    BinaryDecoder in = null;
+    for (int i = blocks.length - 1; i >= 0; i--) {
+      seek(blocks[i]);
+      ByteBuffer last = null;
+      while (hasNext()) { // the last non-empty block
+        ByteBuffer data = nextBlock();
+        int end = data.arrayOffset() + data.limit();
+        in = DecoderFactory.get().binaryDecoder(data.array(), data.arrayOffset() + data.position(), data.remaining(),
+            in);
+        for (long n = getBlockCount(); n > 1; n--) {
+          GenericDatumReader.skip(getSchema(), in);
+        }
+        int start = end - in.inputStream().available();
+        last = ByteBuffer.wrap(Arrays.copyOfRange(data.array(), start, end)); // reading on reuses the block
       }
-      if (j == SYNC_SIZE) {
-        this.blockStart = position + i + 1L;
-        return;
+      if (last != null) {
+        return last;
       }
     }
-    // if no match set start to the end position
-    blockStart = sin.tell();
+    return null;
+  }
+
+  private SyncMarkerSearch syncSearch() {
+    if (syncSearch == null) {
+      syncSearch = new SyncMarkerSearch(getHeader().sync);
+    }
+    return syncSearch;
   }
 
   /**
-   * Compute that Knuth-Morris-Pratt partial match table.
-   *
-   * @param pattern The pattern being searched
-   * @return the pre-computed partial match table
+   * Find the records whose key field equals a key, decoding only the blocks whose
+   * Bloom filter in the index may contain the key. This moves the position of
+   * this reader; use {@link #seek(long)} or {@link #sync(long)} to continue
+   * reading sequentially afterwards.
    *
-   * @see <a href= "https://github.com/williamfiset/Algorithms">William Fiset
-   *      Algorithms</a>
+   * @param index an index written alongside this file, see
+   *              {@link DataFileWriter#setBloomFilter(java.io.OutputStream, double, int, String...)}
+   * @param field the name of an indexed field
+   * @param key   the key, in the representation of this reader's data model
+   * @return the matching records, in file order
    */
-  private int[] computePartialMatchTable(final byte[] pattern) {
-    final int[] pm = new int[pattern.length];
-    for (int i = 1, len = 0; i < pattern.length;) {
-      if (pattern[i] == pattern[len]) {
-        pm[i++] = ++len;
-      } else {
-        if (len > 0) {
-          len = pm[len - 1];
-        } else {
-          i++;
+  public List<D> lookup(BloomFilterIndex index, String field, Object key) throws IOException {
+    if (!Arrays.equals(index.getSync(), getHeader().sync)) {
+      throw new IOException("Bloom filter index was not written for this file");
+    }
+    Schema.Field keyField = getSchema().getField(field);
+    if (keyField == null) {
+      throw new AvroRuntimeException("No such field: " + field);
+    }
+    DatumReader<D> datumReader = getDatumReader();
+    GenericData data = (datumReader instanceof GenericDatumReader) ? ((GenericDatumReader<D>) datumReader).getData()
+        : GenericData.get();
+    @SuppressWarnings("unchecked")
+    DatumWriter<Object> keyWriter = data.createDatumWriter(keyField.schema());
+    ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(encoded, null);
+    keyWriter.write(key, encoder);
+
+    // read all the candidate blocks at once, so that remote inputs can batch them
+    long[] candidates = index.candidateBlocks(field, encoded.toByteArray());
+    long length = sin.length();
+    List<FileRange> ranges = new ArrayList<>(candidates.length);
+    for (long position : candidates) {
+      long end = Math.min(index.blockEnd(position, length), position + Integer.MAX_VALUE);
+      ranges.add(new FileRange(position, (int) (end - position)));
+    }
+    sin.readVectored(ranges);
+
+    List<D> result = new ArrayList<>();
+    for (FileRange range : ranges) {
+      if (!loadBlock(await(range))) {
+        continue;
+      }
+      for (long i = getBlockCount(); i > 0; i--) {
+        D datum = next();
+        Schema recordSchema = (datum instanceof IndexedRecord) ? ((IndexedRecord) datum).getSchema() : getSchema();
+        Schema.Field readField = recordSchema.getField(field);
+        if (readField == null) {
+          throw new AvroRuntimeException("Field " + field + " is not read by this reader");
+        }
+        if (data.compare(data.getField(datum, field, readField.pos()), key, keyField.schema()) == 0) {
+          result.add(datum);
         }
       }
     }
-    return pm;
+    return result;
+  }
+
+  /**
+   * Share decompressed blocks with other readers through a cache, or stop if
+   * null. Blocks are looked up as this reader reaches them.
+   *
+   * @return this reader
+   */
+  public DataFileReader<D> setBlockCache(BlockCache cache) {
+    this.blockCache = cache;
+    return this;
+  }
+
+  private static ByteBuffer await(FileRange range) throws IOException {
+    try {
+      return range.getData().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading " + range);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+    }
   }
 
   @Override
@@ -245,6 +382,11 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
     blockStart = sin.tell() - vin.inputStream().available();
   }
 
+  @Override
+  long blockPosition() throws IOException {
+    return sin.tell() - vin.inputStream().available();
+  }
+
   /** Return the last synchronization point before our current position. */
   public long previousSync() {
     return blockStart;
@@ -326,6 +468,11 @@ public class DataFileReader<D> extends DataFileStream<D> implements FileReader<D
       super.close();
     }
 
+    @Override
+    public void readVectored(List<FileRange> ranges) throws IOException {
+      in.readVectored(ranges);
+    }
+
     @Override
     public int available() throws IOException {
       long remaining = (in.length() - in.tell());
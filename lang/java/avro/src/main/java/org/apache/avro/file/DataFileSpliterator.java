@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.DatumReader;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * A {@link Spliterator} over the datums of a seekable data file. The file is
+ * split by byte range, and each split realigns on the first synchronization
+ * marker at or after its start, the same way Hadoop input splits do: a block
+ * belongs to the split containing the sync marker that precedes it. Every split
+ * opens its own input and {@link DataFileReader}, so splits can be consumed
+ * concurrently by a parallel {@link Stream}.
+ *
+ * Inputs are opened lazily, when a split is first advanced, and closed when it
+ * is exhausted. Streams returned by this class should be closed (for example
+ * with try-with-resources) so that splits abandoned by short-circuiting
+ * operations are closed too.
+ */
+public class DataFileSpliterator<D> implements Spliterator<D> {
+
+  /** Splits smaller than this are not split further. */
+  public static final long DEFAULT_MIN_SPLIT_SIZE = 1 << 20;
+
+  /** Opens a new, independent input on the same file. */
+  @FunctionalInterface
+  public interface InputOpener {
+    SeekableInput open() throws IOException;
+  }
+
+  /** State shared by all the splits of one file. */
+  private static final class Source<D> {
+    private final InputOpener opener;
+    private final Supplier<DatumReader<D>> readers;
+    private final DataFileStream.Header header;
+    private final long minSplitSize;
+    private final Queue<DataFileReader<D>> open = new ConcurrentLinkedQueue<>();
+
+    private Source(InputOpener opener, Supplier<DatumReader<D>> readers, DataFileStream.Header header,
+        long minSplitSize) {
+      this.opener = opener;
+      this.readers = readers;
+      this.header = header;
+      this.minSplitSize = minSplitSize;
+    }
+
+    private void closeAll() {
+      DataFileReader<D> reader;
+      while ((reader = open.poll()) != null) {
+        IOUtils.closeQuietly(reader);
+      }
+    }
+  }
+
+  private final Source<D> source;
+  private long start;
+  private final long end;
+  private DataFileReader<D> reader;
+  private boolean done;
+
+  private DataFileSpliterator(Source<D> source, long start, long end) {
+    this.source = source;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Create a spliterator over a whole file.
+   *
+   * @param opener       opens a new input on the file, once for the header and
+   *                     once per split
+   * @param readers      supplies a new datum reader per split
+   * @param minSplitSize ranges smaller than twice this many bytes are not split
+   */
+  public static <D> DataFileSpliterator<D> create(InputOpener opener, Supplier<DatumReader<D>> readers,
+      long minSplitSize) throws IOException {
+    if (minSplitSize < 1) {
+      throw new IllegalArgumentException("Invalid minimum split size: " + minSplitSize);
+    }
+    try (SeekableInput in = opener.open()) {
+      DataFileReader<D> headerReader = new DataFileReader<>(in, readers.get());
+      Source<D> source = new Source<>(opener, readers, headerReader.getHeader(), minSplitSize);
+      return new DataFileSpliterator<>(source, 0, in.length());
+    }
+  }
+
+  /** Stream the datums of a file, sequentially or in parallel. */
+  public static <D> Stream<D> stream(File file, Supplier<DatumReader<D>> readers, boolean parallel) throws IOException {
+    return stream(() -> new SeekableFileInput(file), readers, DEFAULT_MIN_SPLIT_SIZE, parallel);
+  }
+
+  /** Stream the datums of a file, sequentially or in parallel. */
+  public static <D> Stream<D> stream(InputOpener opener, Supplier<DatumReader<D>> readers, long minSplitSize,
+      boolean parallel) throws IOException {
+    DataFileSpliterator<D> spliterator = create(opener, readers, minSplitSize);
+    return StreamSupport.stream(spliterator, parallel).onClose(spliterator.source::closeAll);
+  }
+
+  private boolean ensureOpen() {
+    if (reader == null && !done) {
+      SeekableInput in = null;
+      try {
+        in = source.opener.open();
+        in.seek(start);
+        reader = DataFileReader.openReader(in, source.readers.get(), source.header, true);
+        source.open.add(reader);
+      } catch (IOException e) {
+        IOUtils.closeQuietly(in);
+        throw new AvroRuntimeException(e);
+      }
+    }
+    return !done;
+  }
+
+  private void finish() {
+    done = true;
+    if (reader != null) {
+      source.open.remove(reader);
+      IOUtils.closeQuietly(reader);
+      reader = null;
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super D> action) {
+    if (!ensureOpen()) {
+      return false;
+    }
+    try {
+      if (!reader.pastSync(end) && reader.hasNext()) {
+        action.accept(reader.next());
+        return true;
+      }
+    } catch (IOException e) {
+      finish();
+      throw new AvroRuntimeException(e);
+    }
+    finish();
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super D> action) {
+    if (!ensureOpen()) {
+      return;
+    }
+    try {
+      while (!reader.pastSync(end) && reader.hasNext()) {
+        action.accept(reader.next());
+      }
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    } finally {
+      finish();
+    }
+  }
+
+  /**
+   * Split off the first half of the remaining byte range, unless this split has
+   * started reading or is too small.
+   */
+  @Override
+  public Spliterator<D> trySplit() {
+    if (reader != null || done || end - start < 2 * source.minSplitSize) {
+      return null;
+    }
+    long mid = start + (end - start) / 2;
+    DataFileSpliterator<D> prefix = new DataFileSpliterator<>(source, start, mid);
+    start = mid;
+    return prefix;
+  }
+
+  /** Estimated in bytes of the file, not in datums. */
+  @Override
+  public long estimateSize() {
+    return done ? 0 : end - start;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED;
+  }
+}
@@ -21,6 +21,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Closeable;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -31,6 +32,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.InvalidAvroMagicException;
@@ -79,6 +84,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   long blockRemaining; // # entries remaining in block
   byte[] syncBuffer = new byte[DataFileConstants.SYNC_SIZE];
   private Codec codec;
+  BlockCache blockCache;
 
   /**
    * Construct a reader for an input stream. For file-based input, use
@@ -153,12 +159,12 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
   }
 
   Codec resolveCodec() {
-    String codecStr = getMetaString(DataFileConstants.CODEC);
-    if (codecStr != null) {
-      return CodecFactory.fromString(codecStr).createInstance();
-    } else {
-      return CodecFactory.nullCodec().createInstance();
-    }
+    return resolveCodecFactory().createInstance();
+  }
+
+  CodecFactory resolveCodecFactory() {
+    return CodecFactory.fromMeta(getMetaString(DataFileConstants.CODEC),
+        getMeta(DataFileConstants.ZSTANDARD_DICTIONARY));
   }
 
   /**
@@ -168,6 +174,11 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return header;
   }
 
+  /** The reader used to decode datums from this file. */
+  DatumReader<D> getDatumReader() {
+    return reader;
+  }
+
   /** Return the schema used in this file. */
   public Schema getSchema() {
     return header.schema;
@@ -207,6 +218,22 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return this;
   }
 
+  /**
+   * Returns a sequential {@link Stream} over the entries in this file. Like
+   * {@link #iterator()}, the stream shares this file's position. Closing the
+   * stream closes this file. For parallel streams over seekable files, see
+   * {@link DataFileSpliterator}.
+   */
+  public Stream<D> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new AvroRuntimeException(e);
+      }
+    });
+  }
+
   private DataBlock block = null;
 
   /** True if more entries remain in this file. */
@@ -221,9 +248,14 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
             throw new IOException("Block read partially, the data may be corrupt");
           }
         }
+        long position = (blockCache != null && !availableBlock && !(codec instanceof NullCodec)) ? blockPosition() : -1;
         if (hasNextBlock()) {
           block = nextRawBlock(block);
-          block.decompressUsing(codec);
+          if (position >= 0) {
+            block.decompressUsing(codec, blockCache, header.sync, position);
+          } else {
+            block.decompressUsing(codec);
+          }
           blockBuffer = block.getAsByteBuffer();
           datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
               blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
@@ -267,7 +299,11 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return result;
   }
 
-  /** Expert: Return the next block in the file, as binary-encoded data. */
+  /**
+   * Expert: Return the next block in the file, as binary-encoded data. The buffer
+   * may be reused for later blocks, so it is only valid until the next block is
+   * read.
+   */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
@@ -278,6 +314,47 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return blockBuffer;
   }
 
+  /**
+   * Make the block at the start of a buffer the current block, as if it had just
+   * been read from this stream, and return true unless it is empty.
+   */
+  boolean loadBlock(ByteBuffer raw) throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(raw.array(), raw.arrayOffset() + raw.position(),
+        raw.remaining(), null);
+    long count = in.readLong();
+    long size = in.readLong();
+    if (count < 0 || size > Integer.MAX_VALUE || size < 0) {
+      throw new IOException("Block size invalid or too large for this " + "implementation: " + size);
+    }
+    int start = raw.position() + raw.remaining() - in.inputStream().available();
+    if (start + size + DataFileConstants.SYNC_SIZE > raw.limit()) {
+      throw new EOFException("Block is truncated");
+    }
+    ByteBuffer data = raw.duplicate();
+    ((Buffer) data).limit(start + (int) size);
+    ((Buffer) data).position(start);
+    ByteBuffer sync = raw.duplicate();
+    ((Buffer) sync).position(start + (int) size);
+    sync.get(syncBuffer);
+    if (!Arrays.equals(syncBuffer, header.sync)) {
+      throw new IOException("Invalid sync!");
+    }
+    if (block == null) {
+      block = new DataBlock(data, count);
+    } else {
+      block.reset(data, count);
+    }
+    block.decompressUsing(codec);
+    blockBuffer = block.getAsByteBuffer();
+    datumIn = DecoderFactory.get().binaryDecoder(blockBuffer.array(),
+        blockBuffer.arrayOffset() + blockBuffer.position(), blockBuffer.remaining(), datumIn);
+    availableBlock = false;
+    blockSize = size;
+    blockCount = count;
+    blockRemaining = count;
+    return count != 0;
+  }
+
   /** Expert: Return the count of items in the current block. */
   public long getBlockCount() {
     return blockCount;
@@ -292,6 +369,11 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     // nothing for the stream impl
   }
 
+  /** The position of the next block, if known, else -1. */
+  long blockPosition() throws IOException {
+    return -1;
+  }
+
   boolean hasNextBlock() {
     try {
       if (availableBlock)
@@ -317,11 +399,10 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
+    if (reuse == null) {
       reuse = new DataBlock(blockRemaining, (int) blockSize);
     } else {
-      reuse.numEntries = blockRemaining;
-      reuse.blockSize = (int) blockSize;
+      reuse.resetRaw(blockRemaining, (int) blockSize);
     }
     // throws if it can't read the size requested
     vin.readFixed(reuse.data, 0, reuse.blockSize);
@@ -350,20 +431,41 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     private int blockSize;
     private int offset = 0;
     private boolean flushOnWrite = true;
+    // raw bytes read from a file, and codec outputs, kept for the next block
+    private byte[] raw;
+    private ByteBuffer decompressed;
+    private ByteBuffer compressed;
 
     private DataBlock(long numEntries, int blockSize) {
-      this.data = new byte[blockSize];
+      this.raw = new byte[blockSize];
+      this.data = raw;
       this.numEntries = numEntries;
       this.blockSize = blockSize;
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
+      reset(block, numEntries);
+    }
+
+    /** Make this block hold the given uncompressed data. */
+    void reset(ByteBuffer block, long numEntries) {
       this.data = block.array();
       this.blockSize = block.remaining();
       this.offset = block.arrayOffset() + block.position();
       this.numEntries = numEntries;
     }
 
+    /** Make this block ready to have raw data of the given size read into it. */
+    private void resetRaw(long numEntries, int blockSize) {
+      if (raw == null || raw.length < blockSize) {
+        raw = new byte[blockSize];
+      }
+      this.data = raw;
+      this.offset = 0;
+      this.numEntries = numEntries;
+      this.blockSize = blockSize;
+    }
+
     byte[] getData() {
       return data;
     }
@@ -389,15 +491,41 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+      decompressed = apply(c, false, decompressed);
+    }
+
+    /** Decompress, or copy the decompressed block from a cache. */
+    void decompressUsing(Codec c, BlockCache cache, byte[] sync, long position) throws IOException {
+      BlockCache.Key key = new BlockCache.Key(sync, position, getAsByteBuffer());
+      ByteBuffer cached = cache.get(key, (decompressed != null && decompressed.array() != data) ? decompressed : null);
+      if (cached != null) {
+        decompressed = cached;
+        data = cached.array();
+        offset = 0;
+        blockSize = cached.remaining();
+      } else {
+        decompressUsing(c);
+        cache.put(key, getAsByteBuffer());
+      }
     }
 
     void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
+      compressed = apply(c, true, compressed);
+    }
+
+    // run a codec over this block, reusing the output of its previous run when
+    // that doesn't share the input's array; returns the output to reuse next
+    private ByteBuffer apply(Codec c, boolean compress, ByteBuffer reuse) throws IOException {
+      if (reuse != null && reuse.array() == data) {
+        reuse = null;
+      }
+      ByteBuffer input = getAsByteBuffer();
+      ByteBuffer result = compress ? c.compress(input, reuse) : c.decompress(input, reuse);
+      boolean sharesInput = result.array() == data;
       data = result.array();
+      offset = result.arrayOffset() + result.position();
       blockSize = result.remaining();
+      return sharesInput ? reuse : result;
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
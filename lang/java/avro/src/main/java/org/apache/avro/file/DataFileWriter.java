@@ -21,25 +21,49 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
@@ -69,15 +93,43 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private NonCopyingByteArrayOutputStream buffer;
   private BinaryEncoder bufOut;
+  private DataBlock block; // reused, with its compression buffer
 
   private byte[] sync; // 16 random bytes
   private int syncInterval = DataFileConstants.DEFAULT_SYNC_INTERVAL;
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
 
   private boolean flushOnEveryBlock = true;
 
+  private AdaptiveCompression adaptive;
+  private OutputStream adaptiveLogOut;
+
+  private GroupCommit groupCommit;
+
+  private long maxBlockRecords = Long.MAX_VALUE;
+  private static final long FLUSH_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private long maxBlockAgeNanos;
+  private BlockFlushScheduler flushScheduler;
+  private ReentrantLock flushLock; // null until a scheduler may flush blocks
+  private long blocksWritten; // identifies the current block to its scheduled flush
+  private ScheduledFuture<?> scheduledFlush;
+  private Throwable scheduledFlushError;
+
+  private boolean sorted;
+  private String[] sortKey; // fields ordered by, or null for the whole schema
+  private Schema sortSchema; // the schema datums are compared with
+  private byte[] lastDatum = new byte[0]; // encoding of the last datum appended
+  private int lastDatumLength = -1;
+
+  private OutputStream bloomOut;
+  private double bloomFpp;
+  private int bloomMaxBytes;
+  private String[] bloomFields;
+  private BloomFilterIndex.Writer bloomIndex;
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -99,8 +151,16 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
+    this.adaptive = null;
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
+    byte[] dictionary = (codec instanceof ZstandardCodec) ? ((ZstandardCodec) codec).getDictionary() : null;
+    if (dictionary != null) {
+      setMetaInternal(DataFileConstants.ZSTANDARD_DICTIONARY, dictionary);
+    } else {
+      meta.remove(DataFileConstants.ZSTANDARD_DICTIONARY);
+    }
     return this;
   }
 
@@ -129,6 +189,70 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this;
   }
 
+  /**
+   * Configures this writer to choose its codec level and block size as it writes,
+   * in place of {@link #setCodec(CodecFactory)} and
+   * {@link #setSyncInterval(int)}. The goal and bounds of {@code adaptive} are
+   * stored in the file's metadata. May not be set after writes have begun.
+   *
+   * {@code adaptive} starts when the file is created or appended to, after which
+   * its {@linkplain AdaptiveCompression#setBlockSizes block sizes} can't change,
+   * so configure it before then.
+   */
+  public DataFileWriter<D> setAdaptiveCompression(AdaptiveCompression adaptive) {
+    return setAdaptiveCompression(adaptive, null);
+  }
+
+  /**
+   * Like {@link #setAdaptiveCompression(AdaptiveCompression)}, and also writes
+   * every choice of level and block size to {@code logOut}, which is closed with
+   * this writer. The log can later be read with
+   * {@link AdaptiveCompression#readDecisions(java.io.InputStream)}.
+   */
+  public DataFileWriter<D> setAdaptiveCompression(AdaptiveCompression adaptive, OutputStream logOut) {
+    assertNotOpen();
+    this.adaptiveLogOut = logOut;
+    this.adaptive = adaptive;
+    return this;
+  }
+
+  // pick the starting codec level and block size, once the file is opened
+  private void startAdaptive() {
+    adaptive.start();
+    this.codec = adaptive.codec();
+    this.syncInterval = adaptive.getBlockSize();
+  }
+
+  /**
+   * Configures this writer to build a {@link BloomFilterIndex} over one or more
+   * key fields of its records while writing. A Bloom filter is computed for each
+   * key field of each block, sized for the number of records actually in the
+   * block, and written to {@code indexOut} when the block is written. The index
+   * can later be read with {@link BloomFilterIndex#read(java.io.InputStream)} and
+   * passed to {@link DataFileReader#lookup(BloomFilterIndex, String, Object)}.
+   *
+   * The data file itself is unchanged. {@code indexOut} is closed when this
+   * writer is closed. May not be set after writes have begun.
+   *
+   * @param indexOut  where to write the index
+   * @param fpp       the desired false-positive probability of each filter
+   * @param maxBytes  the maximum size in bytes of the filter for one field of one
+   *                  block; large blocks exceeding it see a higher false-positive
+   *                  rate
+   * @param keyFields the names of top-level record fields to index
+   */
+  public DataFileWriter<D> setBloomFilter(OutputStream indexOut, double fpp, int maxBytes, String... keyFields) {
+    assertNotOpen();
+    if (keyFields.length == 0) {
+      throw new IllegalArgumentException("At least one key field is required");
+    }
+    this.bloomOut = indexOut;
+    this.bloomFpp = fpp;
+    this.bloomMaxBytes = maxBytes;
+    this.bloomFields = keyFields.clone();
+    return this;
+  }
+
   /** Open a new file for data matching a schema with a random sync. */
   public DataFileWriter<D> create(Schema schema, File file) throws IOException {
     SyncableFileOutputStream sfos = new SyncableFileOutputStream(file);
@@ -151,6 +275,25 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
     this.schema = schema;
     setMetaInternal(DataFileConstants.SCHEMA, schema.toString());
+    this.lastDatumLength = -1;
+    meta.remove(DataFileConstants.SORT_KEY);
+    if (sorted) {
+      setMetaInternal(DataFileConstants.SORTED, "true");
+      if (sortKey != null) {
+        setMetaInternal(DataFileConstants.SORT_KEY, String.join(",", sortKey));
+      }
+      this.sortSchema = sortSchema(schema, sortKey);
+    } else {
+      meta.remove(DataFileConstants.SORTED);
+    }
+    if (adaptive != null) {
+      startAdaptive();
+      setMetaInternal(DataFileConstants.CODEC, codec.getName());
+      meta.remove(DataFileConstants.ZSTANDARD_DICTIONARY);
+      for (Map.Entry<String, String> entry : adaptive.getMeta().entrySet()) {
+        setMetaInternal(entry.getKey(), entry.getValue());
+      }
+    }
     if (sync == null) {
       this.sync = generateSync();
     } else if (sync.length == 16) {
@@ -198,6 +341,165 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     return this.flushOnEveryBlock;
   }
 
+  /**
+   * Sets the maximum number of datums in a block. A block is written once it
+   * holds this many datums, even if smaller than the sync interval, bounding the
+   * work a reader must do to reach any datum. 0, the default, means no limit.
+   *
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setMaxBlockRecords(long maxBlockRecords) {
+    if (maxBlockRecords < 0) {
+      throw new IllegalArgumentException("Invalid maxBlockRecords: " + maxBlockRecords);
+    }
+    this.maxBlockRecords = (maxBlockRecords == 0) ? Long.MAX_VALUE : maxBlockRecords;
+    return this;
+  }
+
+  /**
+   * Sets the maximum age of a block: a block is written and flushed by the
+   * scheduler once this long has passed since its first datum was appended,
+   * however few datums it holds. This bounds the time datums wait in memory when
+   * they are appended slowly, without a {@linkplain #flush()} after each one.
+   * Since blocks are then flushed from the scheduler's thread, the methods of
+   * this writer take a lock once this is set; writers without a maximum age take
+   * none. The scheduler does not wait for a writer that holds its lock, but tries
+   * again shortly. An error from a scheduled flush is thrown by the next call
+   * that appends, syncs or flushes.
+   *
+   * @param maxAge    the maximum age, or 0 for no limit, the default
+   * @param unit      the unit of {@code maxAge}
+   * @param scheduler the scheduler that flushes blocks, shared by any number of
+   *                  writers
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setMaxBlockAge(long maxAge, TimeUnit unit, BlockFlushScheduler scheduler) {
+    if (maxAge < 0) {
+      throw new IllegalArgumentException("Invalid maxAge: " + maxAge);
+    }
+    if (maxAge > 0 && scheduler == null) {
+      throw new IllegalArgumentException("No scheduler for maxAge: " + maxAge);
+    }
+    if (maxAge > 0 && flushLock == null) {
+      flushLock = new ReentrantLock(); // kept, as flushes may still be scheduled
+    }
+    ReentrantLock l = lock();
+    try {
+      this.maxBlockAgeNanos = unit.toNanos(maxAge);
+      this.flushScheduler = (maxAge == 0) ? null : scheduler;
+      cancelScheduledFlush();
+      if (flushScheduler != null && blockCount > 0) {
+        scheduleFlush();
+      }
+      return this;
+    } finally {
+      unlock(l);
+    }
+  }
+
+  // lock out the scheduler, if there is one
+  private ReentrantLock lock() {
+    ReentrantLock l = flushLock;
+    if (l != null) {
+      l.lock();
+    }
+    return l;
+  }
+
+  private static void unlock(ReentrantLock l) {
+    if (l != null) {
+      l.unlock();
+    }
+  }
+
+  /**
+   * Makes {@linkplain #fSync()} sync the file through a coordinator shared with
+   * other writers, which batches the syncs of all of them. Null, the default,
+   * makes {@linkplain #fSync()} sync the file itself.
+   *
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setGroupCommit(GroupCommit groupCommit) {
+    this.groupCommit = groupCommit;
+    return this;
+  }
+
+  /**
+   * Configures this writer to check that datums are appended in the order defined
+   * by the schema, as compared by
+   * {@link org.apache.avro.io.BinaryData#compare(byte[], int, byte[], int, Schema)},
+   * and to mark the file as sorted in its metadata. Appending a datum that sorts
+   * before the previous one fails with an {@link AppendWriteException}, leaving
+   * the file unchanged. Writers appending to a file marked sorted check its order
+   * without this being set. May not be set after writes have begun.
+   *
+   * The file's metadata does not hold the range of its datums, since it is
+   * written before them: the first datum is the least, and
+   * {@link DataFileReader#readLast(Object)} finds the greatest.
+   *
+   * @return this DataFileWriter
+   * @see SortedMergeReader
+   */
+  public DataFileWriter<D> setSorted(boolean sorted) {
+    assertNotOpen();
+    this.sorted = sorted;
+    this.sortKey = null;
+    return this;
+  }
+
+  /**
+   * Like {@link #setSorted(boolean)}, but datums are ordered by some fields of a
+   * record schema rather than by the whole schema. The fields are compared in the
+   * order they appear in the schema, each in its own
+   * {@linkplain Schema.Field#order() order}, and the other fields are ignored.
+   * The key is recorded in the file's metadata, so that appending writers and
+   * {@link SortedMergeReader} use it too.
+   *
+   * @param keyFields the names of the fields to order by
+   * @return this DataFileWriter
+   */
+  public DataFileWriter<D> setSorted(String... keyFields) {
+    assertNotOpen();
+    if (keyFields.length == 0) {
+      throw new IllegalArgumentException("No sort key fields");
+    }
+    this.sorted = true;
+    this.sortKey = keyFields.clone();
+    return this;
+  }
+
+  /**
+   * The schema that datums of a sorted file are compared with: the schema, with
+   * fields not in the key ignored.
+   *
+   * @param key the fields ordered by, or null for the whole schema
+   */
+  static Schema sortSchema(Schema schema, String[] key) {
+    if (key == null) {
+      return schema;
+    }
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new AvroRuntimeException("A sort key requires a record schema: " + schema);
+    }
+    List<String> keyFields = Arrays.asList(key);
+    for (String name : keyFields) {
+      if (schema.getField(name) == null) {
+        throw new AvroRuntimeException("No such field for sort key: " + name);
+      }
+    }
+    List<Schema.Field> fields = new ArrayList<>(schema.getFields().size());
+    for (Schema.Field f : schema.getFields()) {
+      Schema.Field.Order order = keyFields.contains(f.name()) ? f.order() : Schema.Field.Order.IGNORE;
+      fields.add(new Schema.Field(f.name(), f.schema(), f.doc(), f.defaultVal(), order));
+    }
+    return Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), schema.isError(), fields);
+  }
+
+  /** The fields a sorted file's metadata says it is ordered by, or null. */
+  static String[] sortKey(String keyMeta) {
+    return keyMeta == null ? null : keyMeta.split(",");
+  }
+
   /** Open a writer appending to an existing file. */
   public DataFileWriter<D> appendTo(File file) throws IOException {
     try (SeekableInput input = new SeekableFileInput(file)) {
@@ -221,12 +523,32 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     this.schema = reader.getSchema();
     this.sync = reader.getHeader().sync;
     this.meta.putAll(reader.getHeader().meta);
-    byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
-    if (codecBytes != null) {
-      String strCodec = new String(codecBytes, StandardCharsets.UTF_8);
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
-    } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+    this.codecFactory = reader.resolveCodecFactory();
+    this.codec = codecFactory.createInstance();
+    boolean fileSorted = meta.containsKey(DataFileConstants.SORTED);
+    if (sorted && !fileSorted) {
+      throw new AvroRuntimeException("Cannot append sorted data to a file not marked sorted");
+    }
+    String[] fileKey = sortKey(reader.getMetaString(DataFileConstants.SORT_KEY));
+    if (sortKey != null && !Arrays.equals(sortKey, fileKey)) {
+      throw new AvroRuntimeException("Cannot append data sorted by " + Arrays.toString(sortKey)
+          + " to a file sorted by " + (fileKey == null ? "its schema" : Arrays.toString(fileKey)));
+    }
+    this.sorted = fileSorted;
+    this.sortKey = fileKey;
+    if (sorted) {
+      this.sortSchema = sortSchema(schema, sortKey);
+      ByteBuffer last = reader.lastEncoded();
+      if (last != null) {
+        rememberLast(last.array(), last.arrayOffset() + last.position(), last.remaining());
+      }
+    }
+    if (adaptive != null) {
+      Codec fileCodec = codec;
+      startAdaptive();
+      if (!codec.equals(fileCodec)) {
+        throw new AvroRuntimeException("Adaptive codec " + codec + " does not match file codec " + fileCodec);
+      }
     }
 
     init(out);
@@ -243,7 +565,16 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     buffer = new NonCopyingByteArrayOutputStream(Math.min((int) (syncInterval * 1.25), Integer.MAX_VALUE / 2 - 1));
     this.bufOut = efactory.directBinaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
+    }
+    if (bloomOut != null) {
+      GenericData data = (dout instanceof GenericDatumWriter) ? ((GenericDatumWriter<D>) dout).getData()
+          : GenericData.get();
+      this.bloomIndex = new BloomFilterIndex.Writer(bloomOut, schema, data, bloomFpp, bloomMaxBytes, bloomFields, sync);
+    }
+    if (adaptiveLogOut != null) {
+      adaptive.openLog(adaptiveLogOut, sync);
     }
     this.isOpen = true;
   }
@@ -308,16 +639,28 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * @see AppendWriteException
    */
   public void append(D datum) throws IOException {
-    assertOpen();
-    int usedBuffer = bufferInUse();
+    ReentrantLock l = lock();
     try {
-      dout.write(datum, bufOut);
-    } catch (IOException | RuntimeException e) {
-      resetBufferTo(usedBuffer);
-      throw new AppendWriteException(e);
+      assertOpen();
+      checkScheduledFlush();
+      int usedBuffer = bufferInUse();
+      try {
+        dout.write(datum, bufOut);
+        if (sorted) {
+          checkOrder(usedBuffer);
+        }
+      } catch (IOException | RuntimeException e) {
+        resetBufferTo(usedBuffer);
+        throw new AppendWriteException(e);
+      }
+      blockCount++;
+      if (bloomIndex != null) {
+        bloomIndex.add(datum);
+      }
+      writeIfBlockFull();
+    } finally {
+      unlock(l);
     }
-    blockCount++;
-    writeIfBlockFull();
   }
 
   // if there is an error encoding, flush the encoder and then
@@ -336,10 +679,62 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * non-conforming data may result in an unreadable file.
    */
   public void appendEncoded(ByteBuffer datum) throws IOException {
-    assertOpen();
-    bufOut.writeFixed(datum);
-    blockCount++;
-    writeIfBlockFull();
+    ReentrantLock l = lock();
+    try {
+      assertOpen();
+      checkScheduledFlush();
+      int usedBuffer = bufferInUse();
+      bufOut.writeFixed(datum);
+      if (sorted) {
+        try {
+          checkOrder(usedBuffer);
+        } catch (RuntimeException e) {
+          resetBufferTo(usedBuffer);
+          throw new AppendWriteException(e);
+        }
+      }
+      blockCount++;
+      if (bloomIndex != null) {
+        bloomIndex.markUnfiltered();
+      }
+      writeIfBlockFull();
+    } finally {
+      unlock(l);
+    }
+  }
+
+  // check that the datum encoded from start in the buffer follows the last one
+  private void checkOrder(int start) throws IOException {
+    bufOut.flush();
+    byte[] data = buffer.asByteBuffer().array();
+    int end = buffer.size();
+    if (lastDatumLength >= 0 && BinaryData.compare(lastDatum, 0, data, start, sortSchema) > 0) {
+      throw new AvroRuntimeException("Datum is out of order for a sorted file");
+    }
+    rememberLast(data, start, end - start);
+  }
+
+  private void rememberLast(byte[] data, int start, int length) {
+    if (lastDatum.length < length) {
+      lastDatum = new byte[Math.max(length, lastDatum.length * 2)];
+    }
+    System.arraycopy(data, start, lastDatum, 0, length);
+    lastDatumLength = length;
+  }
+
+  // append the datums of a file one at a time, checking their order
+  private void appendSortedFrom(DataFileStream<D> otherFile) throws IOException {
+    BinaryDecoder in = null;
+    while (otherFile.hasNext()) {
+      ByteBuffer data = otherFile.nextBlock();
+      int end = data.arrayOffset() + data.limit();
+      in = DecoderFactory.get().binaryDecoder(data.array(), data.arrayOffset() + data.position(), data.remaining(), in);
+      for (long i = otherFile.getBlockCount(); i > 0; i--) {
+        int start = end - in.inputStream().available();
+        GenericDatumReader.skip(schema, in);
+        appendEncoded(ByteBuffer.wrap(data.array(), start, end - in.inputStream().available() - start));
+      }
+    }
   }
 
   private int bufferInUse() {
@@ -347,8 +742,61 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   }
 
   private void writeIfBlockFull() throws IOException {
-    if (bufferInUse() >= syncInterval)
+    if (bufferInUse() >= syncInterval || blockCount >= maxBlockRecords)
       writeBlock();
+    else if (blockCount == 1 && flushScheduler != null)
+      scheduleFlush();
+  }
+
+  private void scheduleFlush() {
+    long current = blocksWritten;
+    BlockFlushScheduler scheduler = flushScheduler;
+    try {
+      scheduledFlush = scheduler.schedule(() -> flushAged(current, scheduler), maxBlockAgeNanos);
+    } catch (RejectedExecutionException e) {
+      // the scheduler was closed, so blocks are only written when full
+    }
+  }
+
+  private void cancelScheduledFlush() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+  }
+
+  // run by the scheduler, once the block started after the given number of
+  // blocks has reached its maximum age
+  private void flushAged(long block, BlockFlushScheduler scheduler) {
+    if (!flushLock.tryLock()) {
+      // busy writers are not waited for, so other writers' flushes are not delayed
+      try {
+        scheduler.schedule(() -> flushAged(block, scheduler), FLUSH_RETRY_NANOS);
+      } catch (RejectedExecutionException e) {
+        // the scheduler was closed
+      }
+      return;
+    }
+    try {
+      if (isOpen && block == blocksWritten && blockCount > 0 && scheduledFlushError == null) {
+        try {
+          flush();
+          scheduler.flushed();
+        } catch (Throwable e) {
+          scheduledFlushError = e;
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  private void checkScheduledFlush() throws IOException {
+    Throwable e = scheduledFlushError;
+    if (e != null) {
+      scheduledFlushError = null;
+      throw new IOException("Scheduled block flush failed", e);
+    }
   }
 
   /**
@@ -365,50 +813,259 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * at compression level 7. If <i>recompress</i> is false, blocks will be copied
    * without changing the compression level. If true, they will be converted to
    * the new compression level.
+   * <p/>
+   * A {@linkplain #setSorted sorted} writer appends the datums of otherFile one
+   * at a time, as encoded, to check their order.
    * 
    * @param otherFile
    * @param recompress
    * @throws IOException
    */
   public void appendAllFrom(DataFileStream<D> otherFile, boolean recompress) throws IOException {
-    assertOpen();
-    // make sure other file has same schema
-    Schema otherSchema = otherFile.getSchema();
-    if (!this.schema.equals(otherSchema)) {
-      throw new IOException("Schema from file " + otherFile + " does not match");
-    }
-    // flush anything written so far
-    writeBlock();
-    Codec otherCodec = otherFile.resolveCodec();
-    DataBlock nextBlockRaw = null;
-    if (codec.equals(otherCodec) && !recompress) {
-      // copy raw bytes
-      while (otherFile.hasNextBlock()) {
-        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.writeBlockTo(vout, sync);
+    ReentrantLock l = lock();
+    try {
+      assertOpen();
+      // make sure other file has same schema
+      Schema otherSchema = otherFile.getSchema();
+      if (!this.schema.equals(otherSchema)) {
+        throw new IOException("Schema from file " + otherFile + " does not match");
       }
-    } else {
-      while (otherFile.hasNextBlock()) {
-        nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.decompressUsing(otherCodec);
-        nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+      if (sorted) {
+        appendSortedFrom(otherFile);
+        return;
+      }
+      // flush anything written so far
+      writeBlock();
+      Codec otherCodec = otherFile.resolveCodec();
+      DataBlock nextBlockRaw = null;
+      if (codec.equals(otherCodec) && !recompress) {
+        // copy raw bytes
+        while (otherFile.hasNextBlock()) {
+          nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
+          long position = out.tell();
+          nextBlockRaw.writeBlockTo(vout, sync);
+          if (bloomIndex != null) {
+            bloomIndex.rawBlockWritten(position, nextBlockRaw.getNumEntries());
+          }
+        }
+      } else {
+        while (otherFile.hasNextBlock()) {
+          nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
+          nextBlockRaw.decompressUsing(otherCodec);
+          nextBlockRaw.compressUsing(codec);
+          long position = out.tell();
+          nextBlockRaw.writeBlockTo(vout, sync);
+          if (bloomIndex != null) {
+            bloomIndex.rawBlockWritten(position, nextBlockRaw.getNumEntries());
+          }
+        }
+      }
+    } finally {
+      unlock(l);
+    }
+  }
+
+  /**
+   * Like {@link #appendAllFrom(DataFileStream, boolean)}, but blocks that are
+   * recompressed are decompressed and compressed by tasks on an executor, several
+   * at a time, and written in their original order. Blocks are read and written
+   * on the calling thread. Blocks that are copied as they are, and writers with
+   * {@linkplain #setAdaptiveCompression adaptive compression} or that are
+   * {@linkplain #setSorted sorted}, do not use the executor.
+   */
+  public void appendAllFrom(DataFileStream<D> otherFile, boolean recompress, ExecutorService executor)
+      throws IOException {
+    ReentrantLock l = lock();
+    try {
+      assertOpen();
+      CodecFactory otherFactory = otherFile.resolveCodecFactory();
+      if ((codec.equals(otherFactory.createInstance()) && !recompress) || adaptive != null || sorted) {
+        appendAllFrom(otherFile, recompress);
+        return;
+      }
+      Schema otherSchema = otherFile.getSchema();
+      if (!this.schema.equals(otherSchema)) {
+        throw new IOException("Schema from file " + otherFile + " does not match");
       }
+      writeBlock();
+      // codecs keep state between blocks, so each task borrows a pair
+      Queue<Codec[]> recoders = new ConcurrentLinkedQueue<>();
+      Deque<Future<DataBlock>> inFlight = new ArrayDeque<>();
+      Deque<DataBlock> free = new ArrayDeque<>();
+      int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+      try {
+        while (otherFile.hasNextBlock()) {
+          if (inFlight.size() == maxInFlight) {
+            free.add(writeRecoded(inFlight.removeFirst()));
+          }
+          DataBlock block = otherFile.nextRawBlock(free.poll());
+          inFlight.addLast(executor.submit(() -> {
+            Codec[] recoder = recoders.poll();
+            if (recoder == null) {
+              recoder = new Codec[] { otherFactory.createInstance(), codecFactory.createInstance() };
+            }
+            try {
+              block.decompressUsing(recoder[0]);
+              block.compressUsing(recoder[1]);
+              return block;
+            } finally {
+              recoders.add(recoder);
+            }
+          }));
+        }
+        while (!inFlight.isEmpty()) {
+          writeRecoded(inFlight.removeFirst());
+        }
+      } finally {
+        for (Future<DataBlock> pending : inFlight) {
+          pending.cancel(true);
+        }
+      }
+    } finally {
+      unlock(l);
     }
   }
 
+  private DataBlock writeRecoded(Future<DataBlock> recoded) throws IOException {
+    DataBlock block;
+    try {
+      block = recoded.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while recompressing");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new AvroRuntimeException(e.getCause());
+    }
+    long position = out.tell();
+    block.writeBlockTo(vout, sync);
+    if (bloomIndex != null) {
+      bloomIndex.rawBlockWritten(position, block.getNumEntries());
+    }
+    return block;
+  }
+
+  /**
+   * Appends all the data of a local file, which must have the same schema. If the
+   * codecs of the two files are compatible, the blocks are not read into memory:
+   * their bytes are copied with {@link FileChannel#transferTo}, which lets the
+   * operating system copy them directly when this writer writes to a file it
+   * opened, such as with {@link #create(Schema, File)}, and only the sync markers
+   * are rewritten. Otherwise this behaves like
+   * {@link #appendAllFrom(DataFileStream, boolean)} without recompression.
+   */
+  public void appendAllFrom(File otherFile) throws IOException {
+    ReentrantLock l = lock();
+    try {
+      assertOpen();
+      try (DataFileReader<D> reader = new DataFileReader<>(otherFile, new GenericDatumReader<>())) {
+        if (sorted || !codec.equals(reader.resolveCodec())) {
+          appendAllFrom(reader, false);
+          return;
+        }
+        if (!this.schema.equals(reader.getSchema())) {
+          throw new IOException("Schema from file " + otherFile + " does not match");
+        }
+        writeBlock();
+        byte[] otherSync = reader.getHeader().sync;
+        try (FileChannel in = FileChannel.open(otherFile.toPath(), StandardOpenOption.READ)) {
+          ByteBuffer header = ByteBuffer.allocate(2 * 10);
+          ByteBuffer marker = ByteBuffer.allocate(DataFileConstants.SYNC_SIZE);
+          long length = in.size();
+          for (long p = reader.previousSync(); p < length;) {
+            ((Buffer) header).clear();
+            readFully(in, header, p, false);
+            long count = readVarLong(header);
+            long size = readVarLong(header);
+            long dataEnd = p + header.position() + size;
+            if (count < 0 || size < 0 || dataEnd + DataFileConstants.SYNC_SIZE > length) {
+              throw new IOException("Invalid block at " + p + " in " + otherFile);
+            }
+            ((Buffer) marker).clear();
+            readFully(in, marker, dataEnd, true);
+            if (!Arrays.equals(marker.array(), otherSync)) {
+              throw new IOException("Invalid sync!");
+            }
+            long position = out.tell();
+            out.transferFrom(in, p, dataEnd - p);
+            vout.writeFixed(sync);
+            if (bloomIndex != null) {
+              bloomIndex.rawBlockWritten(position, count);
+            }
+            p = dataEnd + DataFileConstants.SYNC_SIZE;
+          }
+        }
+        if (flushOnEveryBlock) {
+          vout.flush();
+        }
+      }
+    } finally {
+      unlock(l);
+    }
+  }
+
+  // read at a position until the buffer is full, or else to end of file
+  static void readFully(FileChannel in, ByteBuffer buffer, long position, boolean required) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = in.read(buffer, position);
+      if (n < 0) {
+        if (required) {
+          throw new EOFException();
+        }
+        break;
+      }
+      position += n;
+    }
+    ((Buffer) buffer).flip();
+  }
+
+  static long readVarLong(ByteBuffer in) throws IOException {
+    long n = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (!in.hasRemaining()) {
+        throw new EOFException();
+      }
+      int b = in.get() & 0xff;
+      n |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return (n >>> 1) ^ -(n & 1); // back to two's-complement
+      }
+    }
+    throw new IOException("Invalid long encoding");
+  }
+
   private void writeBlock() throws IOException {
     if (blockCount > 0) {
       try {
         bufOut.flush();
         ByteBuffer uncompressed = buffer.asByteBuffer();
-        DataBlock block = new DataBlock(uncompressed, blockCount);
+        if (block == null) {
+          block = new DataBlock(uncompressed, blockCount);
+        } else {
+          block.reset(uncompressed, blockCount);
+        }
         block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
+        if (adaptive == null) {
+          block.compressUsing(codec);
+        } else {
+          long start = System.nanoTime();
+          block.compressUsing(codec);
+          adaptive.blockCompressed(uncompressed.remaining(), block.getBlockSize(), System.nanoTime() - start);
+          codec = adaptive.codec();
+          syncInterval = adaptive.getBlockSize();
+        }
+        long position = out.tell();
         block.writeBlockTo(vout, sync);
+        if (bloomIndex != null) {
+          bloomIndex.blockWritten(position, blockCount);
+        }
       } finally {
         buffer.reset();
         blockCount = 0;
+        blocksWritten++;
+        cancelScheduledFlush();
       }
     }
   }
@@ -424,9 +1081,15 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    * {@linkplain #flush()} must be called to flush the stream.
    */
   public long sync() throws IOException {
-    assertOpen();
-    writeBlock();
-    return out.tell();
+    ReentrantLock l = lock();
+    try {
+      assertOpen();
+      checkScheduledFlush();
+      writeBlock();
+      return out.tell();
+    } finally {
+      unlock(l);
+    }
   }
 
   /**
@@ -434,32 +1097,64 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   @Override
   public void flush() throws IOException {
-    sync();
-    vout.flush();
+    ReentrantLock l = lock();
+    try {
+      sync();
+      vout.flush();
+      if (bloomIndex != null) {
+        bloomIndex.flush();
+      }
+      if (adaptive != null) {
+        adaptive.flushLog();
+      }
+    } finally {
+      unlock(l);
+    }
   }
 
   /**
    * If this writer was instantiated using a File or using an
    * {@linkplain Syncable} instance, this method flushes all buffers for this
    * writer to disk. In other cases, this method behaves exactly like
-   * {@linkplain #flush()}.
+   * {@linkplain #flush()}. With a {@linkplain #setGroupCommit(GroupCommit) group
+   * commit} coordinator, this waits for the batch that syncs the file.
    *
    * @throws IOException
    */
   public void fSync() throws IOException {
-    flush();
+    flush(); // takes the lock, if any; waiting for the sync does not hold it
     if (underlyingStream instanceof Syncable) {
-      ((Syncable) underlyingStream).sync();
+      if (groupCommit != null) {
+        groupCommit.sync((Syncable) underlyingStream);
+      } else {
+        ((Syncable) underlyingStream).sync();
+      }
     }
   }
 
+  /** The output to sync to disk, or null if it cannot be. */
+  Syncable getSyncable() {
+    return (underlyingStream instanceof Syncable) ? (Syncable) underlyingStream : null;
+  }
+
   /** Flush and close the file. */
   @Override
   public void close() throws IOException {
-    if (isOpen) {
-      flush();
-      out.close();
-      isOpen = false;
+    ReentrantLock l = lock();
+    try {
+      if (isOpen) {
+        flush();
+        out.close();
+        if (bloomIndex != null) {
+          bloomIndex.close();
+        }
+        if (adaptive != null) {
+          adaptive.closeLog();
+        }
+        isOpen = false;
+      }
+    } finally {
+      unlock(l);
     }
   }
 
@@ -487,6 +1182,36 @@ public class DataFileWriter<D> implements Closeable, Flushable {
       return position + count;
     }
 
+    /**
+     * Write a range of a file, letting the operating system copy it when writing to
+     * a file. Only streams of the classes this writer opens files with are written
+     * through their channel, since subclasses may override how bytes are written.
+     */
+    void transferFrom(FileChannel src, long from, long length) throws IOException {
+      flush();
+      Class<?> c = underlyingStream.getClass();
+      if (c == SyncableFileOutputStream.class || c == FileOutputStream.class) {
+        FileChannel dst = ((FileOutputStream) underlyingStream).getChannel();
+        for (long done = 0; done < length;) {
+          long n = src.transferTo(from + done, length - done, dst);
+          if (n <= 0) {
+            throw new EOFException();
+          }
+          done += n;
+        }
+        position += length;
+      } else {
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+        for (long done = 0; done < length;) {
+          ((Buffer) chunk).clear();
+          ((Buffer) chunk).limit((int) Math.min(chunk.capacity(), length - done));
+          readFully(src, chunk, from + done, true);
+          write(chunk.array(), 0, chunk.limit());
+          done += chunk.limit();
+        }
+      }
+    }
+
     @Override
     public synchronized void flush() throws IOException {
       try {
@@ -18,14 +18,12 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
-
-import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import java.util.zip.ZipException;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -34,6 +32,11 @@ import org.apache.avro.util.NonCopyingByteArrayOutputStream;
  * (zlib). zlib adds an extra 2-byte header at the front, and a 4-byte checksum
  * at the end. The code here, by passing "true" as the "nowrap" option to
  * {@link Inflater} and {@link Deflater}, is using RFC1951.
+ *
+ * The {@link Deflater} and {@link Inflater} are kept for the life of the codec
+ * and write straight into the output buffer, which callers may supply through
+ * {@link #compress(ByteBuffer, ByteBuffer)} and
+ * {@link #decompress(ByteBuffer, ByteBuffer)}.
  */
 public class DeflateCodec extends Codec {
 
@@ -69,20 +72,55 @@ public class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Deflater deflater = getDeflater();
+    deflater.setInput(data.array(), computeOffset(data), data.remaining());
+    deflater.finish();
+    ByteBuffer out = reusable(reuse, DEFAULT_BUFFER_SIZE);
+    while (!deflater.finished()) {
+      if (!out.hasRemaining()) {
+        out = grow(out);
+      }
+      int n = deflater.deflate(out.array(), out.position(), out.remaining());
+      ((Buffer) out).position(out.position() + n);
     }
-    return baos.asByteBuffer();
+    ((Buffer) out).flip();
+    return out;
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    Inflater inflater = getInflater();
+    inflater.setInput(data.array(), computeOffset(data), data.remaining());
+    ByteBuffer out = reusable(reuse, DEFAULT_BUFFER_SIZE);
+    try {
+      while (!inflater.finished()) {
+        if (!out.hasRemaining()) {
+          out = grow(out);
+        }
+        int n = inflater.inflate(out.array(), out.position(), out.remaining());
+        ((Buffer) out).position(out.position() + n);
+        if (n == 0 && inflater.needsDictionary()) {
+          throw new ZipException("ZLIB dictionary missing");
+        }
+        if (n == 0 && inflater.needsInput()) {
+          break; // truncated input, decode what is there
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
     }
-    return baos.asByteBuffer();
+    ((Buffer) out).flip();
+    return out;
   }
 
   // get and initialize the inflater for use.
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A range of bytes to read with
+ * {@link SeekableInput#readVectored(java.util.List)}, and the future holding
+ * its bytes once read.
+ */
+public final class FileRange {
+  private final long offset;
+  private final int length;
+  private final CompletableFuture<ByteBuffer> data = new CompletableFuture<>();
+
+  public FileRange(long offset, int length) {
+    if (offset < 0 || length < 0) {
+      throw new IllegalArgumentException("Invalid range: " + length + " bytes at " + offset);
+    }
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /** The position of the first byte. */
+  public long getOffset() {
+    return offset;
+  }
+
+  /** The number of bytes. */
+  public int getLength() {
+    return length;
+  }
+
+  /** The end of the range, exclusive. */
+  public long getEnd() {
+    return offset + length;
+  }
+
+  /**
+   * Completed with a heap buffer holding exactly the bytes of this range, or
+   * exceptionally if they could not be read. The buffer may share its array with
+   * a cache, so must not be modified.
+   */
+  public CompletableFuture<ByteBuffer> getData() {
+    return data;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + offset + ", " + getEnd() + ")";
+  }
+}
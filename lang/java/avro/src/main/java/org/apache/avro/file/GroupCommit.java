@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches requests to sync files to disk, so that many {@link DataFileWriter}s
+ * calling {@link DataFileWriter#fSync()} share the cost of the underlying
+ * syncs. Requests are collected for a time window starting with the first one;
+ * then each file with a pending request is synced once, however many requests
+ * for it were made, and the waiters on that file are all completed together.
+ * Requests arriving while a batch is being synced go into the next batch, since
+ * their data may have been written after the sync began.
+ *
+ * Writers use a coordinator either through
+ * {@link DataFileWriter#setGroupCommit(GroupCommit)}, after which
+ * {@link DataFileWriter#fSync()} blocks until its batch is synced, or with
+ * {@link #fSync(DataFileWriter)}, which lets a single thread request syncs of
+ * many writers and wait for them all at once.
+ *
+ * Batches are run by a daemon thread owned by the coordinator, which should be
+ * closed once its writers are.
+ */
+public class GroupCommit implements Closeable {
+  public static final long DEFAULT_WINDOW_MICROS = 2000;
+
+  private final long windowNanos;
+  private final ExecutorService executor;
+  private final Thread committer;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong syncs = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+
+  private final Object lock = new Object();
+  private Map<Syncable, CompletableFuture<Void>> pending = new IdentityHashMap<>();
+  private long firstRequest; // when the oldest pending request was made
+  private boolean closed;
+
+  /** Create a coordinator with the default window, syncing files serially. */
+  public GroupCommit() {
+    this(DEFAULT_WINDOW_MICROS, TimeUnit.MICROSECONDS, null);
+  }
+
+  /**
+   * Create a coordinator.
+   *
+   * @param window   how long requests are collected before a batch is synced; 0
+   *                 to batch only the requests that arrive while the previous
+   *                 batch is syncing
+   * @param unit     the unit of {@code window}
+   * @param executor if not null, the files of a batch are synced concurrently on
+   *                 this executor, otherwise one after another; files the
+   *                 executor rejects are synced by the coordinator's thread
+   */
+  public GroupCommit(long window, TimeUnit unit, ExecutorService executor) {
+    if (window < 0) {
+      throw new IllegalArgumentException("Invalid window: " + window);
+    }
+    this.windowNanos = unit.toNanos(window);
+    this.executor = executor;
+    this.committer = new Thread(this::run, "avro-group-commit");
+    committer.setDaemon(true);
+    committer.start();
+  }
+
+  /**
+   * Request that a file be synced in the next batch.
+   *
+   * @return completed when the file has been synced, or exceptionally with the
+   *         error from syncing it
+   */
+  public CompletableFuture<Void> submit(Syncable target) {
+    synchronized (lock) {
+      if (closed) {
+        throw new IllegalStateException("Group commit is closed");
+      }
+      requests.incrementAndGet();
+      CompletableFuture<Void> result = pending.get(target);
+      if (result == null) {
+        if (pending.isEmpty()) {
+          firstRequest = System.nanoTime();
+          lock.notifyAll();
+        }
+        result = new CompletableFuture<>();
+        pending.put(target, result);
+      }
+      return result;
+    }
+  }
+
+  /** Sync a file in the next batch, waiting until it has been synced. */
+  public void sync(Syncable target) throws IOException {
+    await(submit(target));
+  }
+
+  /**
+   * Flush a writer in the calling thread, then request that its file be synced in
+   * the next batch. Writers whose output is not {@link Syncable} are only
+   * flushed.
+   *
+   * @return completed when the file has been synced
+   */
+  public CompletableFuture<Void> fSync(DataFileWriter<?> writer) throws IOException {
+    writer.flush();
+    Syncable target = writer.getSyncable();
+    return (target == null) ? CompletableFuture.completedFuture(null) : submit(target);
+  }
+
+  /** Wait for a request, rethrowing the error from syncing its file. */
+  public static void await(Future<Void> request) throws IOException {
+    try {
+      request.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for sync");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+    }
+  }
+
+  private void run() {
+    while (true) {
+      Map<Syncable, CompletableFuture<Void>> batch;
+      synchronized (lock) {
+        try {
+          while (pending.isEmpty() && !closed) {
+            lock.wait();
+          }
+          long wait;
+          while (!closed && (wait = firstRequest + windowNanos - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(lock, wait);
+          }
+        } catch (InterruptedException e) {
+          closed = true; // sync what is pending, then stop
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        batch = pending;
+        pending = new IdentityHashMap<>();
+      }
+      batches.incrementAndGet();
+      if (executor == null) {
+        for (Map.Entry<Syncable, CompletableFuture<Void>> entry : batch.entrySet()) {
+          sync(entry.getKey(), entry.getValue());
+        }
+      } else {
+        List<Future<?>> running = new ArrayList<>(batch.size());
+        for (Map.Entry<Syncable, CompletableFuture<Void>> entry : batch.entrySet()) {
+          try {
+            running.add(executor.submit(() -> sync(entry.getKey(), entry.getValue())));
+          } catch (RejectedExecutionException e) {
+            sync(entry.getKey(), entry.getValue()); // the executor was shut down
+          }
+        }
+        for (Future<?> sync : running) {
+          try {
+            sync.get();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException e) {
+            // reported to the waiters by sync()
+          }
+        }
+      }
+    }
+  }
+
+  private void sync(Syncable target, CompletableFuture<Void> waiters) {
+    try {
+      target.sync();
+      syncs.incrementAndGet();
+      waiters.complete(null);
+    } catch (Throwable e) {
+      waiters.completeExceptionally(e);
+    }
+  }
+
+  /** The number of sync requests made. */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /** The number of files synced, summed over all batches. */
+  public long getSyncCount() {
+    return syncs.get();
+  }
+
+  /** The number of batches run. */
+  public long getBatchCount() {
+    return batches.get();
+  }
+
+  /**
+   * Sync any pending requests and stop. Later requests fail with an
+   * {@link IllegalStateException}. Does not shut down the executor.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      closed = true;
+      lock.notifyAll();
+    }
+    try {
+      committer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while closing group commit");
+    }
+  }
+}
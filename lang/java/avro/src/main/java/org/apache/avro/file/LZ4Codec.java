@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Implements LZ4 compression and decompression. Each block is stored as its
+ * uncompressed length, a four byte big-endian integer, followed by the data in
+ * the LZ4 block format. Level 0 selects the fast compressor; levels 1 to 17
+ * select the slower high-compression compressor, whose output decompresses just
+ * as fast.
+ */
+public class LZ4Codec extends Codec {
+  public static final int DEFAULT_COMPRESSION = 0;
+  public static final int DEFAULT_HIGH_COMPRESSION = 9;
+  private static final int MAX_HIGH_COMPRESSION = 17;
+
+  static class Option extends CodecFactory {
+    static {
+      // if lz4 isn't available, this will throw an exception which we
+      // can catch so we can avoid registering this codec
+      LZ4Factory.fastestInstance();
+    }
+
+    private final int compressionLevel;
+
+    Option(int compressionLevel) {
+      this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected Codec createInstance() {
+      return new LZ4Codec(compressionLevel);
+    }
+  }
+
+  private final int compressionLevel;
+  private final LZ4Compressor compressor;
+  private final LZ4SafeDecompressor decompressor;
+
+  public LZ4Codec(int compressionLevel) {
+    this.compressionLevel = Math.max(0, Math.min(compressionLevel, MAX_HIGH_COMPRESSION));
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = this.compressionLevel == 0 ? factory.fastCompressor()
+        : factory.highCompressor(this.compressionLevel);
+    this.decompressor = factory.safeDecompressor();
+  }
+
+  @Override
+  public String getName() {
+    return DataFileConstants.LZ4_CODEC;
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer reuse) throws IOException {
+    int length = in.remaining();
+    ByteBuffer out = reusable(reuse, compressor.maxCompressedLength(length) + 4);
+    out.putInt(0, length);
+    int size = compressor.compress(in.array(), computeOffset(in), length, out.array(), 4);
+    ((Buffer) out).limit(size + 4);
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer reuse) throws IOException {
+    if (in.remaining() < 4) {
+      throw new IOException("Truncated LZ4 block");
+    }
+    int length = in.getInt(in.position());
+    // the length is untrusted: LZ4 expands each input byte to at most 255 bytes
+    if (length < 0 || length > (long) (in.remaining() - 4) * 255 + 16) {
+      throw new IOException("Invalid LZ4 block length: " + length);
+    }
+    ByteBuffer out = reusable(reuse, length);
+    int size;
+    try {
+      size = decompressor.decompress(in.array(), computeOffset(in) + 4, in.remaining() - 4, out.array(), 0, length);
+    } catch (LZ4Exception e) {
+      throw new IOException("Corrupt LZ4 block", e);
+    }
+    if (size != length) {
+      throw new IOException("LZ4 block decompressed to " + size + " bytes, expected " + length);
+    }
+    ((Buffer) out).limit(size);
+    return out;
+  }
+
+  @Override
+  public int hashCode() {
+    return getName().hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    return obj != null && obj.getClass() == getClass();
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "[" + compressionLevel + "]";
+  }
+}
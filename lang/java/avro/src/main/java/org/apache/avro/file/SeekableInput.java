@@ -17,8 +17,11 @@
  */
 package org.apache.avro.file;
 
-import java.io.IOException;
 import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 /** An InputStream that supports seek and tell. */
 public interface SeekableInput extends Closeable {
@@ -40,4 +43,33 @@ public interface SeekableInput extends Closeable {
 
   /** Equivalent to {@link java.io.InputStream#read(byte[],int,int)}. */
   int read(byte[] b, int off, int len) throws IOException;
+
+  /**
+   * Read several ranges of the file, completing the future of each with its
+   * bytes. Inputs with a high cost per read, such as remote storage, may merge
+   * nearby ranges, read them concurrently and complete the futures later. This
+   * default reads the ranges one after another before returning. The position of
+   * the next {@link #read(byte[], int, int) read()} is not changed.
+   *
+   * @see CoalescingSeekableInput
+   */
+  default void readVectored(List<FileRange> ranges) throws IOException {
+    long restore = tell();
+    try {
+      for (FileRange range : ranges) {
+        byte[] bytes = new byte[range.getLength()];
+        seek(range.getOffset());
+        for (int n = 0; n < bytes.length;) {
+          int read = read(bytes, n, bytes.length - n);
+          if (read < 0) {
+            throw new EOFException("Range " + range + " is beyond the end of the file");
+          }
+          n += read;
+        }
+        range.getData().complete(ByteBuffer.wrap(bytes));
+      }
+    } finally {
+      seek(restore);
+    }
+  }
 }
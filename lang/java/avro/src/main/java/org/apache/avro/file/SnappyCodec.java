@@ -51,8 +51,13 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer reuse) throws IOException {
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining()) + 4);
+    ByteBuffer out = reusable(reuse, Snappy.maxCompressedLength(in.remaining()) + 4);
     int size = Snappy.compress(in.array(), offset, in.remaining(), out.array(), 0);
     crc32.reset();
     crc32.update(in.array(), offset, in.remaining());
@@ -65,8 +70,13 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer reuse) throws IOException {
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate(Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4));
+    ByteBuffer out = reusable(reuse, Snappy.uncompressedLength(in.array(), offset, in.remaining() - 4));
     int size = Snappy.uncompress(in.array(), offset, in.remaining() - 4, out.array(), 0);
     ((Buffer) out).limit(size);
 
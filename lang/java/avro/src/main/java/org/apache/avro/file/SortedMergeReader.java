@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Merges data files that are each in the order of their schema, such as files
+ * written with {@link DataFileWriter#setSorted(boolean)}, into a single stream
+ * in that order. All inputs must have the same schema. Inputs written with a
+ * {@linkplain DataFileWriter#setSorted(String...) sort key} are merged by that
+ * key, which all inputs must share.
+ *
+ * Each input keeps one decompressed block buffered. The next datum of every
+ * input is compared in its binary encoding with
+ * {@link BinaryData#compare(byte[], int, byte[], int, Schema)}, and a heap of
+ * inputs ordered by their next datum picks the least, so datums are only
+ * decoded when they are returned. Equal datums are returned in the order of
+ * their inputs. Datums can also be returned still encoded, with
+ * {@link #nextEncoded()}, for example to compact sorted files with
+ * {@link DataFileWriter#appendEncoded(ByteBuffer)} without decoding them.
+ *
+ * The order of the inputs is not checked; merging unsorted inputs gives
+ * unsorted output.
+ */
+public class SortedMergeReader<D> implements Iterator<D>, Iterable<D>, Closeable {
+
+  private static final class Input<D> {
+    private final DataFileStream<D> stream;
+    private final int index;
+    private byte[] block;
+    private int end;
+    private long remaining; // datums left in block, including the next one
+    private int next; // position of the next datum in block
+    private BinaryDecoder decoder;
+
+    private Input(DataFileStream<D> stream, int index) {
+      this.stream = stream;
+      this.index = index;
+    }
+
+    // move past the datum just consumed; false when the input is exhausted
+    private boolean advance() throws IOException {
+      if (--remaining > 0) {
+        next = end - decoder.inputStream().available();
+        return true;
+      }
+      while (stream.hasNext()) {
+        remaining = stream.getBlockCount();
+        ByteBuffer data = stream.nextBlock();
+        block = data.array();
+        next = data.arrayOffset() + data.position();
+        end = data.arrayOffset() + data.limit();
+        decoder = DecoderFactory.get().binaryDecoder(block, next, end - next, decoder);
+        if (remaining > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private final Schema schema;
+  private final Schema sortSchema; // the schema datums are compared with
+  private final List<DataFileStream<D>> streams;
+  private final Input<D>[] heap;
+  private int size;
+  private Input<D> consumed; // advanced lazily, so encoded datums stay valid
+
+  /**
+   * Merge streams. The streams are closed when this is.
+   *
+   * @param inputs streams positioned at the start of a block, such as newly
+   *               opened ones
+   */
+  @SuppressWarnings("unchecked")
+  public SortedMergeReader(List<? extends DataFileStream<D>> inputs) throws IOException {
+    if (inputs.isEmpty()) {
+      throw new IllegalArgumentException("No inputs to merge");
+    }
+    this.schema = inputs.get(0).getSchema();
+    String[] key = DataFileWriter.sortKey(inputs.get(0).getMetaString(DataFileConstants.SORT_KEY));
+    this.streams = new ArrayList<>(inputs);
+    this.heap = new Input[inputs.size()];
+    for (int i = 0; i < inputs.size(); i++) {
+      DataFileStream<D> stream = inputs.get(i);
+      if (!schema.equals(stream.getSchema())) {
+        throw new AvroRuntimeException("Schema of input " + i + " does not match: " + stream.getSchema());
+      }
+      String[] inputKey = DataFileWriter.sortKey(stream.getMetaString(DataFileConstants.SORT_KEY));
+      if (!Arrays.equals(key, inputKey)) {
+        throw new AvroRuntimeException("Sort key of input " + i + " does not match: " + Arrays.toString(inputKey));
+      }
+      Input<D> input = new Input<>(stream, i);
+      if (input.advance()) {
+        heap[size++] = input;
+      }
+    }
+    this.sortSchema = DataFileWriter.sortSchema(schema, key);
+    for (int i = size / 2 - 1; i >= 0; i--) {
+      siftDown(i);
+    }
+  }
+
+  /**
+   * Open and merge files.
+   *
+   * @param readers supplies a new datum reader per file
+   */
+  public static <D> SortedMergeReader<D> open(List<File> files, Supplier<DatumReader<D>> readers) throws IOException {
+    List<DataFileReader<D>> inputs = new ArrayList<>(files.size());
+    try {
+      for (File file : files) {
+        inputs.add(new DataFileReader<>(file, readers.get()));
+      }
+      return new SortedMergeReader<>(inputs);
+    } catch (IOException | RuntimeException e) {
+      for (DataFileReader<D> input : inputs) {
+        IOUtils.closeQuietly(input);
+      }
+      throw e;
+    }
+  }
+
+  /** The schema of the inputs. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  @Override
+  public Iterator<D> iterator() {
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      advanceConsumed();
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+    return size > 0;
+  }
+
+  @Override
+  public D next() {
+    try {
+      return next(null);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /**
+   * Read the least of the next datums of the inputs.
+   *
+   * @param reuse an instance to reuse
+   * @throws NoSuchElementException if all inputs are exhausted
+   */
+  public D next(D reuse) throws IOException {
+    Input<D> top = top();
+    D result = top.stream.getDatumReader().read(reuse, top.decoder);
+    consumed = top;
+    return result;
+  }
+
+  /**
+   * Return the least of the next datums of the inputs, in its binary encoding.
+   * The buffer is only valid until the next call to this reader.
+   *
+   * @throws NoSuchElementException if all inputs are exhausted
+   */
+  public ByteBuffer nextEncoded() throws IOException {
+    Input<D> top = top();
+    int start = top.next;
+    GenericDatumReader.skip(schema, top.decoder);
+    consumed = top;
+    return ByteBuffer.wrap(top.block, start, top.end - top.decoder.inputStream().available() - start);
+  }
+
+  private Input<D> top() throws IOException {
+    advanceConsumed();
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+    return heap[0];
+  }
+
+  private void advanceConsumed() throws IOException {
+    if (consumed != null) {
+      consumed = null;
+      if (!heap[0].advance()) {
+        heap[0] = heap[--size];
+        heap[size] = null;
+      }
+      siftDown(0);
+    }
+  }
+
+  private void siftDown(int i) {
+    Input<D> input = heap[i];
+    if (input == null) {
+      return;
+    }
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && less(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (!less(heap[child], input)) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = input;
+  }
+
+  private boolean less(Input<D> a, Input<D> b) {
+    int c = BinaryData.compare(a.block, a.next, b.block, b.next, sortSchema);
+    return c < 0 || (c == 0 && a.index < b.index);
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException error = null;
+    for (DataFileStream<D> stream : streams) {
+      try {
+        stream.close();
+      } catch (IOException e) {
+        error = (error == null) ? e : error;
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
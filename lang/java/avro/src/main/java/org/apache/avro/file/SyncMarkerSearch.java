@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.apache.avro.file.DataFileConstants.SYNC_SIZE;
+
+/**
+ * Finds sync markers in a seekable input by reading it in large chunks and
+ * scanning eight bytes at a time: each word is checked for the marker's first
+ * byte with a SWAR zero-byte test, and candidates are confirmed by comparing
+ * the marker as two longs. Chunks overlap by a marker's length so markers
+ * spanning chunks are found.
+ */
+final class SyncMarkerSearch {
+  private static final int CHUNK_SIZE = 256 * 1024;
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+
+  private final long first; // the marker's first byte, in every byte
+  private final long head;
+  private final long tail;
+
+  private final byte[] chunk = new byte[CHUNK_SIZE];
+  private final ByteBuffer words = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN);
+  private long chunkStart = -1;
+  private int chunkLength;
+
+  SyncMarkerSearch(byte[] sync) {
+    ByteBuffer marker = ByteBuffer.wrap(sync).order(ByteOrder.LITTLE_ENDIAN);
+    this.first = (sync[0] & 0xffL) * ONES;
+    this.head = marker.getLong(0);
+    this.tail = marker.getLong(8);
+  }
+
+  /**
+   * Returns the position just after the first marker that starts at or after
+   * {@code from} and before {@code limit}, or -1 if there is none.
+   */
+  long next(SeekableInput in, long from, long limit) throws IOException {
+    long length = in.length();
+    limit = Math.min(limit, length - SYNC_SIZE + 1);
+    while (from < limit) {
+      if (!load(in, from, length)) {
+        return -1;
+      }
+      int start = (int) (from - chunkStart);
+      int end = (int) Math.min(chunkLength - SYNC_SIZE + 1, limit - chunkStart);
+      int found = indexOf(start, end);
+      if (found >= 0) {
+        return chunkStart + found + SYNC_SIZE;
+      }
+      from = chunkStart + end;
+    }
+    return -1;
+  }
+
+  // make the chunk hold at least a marker's length of data from position
+  private boolean load(SeekableInput in, long position, long length) throws IOException {
+    if (chunkStart >= 0 && position >= chunkStart && position + SYNC_SIZE <= chunkStart + chunkLength) {
+      return true;
+    }
+    in.seek(position);
+    int n = 0;
+    int wanted = (int) Math.min(chunk.length, length - position);
+    while (n < wanted) {
+      int read = in.read(chunk, n, wanted - n);
+      if (read < 0) {
+        break;
+      }
+      n += read;
+    }
+    chunkStart = position;
+    chunkLength = n;
+    return n >= SYNC_SIZE;
+  }
+
+  // the offset in the chunk of the first marker starting in [start, end)
+  private int indexOf(int start, int end) {
+    int i = start;
+    // whole words, as long as a full marker could follow each of their bytes
+    for (; i + Long.BYTES + SYNC_SIZE - 1 <= chunkLength && i < end; i += Long.BYTES) {
+      long x = words.getLong(i) ^ first;
+      long zeros = (x - ONES) & ~x & HIGHS;
+      while (zeros != 0) {
+        int candidate = i + (Long.numberOfTrailingZeros(zeros) >>> 3);
+        if (candidate >= end) {
+          return -1;
+        }
+        if (matches(candidate)) {
+          return candidate;
+        }
+        zeros &= zeros - 1;
+      }
+    }
+    for (; i < end; i++) {
+      if (matches(i)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean matches(int offset) {
+    return words.getLong(offset) == head && words.getLong(offset + Long.BYTES) == tail;
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Reads a data file while another process appends to it, for example a
+ * {@link DataFileWriter} with
+ * {@link DataFileWriter#setFlushOnEveryBlock(boolean) flushOnEveryBlock} set.
+ * Records are delivered a block at a time, as soon as a block and its trailing
+ * synchronization marker have been completely written; a block that is only
+ * partly written is left alone until the rest of it arrives. The file is never
+ * rescanned: the reader keeps its place at the start of the next unread block
+ * and only examines bytes beyond it.
+ *
+ * {@link #hasNext()} never blocks. {@link #await(long, TimeUnit)} waits for new
+ * records, polling the file length at the poll interval and, when enabled,
+ * waking early on modification events from a {@link WatchService}.
+ *
+ * The file may also be opened before its header has been written. Not thread
+ * safe.
+ */
+public class TailingDataFileReader<D> implements Closeable {
+  public static final long DEFAULT_POLL_INTERVAL_MILLIS = 100;
+
+  // two varints of at most 10 bytes each
+  private static final int MAX_BLOCK_HEADER = 20;
+
+  private final File file;
+  private final DatumReader<D> datumReader;
+  private final SeekableFileInput input;
+  private final FileChannel channel;
+  private final ByteBuffer probe = ByteBuffer.allocate(MAX_BLOCK_HEADER);
+  private final WatchService watcher;
+  private long pollIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_POLL_INTERVAL_MILLIS);
+  private DataFileReader<D> reader;
+  private long blockStart = -1;
+  private long position = -1;
+
+  /** Follow a file, polling it for new blocks. */
+  public TailingDataFileReader(File file, DatumReader<D> reader) throws IOException {
+    this(file, reader, false);
+  }
+
+  /**
+   * Follow a file.
+   *
+   * @param file   the file to read, which must already exist
+   * @param reader the datum reader
+   * @param watch  whether to also wait on a {@link WatchService} for changes to
+   *               the file, rather than only polling
+   */
+  public TailingDataFileReader(File file, DatumReader<D> reader, boolean watch) throws IOException {
+    this.file = file;
+    this.datumReader = reader;
+    this.input = new SeekableFileInput(file);
+    this.channel = input.getChannel();
+    WatchService service = null;
+    if (watch) {
+      try {
+        Path dir = file.getAbsoluteFile().toPath().getParent();
+        service = FileSystems.getDefault().newWatchService();
+        dir.register(service, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+      } catch (IOException | RuntimeException e) {
+        IOUtils.closeQuietly(service);
+        IOUtils.closeQuietly(input);
+        throw e;
+      }
+    }
+    this.watcher = service;
+  }
+
+  /**
+   * Set the longest time {@link #await(long, TimeUnit)} goes without checking the
+   * file. When watching, this bounds the latency of changes for which no event is
+   * delivered, as on some network filesystems.
+   */
+  public TailingDataFileReader<D> setPollInterval(long interval, TimeUnit unit) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Invalid poll interval: " + interval);
+    }
+    this.pollIntervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  /** The schema of the file, or null if its header has not been written yet. */
+  public Schema getSchema() throws IOException {
+    return open() ? reader.getSchema() : null;
+  }
+
+  /**
+   * Return true if a record can be read now, without blocking. This reads the
+   * next block if it has been completely written.
+   */
+  public boolean hasNext() throws IOException {
+    if (reader != null && reader.blockRemaining > 0) {
+      return true;
+    }
+    if (!open()) {
+      return false;
+    }
+    long end;
+    while ((end = completeBlockEnd(position)) >= 0) {
+      reader.seek(position);
+      blockStart = position;
+      position = end;
+      if (reader.hasNext()) {
+        return true;
+      } // else an empty block
+    }
+    return false;
+  }
+
+  /**
+   * Wait until a record can be read.
+   *
+   * @return true if a record can be read, false if the timeout elapsed first
+   */
+  public boolean await(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (!hasNext()) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      long wait = Math.min(remaining, pollIntervalNanos);
+      if (watcher == null) {
+        TimeUnit.NANOSECONDS.sleep(wait);
+      } else {
+        WatchKey key = watcher.poll(wait, TimeUnit.NANOSECONDS);
+        if (key != null) {
+          // events for other files in the directory only cause a needless check
+          key.pollEvents();
+          key.reset();
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @throws NoSuchElementException if no complete record is available yet
+   */
+  public D next() throws IOException {
+    return next(null);
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @param reuse an instance to reuse
+   * @throws NoSuchElementException if no complete record is available yet
+   */
+  public D next(D reuse) throws IOException {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return reader.next(reuse);
+  }
+
+  /**
+   * Return the start of the block that the next record is read from, which may be
+   * passed to {@link #seek(long)} by a later reader of this file to resume there.
+   * Records of that block already returned will be returned again.
+   */
+  public long previousSync() throws IOException {
+    if (reader != null && reader.blockRemaining > 0) {
+      return blockStart;
+    }
+    return open() ? position : -1;
+  }
+
+  /**
+   * Move to a block start, one returned from {@link #previousSync()} or
+   * {@link DataFileWriter#sync()}. No check is made that it is one.
+   */
+  public void seek(long sync) throws IOException {
+    if (!open()) {
+      throw new IOException("No header has been written to " + file);
+    }
+    reader.seek(sync);
+    position = sync;
+  }
+
+  // open the underlying reader once the header is complete
+  private boolean open() throws IOException {
+    if (reader != null) {
+      return true;
+    }
+    if (channel.size() < DataFileConstants.MAGIC.length) {
+      return false;
+    }
+    try {
+      input.seek(0);
+      reader = new DataFileReader<>(input, datumReader);
+    } catch (EOFException e) {
+      return false;
+    }
+    position = reader.previousSync();
+    return true;
+  }
+
+  // the end of the block at a position, or -1 if it is not yet complete
+  private long completeBlockEnd(long start) throws IOException {
+    long length = channel.size();
+    if (length < start) {
+      throw new IOException(file + " was truncated to " + length + " bytes, before position " + start);
+    }
+    ((Buffer) probe).clear();
+    DataFileWriter.readFully(channel, probe, start, false);
+    long count;
+    long size;
+    try {
+      count = DataFileWriter.readVarLong(probe);
+      size = DataFileWriter.readVarLong(probe);
+    } catch (EOFException e) {
+      return -1;
+    }
+    if (count < 0 || size < 0 || size > Integer.MAX_VALUE) {
+      throw new IOException("Invalid block at " + start + " in " + file);
+    }
+    long end = start + probe.position() + size + DataFileConstants.SYNC_SIZE;
+    return (end <= length) ? end : -1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (watcher != null) {
+        watcher.close();
+      }
+    } finally {
+      input.close();
+    }
+  }
+}
@@ -24,8 +24,6 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
-import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
-import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
 /** * Implements xz compression and decompression. */
@@ -59,22 +57,39 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = new XZCompressorOutputStream(baos, compressionLevel)) {
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
+    try (OutputStream outputStream = XZLoader.output(baos, compressionLevel)) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
     }
-    return baos.asByteBuffer();
+    return baos.asByteBuffer(reuse);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
     InputStream bytesIn = new ByteArrayInputStream(data.array(), computeOffset(data), data.remaining());
 
-    try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
+    try (InputStream ios = XZLoader.input(bytesIn)) {
       IOUtils.copy(ios, baos);
     }
-    return baos.asByteBuffer();
+    return baos.asByteBuffer(reuse);
+  }
+
+  // write into reuse when possible, else into a fresh array the caller may keep;
+  // no stream is kept, so instances may be shared
+  private static NonCopyingByteArrayOutputStream outputStream(ByteBuffer reuse) {
+    return isReusable(reuse) ? new NonCopyingByteArrayOutputStream(reuse)
+        : new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
   }
 
   @Override
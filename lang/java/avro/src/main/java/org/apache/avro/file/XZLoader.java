@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.SingleXZInputStream;
+import org.tukaani.xz.XZ;
+import org.tukaani.xz.XZOutputStream;
+
+/* causes lazier classloader initialization of XZ libraries, so that
+ * we get NoClassDefFoundError when we try and use the Codec's compress
+ * or decompress methods rather than when we instantiate it. The shared
+ * array cache keeps the large LZMA dictionaries and buffers between blocks. */
+final class XZLoader {
+
+  static InputStream input(InputStream compressed) throws IOException {
+    return new SingleXZInputStream(compressed, -1, true, BasicArrayCache.getInstance());
+  }
+
+  static OutputStream output(OutputStream compressed, int level) throws IOException {
+    return new XZOutputStream(compressed, new LZMA2Options(level), XZ.CHECK_CRC64, BasicArrayCache.getInstance());
+  }
+}
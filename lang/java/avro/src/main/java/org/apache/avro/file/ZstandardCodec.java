@@ -18,11 +18,17 @@
 package org.apache.avro.file;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.util.NonCopyingByteArrayOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
@@ -35,31 +41,104 @@ public class ZstandardCodec extends Codec {
     private final int compressionLevel;
     private final boolean useChecksum;
     private final boolean useBufferPool;
+    private final byte[] dictionary;
 
     Option(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+      this(compressionLevel, useChecksum, useBufferPool, null);
+    }
+
+    Option(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
       this.compressionLevel = compressionLevel;
       this.useChecksum = useChecksum;
       this.useBufferPool = useBufferPool;
+      this.dictionary = dictionary;
     }
 
     @Override
     protected Codec createInstance() {
-      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool);
+      return new ZstandardCodec(compressionLevel, useChecksum, useBufferPool, dictionary);
     }
   }
 
   private final int compressionLevel;
   private final boolean useChecksum;
   private final boolean useBufferPool;
+  private final byte[] dictionary;
+  private volatile ZstandardLoader.Dictionary digested; // created on first use
 
   /**
    * Create a ZstandardCodec instance with the given compressionLevel, checksum,
    * and bufferPool option
    **/
   public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool) {
+    this(compressionLevel, useChecksum, useBufferPool, null);
+  }
+
+  /**
+   * Create a ZstandardCodec instance that codes every block with a dictionary,
+   * such as one returned by {@link #trainDictionary(List, int)}. Null means no
+   * dictionary.
+   */
+  public ZstandardCodec(int compressionLevel, boolean useChecksum, boolean useBufferPool, byte[] dictionary) {
     this.compressionLevel = compressionLevel;
     this.useChecksum = useChecksum;
     this.useBufferPool = useBufferPool;
+    this.dictionary = dictionary == null ? null : dictionary.clone();
+  }
+
+  /**
+   * Trains a dictionary on sample blocks of uncompressed data. Samples should
+   * look like the blocks that will be compressed; a few hundred samples totalling
+   * around a hundred times the dictionary size work well.
+   *
+   * @param samples           uncompressed sample blocks
+   * @param maxDictionarySize the maximum size of the dictionary, in bytes
+   * @throws IOException if the samples are not enough to train on
+   */
+  public static byte[] trainDictionary(List<ByteBuffer> samples, int maxDictionarySize) throws IOException {
+    byte[][] sampleBytes = new byte[samples.size()][];
+    for (int i = 0; i < sampleBytes.length; i++) {
+      ByteBuffer sample = samples.get(i);
+      sampleBytes[i] = Arrays.copyOfRange(sample.array(), computeOffset(sample),
+          computeOffset(sample) + sample.remaining());
+    }
+    return ZstandardLoader.train(sampleBytes, maxDictionarySize);
+  }
+
+  /**
+   * Trains a dictionary on the blocks of an existing data file, such as one
+   * written earlier by the same writer.
+   *
+   * @param dataFile          a data file, compressed with any codec
+   * @param maxSamples        the maximum number of blocks to sample, from the
+   *                          start of the file
+   * @param maxDictionarySize the maximum size of the dictionary, in bytes
+   * @throws IOException if the file has too few blocks to train on
+   */
+  public static byte[] trainDictionary(File dataFile, int maxSamples, int maxDictionarySize) throws IOException {
+    List<ByteBuffer> samples = new ArrayList<>();
+    try (DataFileStream<Object> blocks = new DataFileStream<>(new FileInputStream(dataFile),
+        new GenericDatumReader<>())) {
+      while (samples.size() < maxSamples && blocks.hasNext()) {
+        // nextBlock() reuses its buffer
+        ByteBuffer block = blocks.nextBlock();
+        samples.add(ByteBuffer
+            .wrap(Arrays.copyOfRange(block.array(), computeOffset(block), computeOffset(block) + block.remaining())));
+      }
+    }
+    return trainDictionary(samples, maxDictionarySize);
+  }
+
+  /** The dictionary every block is coded with, or null. */
+  byte[] getDictionary() {
+    return dictionary;
+  }
+
+  private ZstandardLoader.Dictionary digested() {
+    if (dictionary != null && digested == null) {
+      digested = ZstandardLoader.dictionary(dictionary, compressionLevel);
+    }
+    return digested;
   }
 
   @Override
@@ -69,36 +148,56 @@ public class ZstandardCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
-    try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool)) {
+    return compress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer reuse) throws IOException {
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
+    try (OutputStream outputStream = ZstandardLoader.output(baos, compressionLevel, useChecksum, useBufferPool,
+        digested())) {
       outputStream.write(data.array(), computeOffset(data), data.remaining());
     }
-    return baos.asByteBuffer();
+    return baos.asByteBuffer(reuse);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    NonCopyingByteArrayOutputStream baos = new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    return decompress(compressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer reuse) throws IOException {
+    NonCopyingByteArrayOutputStream baos = outputStream(reuse);
     InputStream bytesIn = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData),
         compressedData.remaining());
-    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool)) {
+    try (InputStream ios = ZstandardLoader.input(bytesIn, useBufferPool, digested())) {
       IOUtils.copy(ios, baos);
     }
-    return baos.asByteBuffer();
+    return baos.asByteBuffer(reuse);
+  }
+
+  // write into reuse when possible, else into a fresh array the caller may keep;
+  // no stream is kept, so instances may be shared
+  private static NonCopyingByteArrayOutputStream outputStream(ByteBuffer reuse) {
+    return isReusable(reuse) ? new NonCopyingByteArrayOutputStream(reuse)
+        : new NonCopyingByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
   }
 
   @Override
   public int hashCode() {
-    return getName().hashCode();
+    return getName().hashCode() * 31 + Arrays.hashCode(dictionary);
   }
 
+  /** Codecs are compatible unless they use different dictionaries. */
   @Override
   public boolean equals(Object obj) {
-    return (this == obj) || (obj != null && obj.getClass() == this.getClass());
+    return (this == obj) || (obj != null && obj.getClass() == this.getClass()
+        && Arrays.equals(dictionary, ((ZstandardCodec) obj).dictionary));
   }
 
   @Override
   public String toString() {
-    return getName() + "[" + compressionLevel + "]";
+    return getName() + "[" + compressionLevel + (dictionary == null ? "" : ", dictionary") + "]";
   }
 }
@@ -20,11 +20,14 @@ package org.apache.avro.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import com.github.luben.zstd.BufferPool;
 import com.github.luben.zstd.NoPool;
 import com.github.luben.zstd.RecyclingBufferPool;
 import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
 import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
 import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
 
@@ -34,17 +37,80 @@ import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
 final class ZstandardLoader {
 
   static InputStream input(InputStream compressed, boolean useBufferPool) throws IOException {
+    return input(compressed, useBufferPool, null);
+  }
+
+  static InputStream input(InputStream compressed, boolean useBufferPool, Dictionary dictionary) throws IOException {
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
-    return new ZstdInputStreamNoFinalizer(compressed, pool);
+    ZstdInputStreamNoFinalizer zstdInputStream = new ZstdInputStreamNoFinalizer(compressed, pool);
+    if (dictionary != null) {
+      zstdInputStream.setDict(dictionary.forDecompression());
+    }
+    return zstdInputStream;
   }
 
   static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool)
       throws IOException {
-    int bounded = Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+    return output(compressed, level, checksum, useBufferPool, null);
+  }
+
+  static OutputStream output(OutputStream compressed, int level, boolean checksum, boolean useBufferPool,
+      Dictionary dictionary) throws IOException {
     BufferPool pool = useBufferPool ? RecyclingBufferPool.INSTANCE : NoPool.INSTANCE;
-    ZstdOutputStreamNoFinalizer zstdOutputStream = new ZstdOutputStreamNoFinalizer(compressed, pool).setLevel(bounded);
+    ZstdOutputStreamNoFinalizer zstdOutputStream = new ZstdOutputStreamNoFinalizer(compressed, pool)
+        .setLevel(bound(level));
     zstdOutputStream.setCloseFrameOnFlush(false);
     zstdOutputStream.setChecksum(checksum);
+    if (dictionary != null) {
+      zstdOutputStream.setDict(dictionary.forCompression());
+    }
     return zstdOutputStream;
   }
+
+  static Dictionary dictionary(byte[] dictionary, int level) {
+    return new Dictionary(dictionary, bound(level));
+  }
+
+  static byte[] train(byte[][] samples, int maxSize) throws IOException {
+    byte[] dictionary = new byte[maxSize];
+    long size = Zstd.trainFromBuffer(samples, dictionary);
+    if (Zstd.isError(size)) {
+      throw new IOException("Zstandard dictionary training failed: " + Zstd.getErrorName(size));
+    }
+    return Arrays.copyOf(dictionary, (int) size);
+  }
+
+  private static int bound(int level) {
+    return Math.max(Math.min(level, Zstd.maxCompressionLevel()), Zstd.minCompressionLevel());
+  }
+
+  /**
+   * A dictionary digested once, on first use in each direction, instead of once
+   * per block.
+   */
+  static final class Dictionary {
+    private final byte[] bytes;
+    private final int level;
+    private ZstdDictCompress compress;
+    private ZstdDictDecompress decompress;
+
+    private Dictionary(byte[] bytes, int level) {
+      this.bytes = bytes;
+      this.level = level;
+    }
+
+    private ZstdDictCompress forCompression() {
+      if (compress == null) {
+        compress = new ZstdDictCompress(bytes, level);
+      }
+      return compress;
+    }
+
+    private ZstdDictDecompress forDecompression() {
+      if (decompress == null) {
+        decompress = new ZstdDictDecompress(bytes);
+      }
+      return decompress;
+    }
+  }
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
+
+/**
+ * Reads datums into a {@link RecordArena}, returning views of them. Datums
+ * written with the arena's schema are copied field by field without creating
+ * objects for them; datums written with another schema are resolved to the
+ * arena's through a {@link GenericDatumReader} first.
+ */
+public class ArenaDatumReader implements DatumReader<RecordArena.Record> {
+  private final RecordArena arena;
+  private GenericDatumReader<IndexedRecord> resolver;
+  private IndexedRecord resolved;
+
+  public ArenaDatumReader(RecordArena arena) {
+    this.arena = arena;
+  }
+
+  /** The arena datums are read into. */
+  public RecordArena getArena() {
+    return arena;
+  }
+
+  @Override
+  public void setSchema(Schema writer) {
+    resolver = arena.getSchema().equals(writer) ? null : new GenericDatumReader<>(writer, arena.getSchema());
+    resolved = null;
+  }
+
+  /**
+   * Read a datum into the arena.
+   *
+   * @param reuse a view of the arena to point at the new record, or null
+   */
+  @Override
+  public RecordArena.Record read(RecordArena.Record reuse, Decoder in) throws IOException {
+    long handle;
+    if (resolver == null) {
+      handle = arena.read(in);
+    } else {
+      resolved = resolver.read(resolved, in);
+      handle = arena.add(resolved);
+    }
+    return arena.get(handle, reuse);
+  }
+}
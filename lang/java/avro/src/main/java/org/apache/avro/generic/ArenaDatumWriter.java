@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+
+/**
+ * Writes records of a {@link RecordArena}. With a {@link BinaryEncoder},
+ * records are encoded straight from the arena: fields of fixed width are read
+ * from their slots and other fields are copied in their stored encoding, so no
+ * objects are created. Other encoders are given the fields decoded, through a
+ * {@link GenericDatumWriter}.
+ */
+public class ArenaDatumWriter implements DatumWriter<RecordArena.Record> {
+  private final RecordArena arena;
+  private final GenericDatumWriter<Object> fallback;
+  private ByteBuffer[] chunks = new ByteBuffer[0]; // duplicates, for bulk reads
+  private int generation;
+  private byte[] scratch = new byte[256];
+
+  public ArenaDatumWriter(RecordArena arena) {
+    this.arena = arena;
+    this.fallback = new GenericDatumWriter<>(arena.getSchema());
+  }
+
+  @Override
+  public void setSchema(Schema schema) {
+    if (!arena.getSchema().equals(schema)) {
+      throw new AvroRuntimeException("Schema does not match the arena's: " + schema);
+    }
+  }
+
+  @Override
+  public void write(RecordArena.Record datum, Encoder out) throws IOException {
+    if (datum.getArena() != arena) {
+      throw new AvroRuntimeException("Record is not in this writer's arena");
+    }
+    datum.checkValid();
+    if (out instanceof BinaryEncoder) {
+      write(datum.getHandle(), out);
+    } else {
+      fallback.write(datum, out);
+    }
+  }
+
+  /** Write the record with a handle to a binary encoder. */
+  public void write(long handle, Encoder out) throws IOException {
+    if (!(out instanceof BinaryEncoder)) {
+      fallback.write(arena.get(handle), out);
+      return;
+    }
+    ByteBuffer chunk = chunk(handle);
+    int base = RecordArena.offset(handle);
+    for (Schema.Field field : arena.getSchema().getFields()) {
+      int pos = field.pos();
+      int offset = base + arena.fieldOffset(pos);
+      switch (field.schema().getType()) {
+      case BOOLEAN:
+        out.writeBoolean(chunk.get(offset) != 0);
+        break;
+      case INT:
+        out.writeInt(chunk.getInt(offset));
+        break;
+      case ENUM:
+        out.writeEnum(chunk.getInt(offset));
+        break;
+      case LONG:
+        out.writeLong(chunk.getLong(offset));
+        break;
+      case FLOAT:
+        out.writeFloat(chunk.getFloat(offset));
+        break;
+      case DOUBLE:
+        out.writeDouble(chunk.getDouble(offset));
+        break;
+      case FIXED:
+        copy(chunk, offset, arena.fieldWidth(pos), out);
+        break;
+      default:
+        copy(chunk, base + chunk.getInt(offset), chunk.getInt(offset + 4), out);
+      }
+    }
+  }
+
+  private void copy(ByteBuffer chunk, int offset, int length, Encoder out) throws IOException {
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, 2 * scratch.length)];
+    }
+    ((Buffer) chunk).position(offset);
+    chunk.get(scratch, 0, length);
+    out.writeFixed(scratch, 0, length);
+  }
+
+  // this writer's duplicate of the chunk of a record, so its position is ours
+  private ByteBuffer chunk(long handle) {
+    if (generation != arena.generation()) {
+      Arrays.fill(chunks, null);
+      generation = arena.generation();
+    }
+    int index = (int) (handle >>> 32);
+    if (index >= chunks.length) {
+      chunks = Arrays.copyOf(chunks, Math.max(index + 1, 2 * chunks.length));
+    }
+    ByteBuffer chunk = chunks[index];
+    if (chunk == null) {
+      chunk = arena.chunk(handle).duplicate();
+      chunks[index] = chunk;
+    }
+    return chunk;
+  }
+}
@@ -55,6 +55,7 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.io.FastReaderBuilder;
 import org.apache.avro.util.Utf8;
+import org.apache.avro.util.WeakIdentityHashMap;
 import org.apache.avro.util.internal.Accessor;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -125,6 +126,28 @@ public class GenericData {
 
   private Map<Class<?>, Map<String, Conversion<?>>> conversionsByClass = new IdentityHashMap<>();
 
+  // for UnionDispatcher, whose cached branches are only valid if the union
+  // resolution is not overridden, and no conversion was added since
+  final boolean unionsByClass = isInherited(getClass(), "resolveUnion", Schema.class, Object.class);
+  int conversionsAdded;
+  private final Map<Schema, UnionDispatcher> unionDispatchers = Collections
+      .synchronizedMap(new WeakIdentityHashMap<>());
+
+  /**
+   * The dispatcher for a union, or null if this resolves unions itself.
+   */
+  UnionDispatcher getUnionDispatcher(Schema union) {
+    if (!unionsByClass) {
+      return null;
+    }
+    UnionDispatcher dispatcher = unionDispatchers.get(union);
+    if (dispatcher == null) {
+      dispatcher = new UnionDispatcher(this, union);
+      unionDispatchers.put(union, dispatcher);
+    }
+    return dispatcher;
+  }
+
   public Collection<Conversion<?>> getConversions() {
     return conversions.values();
   }
@@ -144,6 +167,7 @@ public class GenericData {
       conversionsByClass.put(type, conversions);
     }
     conversions.put(conversion.getLogicalTypeName(), conversion);
+    conversionsAdded++;
   }
 
   /**
@@ -303,30 +327,19 @@ public class GenericData {
     }
   }
 
-  /** Default implementation of an array. */
-  @SuppressWarnings(value = "unchecked")
-  public static class Array<T> extends AbstractList<T> implements GenericArray<T>, Comparable<GenericArray<T>> {
-    private static final Object[] EMPTY = new Object[0];
+  /**
+   * Base of the array implementations, holding the schema and the size, and
+   * iterating with {@link #get(int)}.
+   */
+  public abstract static class AbstractArray<T> extends AbstractList<T>
+      implements GenericArray<T>, Comparable<GenericArray<T>> {
     private final Schema schema;
-    private int size;
-    private Object[] elements = EMPTY;
-
-    public Array(int capacity, Schema schema) {
-      if (schema == null || !Type.ARRAY.equals(schema.getType()))
-        throw new AvroRuntimeException("Not an array schema: " + schema);
-      this.schema = schema;
-      if (capacity != 0)
-        elements = new Object[capacity];
-    }
+    protected int size;
 
-    public Array(Schema schema, Collection<T> c) {
+    protected AbstractArray(Schema schema) {
       if (schema == null || !Type.ARRAY.equals(schema.getType()))
         throw new AvroRuntimeException("Not an array schema: " + schema);
       this.schema = schema;
-      if (c != null) {
-        elements = new Object[c.size()];
-        addAll(c);
-      }
     }
 
     @Override
@@ -340,14 +353,62 @@ public class GenericData {
     }
 
     @Override
-    public void clear() {
-      // Let GC do its work
-      Arrays.fill(elements, 0, size, null);
+    public void reset() {
       size = 0;
     }
 
     @Override
-    public void reset() {
+    public Iterator<T> iterator() {
+      return new Iterator<T>() {
+        private int position = 0;
+
+        @Override
+        public boolean hasNext() {
+          return position < size;
+        }
+
+        @Override
+        public T next() {
+          return get(position++);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override
+    public int compareTo(GenericArray<T> that) {
+      return GenericData.get().compare(this, that, this.getSchema());
+    }
+  }
+
+  /** Default implementation of an array. */
+  @SuppressWarnings(value = "unchecked")
+  public static class Array<T> extends AbstractArray<T> {
+    private static final Object[] EMPTY = new Object[0];
+    private Object[] elements = EMPTY;
+
+    public Array(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0)
+        elements = new Object[capacity];
+    }
+
+    public Array(Schema schema, Collection<T> c) {
+      super(schema);
+      if (c != null) {
+        elements = new Object[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public void clear() {
+      // Let GC do its work
+      Arrays.fill(elements, 0, size, null);
       size = 0;
     }
 
@@ -427,11 +488,6 @@ public class GenericData {
       return (size < elements.length) ? (T) elements[size] : null;
     }
 
-    @Override
-    public int compareTo(GenericArray<T> that) {
-      return GenericData.get().compare(this, that, this.getSchema());
-    }
-
     @Override
     public void reverse() {
       int left = 0;
@@ -896,6 +952,25 @@ public class GenericData {
     throw new UnresolvedUnionException(union, datum);
   }
 
+  /**
+   * Called by the writers to decide whether the union branch found by
+   * {@link #resolveUnion(Schema,Object)} for a datum may be reused for every
+   * datum of the same class, without looking at its value. By default true for
+   * unnamed types, and false for named types, as each generic record, enum symbol
+   * or fixed value holds its own schema. May be overridden by data models whose
+   * values of a class always have the same schema.
+   */
+  protected boolean isResolvedByClass(Object datum, Schema branch) {
+    switch (branch.getType()) {
+    case RECORD:
+    case ENUM:
+    case FIXED:
+      return false;
+    default:
+      return true;
+    }
+  }
+
   /**
    * Return the schema full name for a datum. Called by
    * {@link #resolveUnion(Schema,Object)}.
@@ -1248,6 +1323,9 @@ public class GenericData {
   public <T> T deepCopy(Schema schema, T value) {
     if (value == null)
       return null;
+    if (compiledCopies) {
+      return (T) copier(schema).copy(schema, value);
+    }
     LogicalType logicalType = schema.getLogicalType();
     if (logicalType == null) // not a logical type -- use raw copy
       return (T) deepCopyRaw(schema, value);
@@ -1325,6 +1403,179 @@ public class GenericData {
     }
   }
 
+  /**
+   * Copies a value that is not null, of the schema it was compiled for. The
+   * schema is passed rather than kept, as copiers are cached by weak schema keys.
+   */
+  private interface Copier {
+    Object copy(Schema schema, Object value);
+  }
+
+  private static final Copier IMMUTABLE = (schema, value) -> value;
+
+  // deepCopy is only compiled when not overridden, as the copy of nested values
+  // would then bypass the override
+  private final boolean compiledCopies = isInherited(getClass(), "deepCopy", Schema.class, Object.class);
+  private final Map<Schema, Copier> copiers = Collections.synchronizedMap(new WeakIdentityHashMap<>());
+
+  // true if a public method of this class is not overridden
+  private static boolean isInherited(Class<?> c, String name, Class<?>... parameterTypes) {
+    try {
+      return c.getMethod(name, parameterTypes).getDeclaringClass() == GenericData.class;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The plan to copy values of a schema, compiled once per schema and data model,
+   * so that the type of each part of a value is not switched on for every copy.
+   * Values of immutable types are shared.
+   */
+  private Copier copier(Schema schema) {
+    Copier copier = copiers.get(schema);
+    if (copier == null) {
+      copier = compileCopier(schema, new IdentityHashMap<>());
+      copiers.put(schema, copier);
+    }
+    return copier;
+  }
+
+  private Copier compileCopier(Schema schema, Map<Schema, Copier> compiling) {
+    Copier raw = compileRawCopier(schema, compiling);
+    LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      return raw;
+    }
+    return (s, value) -> {
+      Conversion conversion = getConversionByClass(value.getClass(), logicalType);
+      if (conversion == null) // no conversion defined -- try raw copy
+        return raw.copy(s, value);
+      Object copy = raw.copy(s, Conversions.convertToRawType(value, s, logicalType, conversion));
+      return Conversions.convertToLogicalType(copy, s, logicalType, conversion);
+    };
+  }
+
+  private Copier compileRawCopier(Schema schema, Map<Schema, Copier> compiling) {
+    switch (schema.getType()) {
+    case BOOLEAN:
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+      return IMMUTABLE;
+    case NULL:
+      return (s, value) -> null;
+    case STRING:
+      return (s, value) -> createString(value);
+    case BYTES:
+      return (s, value) -> copyBytes(value);
+    case FIXED:
+      return (s, value) -> createFixed(null, ((GenericFixed) value).bytes(), s);
+    case ENUM:
+      Object symbol = createEnum(schema.getEnumSymbols().get(0), schema);
+      if (symbol instanceof EnumSymbol) {
+        return (s, value) -> (value instanceof EnumSymbol && ((EnumSymbol) value).getSchema().equals(s)) ? value
+            : createEnum(value.toString(), s);
+      }
+      Class<?> enumClass = symbol.getClass();
+      return (s, value) -> (value.getClass() == enumClass && value instanceof Enum) ? value
+          : createEnum(value.toString(), s);
+    case ARRAY:
+      return compileArrayCopier(compileCopier(schema.getElementType(), compiling));
+    case MAP:
+      Copier values = compileCopier(schema.getValueType(), compiling);
+      return (s, value) -> {
+        Schema valueSchema = s.getValueType();
+        Map<Object, Object> map = (Map<Object, Object>) value;
+        Map<Object, Object> copy = new HashMap<>(map.size());
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+          Object key = entry.getKey();
+          Object v = entry.getValue();
+          copy.put((key == null) ? null : createString(key), (v == null) ? null : values.copy(valueSchema, v));
+        }
+        return copy;
+      };
+    case UNION:
+      List<Schema> types = schema.getTypes();
+      Copier[] branches = new Copier[types.size()];
+      for (int i = 0; i < branches.length; i++) {
+        branches[i] = compileCopier(types.get(i), compiling);
+      }
+      return (s, value) -> {
+        int i = resolveUnion(s, value);
+        return branches[i].copy(s.getTypes().get(i), value);
+      };
+    case RECORD:
+      Copier copier = compiling.get(schema);
+      if (copier == null) {
+        RecordCopier record = new RecordCopier(schema.getFields().size());
+        compiling.put(schema, record);
+        for (Field f : schema.getFields()) {
+          record.fieldCopiers[f.pos()] = compileCopier(f.schema(), compiling);
+        }
+        copier = record;
+      }
+      return copier;
+    default:
+      throw new AvroRuntimeException("Deep copy failed for schema \"" + schema + "\"");
+    }
+  }
+
+  private Copier compileArrayCopier(Copier elements) {
+    return (schema, value) -> {
+      Schema elementSchema = schema.getElementType();
+      if (value instanceof PrimitivesArrays.PrimitiveArray && elements == IMMUTABLE
+          && ((PrimitivesArrays.PrimitiveArray) value).elementType() == elementSchema.getType()) {
+        return ((PrimitivesArrays.PrimitiveArray) value).copy(schema);
+      }
+      List<Object> list = (List<Object>) value;
+      List<Object> copy = new GenericData.Array<>(list.size(), schema);
+      if (elements == IMMUTABLE) {
+        copy.addAll(list); // nulls are kept, as they are not copied
+      } else {
+        for (Object element : list) {
+          copy.add((element == null) ? null : elements.copy(elementSchema, element));
+        }
+      }
+      return copy;
+    };
+  }
+
+  private static Object copyBytes(Object value) {
+    ByteBuffer bytes = (ByteBuffer) value;
+    byte[] copy = new byte[bytes.remaining()];
+    if (bytes.hasArray()) {
+      System.arraycopy(bytes.array(), bytes.arrayOffset() + bytes.position(), copy, 0, copy.length);
+    } else {
+      bytes.duplicate().get(copy);
+    }
+    return ByteBuffer.wrap(copy);
+  }
+
+  private final class RecordCopier implements Copier {
+    private final Copier[] fieldCopiers;
+
+    private RecordCopier(int fieldCount) {
+      this.fieldCopiers = new Copier[fieldCount];
+    }
+
+    @Override
+    public Object copy(Schema schema, Object value) {
+      List<Field> fields = schema.getFields();
+      Object oldState = getRecordState(value, schema);
+      Object newRecord = newRecord(null, schema);
+      Object newState = getRecordState(newRecord, schema);
+      for (int pos = 0; pos < fieldCopiers.length; pos++) {
+        Field f = fields.get(pos);
+        String name = f.name();
+        Object field = getField(value, name, pos, oldState);
+        setField(newRecord, name, pos, (field == null) ? null : fieldCopiers[pos].copy(f.schema(), field), newState);
+      }
+      return newRecord;
+    }
+  }
+
   /**
    * Called to create an fixed value. May be overridden for alternate fixed
    * representations. By default, returns {@link GenericFixed}.
@@ -1394,7 +1645,8 @@ public class GenericData {
   /*
    * Called to create new array instances. Subclasses may override to use a
    * different array implementation. By default, this returns a {@link
-   * GenericData.Array}.
+   * GenericData.Array}, or for elements of a primitive type without a logical
+   * type or properties, one of the {@link PrimitivesArrays}.
    */
   public Object newArray(Object old, int size, Schema schema) {
     if (old instanceof GenericArray) {
@@ -1403,7 +1655,9 @@ public class GenericData {
     } else if (old instanceof Collection) {
       ((Collection<?>) old).clear();
       return old;
-    } else
+    } else if (PrimitivesArrays.isPrimitive(schema.getElementType()))
+      return PrimitivesArrays.newArray(size, schema);
+    else
       return new GenericData.Array<Object>(size, schema);
   }
 
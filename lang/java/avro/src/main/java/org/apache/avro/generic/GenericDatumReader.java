@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -35,6 +36,7 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.FastReaderBuilder;
 import org.apache.avro.io.ResolvingDecoder;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
@@ -50,6 +52,12 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   private ResolvingDecoder creatorResolver = null;
   private final Thread creator;
 
+  private boolean allocationFree;
+  // other data models may read maps into fields of other types
+  private final boolean readsReusableMaps;
+  private final Map<Schema, Object[]> enumSymbols = new IdentityHashMap<>();
+  private final Map<Schema, UnionSpares> unionSpares = new IdentityHashMap<>();
+
   public GenericDatumReader() {
     this(null, null, GenericData.get());
   }
@@ -73,6 +81,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   protected GenericDatumReader(GenericData data) {
     this.data = data;
     this.creator = Thread.currentThread();
+    this.readsReusableMaps = FastReaderBuilder.isSupportedData(data);
   }
 
   /** Return the {@link GenericData} implementation. */
@@ -93,6 +102,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
     creatorResolver = null;
     fastDatumReader = null;
+    forgetSpares();
   }
 
   /** Get the reader's schema. */
@@ -104,6 +114,35 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   public void setExpected(Schema reader) {
     this.expected = reader;
     creatorResolver = null;
+    forgetSpares();
+  }
+
+  /**
+   * Read without allocating once every part of the values read has been seen with
+   * its largest size, when each read reuses the result of the previous one. Enum
+   * symbols are interned, the values of union branches replaced by another branch
+   * are kept to be read into when that branch comes back, arrays keep their
+   * elements to read into, and maps, strings and bytes keep their buffers.
+   * Numbers outside arrays are still boxed, strings are still allocated when read
+   * as {@link String}, and logical types are still converted. The fast reader is
+   * not used.
+   *
+   * This reader keeps values between reads in this mode, so must not be shared
+   * between threads.
+   */
+  public void setAllocationFree(boolean allocationFree) {
+    this.allocationFree = allocationFree;
+    forgetSpares();
+  }
+
+  /** True if this reads without allocating. */
+  public boolean isAllocationFree() {
+    return allocationFree;
+  }
+
+  private void forgetSpares() {
+    enumSymbols.clear();
+    unionSpares.clear();
   }
 
   private static final ThreadLocal<Map<Schema, Map<Schema, ResolvingDecoder>>> RESOLVER_CACHE = ThreadLocalWithInitial
@@ -142,7 +181,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   @Override
   @SuppressWarnings("unchecked")
   public D read(D reuse, Decoder in) throws IOException {
-    if (data.isFastReaderEnabled()) {
+    if (data.isFastReaderEnabled() && !allocationFree) {
       if (this.fastDatumReader == null) {
         this.fastDatumReader = data.getFastReaderBuilder().createDatumReader(actual, expected);
       }
@@ -185,6 +224,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     case MAP:
       return readMap(old, expected, in);
     case UNION:
+      if (allocationFree) {
+        return readUnion(old, expected, in);
+      }
       return read(old, expected.getTypes().get(in.readIndex()), in);
     case FIXED:
       return readFixed(old, expected, in);
@@ -229,6 +271,80 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     return Conversions.convertToLogicalType(datum, schema, type, conversion);
   }
 
+  private Object readUnion(Object old, Schema union, ResolvingDecoder in) throws IOException {
+    int branch = in.readIndex();
+    UnionSpares spares = unionSpares.get(union);
+    if (spares == null) {
+      spares = new UnionSpares(union);
+      unionSpares.put(union, spares);
+    }
+    return read(spares.reuse(old, branch), union.getTypes().get(branch), in);
+  }
+
+  /**
+   * Values of the branches of a union that were replaced by a value of another
+   * branch, to be read into when their branch is read again.
+   */
+  private final class UnionSpares {
+    private final Schema union;
+    private final UnionDispatcher dispatcher;
+    private final Object[][] spares;
+    private final int[] counts;
+
+    private UnionSpares(Schema union) {
+      this.union = union;
+      this.dispatcher = data.getUnionDispatcher(union);
+      this.spares = new Object[union.getTypes().size()][];
+      this.counts = new int[spares.length];
+    }
+
+    // the value to read a branch into
+    private Object reuse(Object old, int branch) {
+      if (old != null) {
+        int oldBranch = branchOf(old);
+        if (oldBranch == branch) {
+          return old;
+        }
+        if (oldBranch >= 0 && isMutable(union.getTypes().get(oldBranch))) {
+          Object[] stack = spares[oldBranch];
+          if (stack == null || counts[oldBranch] == stack.length) {
+            spares[oldBranch] = stack = Arrays.copyOf((stack == null) ? new Object[0] : stack,
+                Math.max(4, 2 * counts[oldBranch]));
+          }
+          stack[counts[oldBranch]++] = old;
+        }
+      }
+      if (counts[branch] == 0) {
+        return null;
+      }
+      Object spare = spares[branch][--counts[branch]];
+      spares[branch][counts[branch]] = null;
+      return spare;
+    }
+
+    private int branchOf(Object datum) {
+      try {
+        return (dispatcher != null) ? dispatcher.resolve(union, datum) : data.resolveUnion(union, datum);
+      } catch (AvroRuntimeException e) {
+        return -1;
+      }
+    }
+  }
+
+  private static boolean isMutable(Schema schema) {
+    switch (schema.getType()) {
+    case RECORD:
+    case ARRAY:
+    case MAP:
+    case FIXED:
+    case STRING:
+    case BYTES:
+      return true;
+    default:
+      return false;
+    }
+  }
+
   /**
    * Called to read a record instance. May be overridden for alternate record
    * representations.
@@ -265,6 +381,14 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * representations. By default, returns a GenericEnumSymbol.
    */
   protected Object readEnum(Schema expected, Decoder in) throws IOException {
+    if (allocationFree) {
+      Object[] symbols = enumSymbols.computeIfAbsent(expected, s -> new Object[s.getEnumSymbols().size()]);
+      int i = in.readEnum();
+      if (symbols[i] == null) {
+        symbols[i] = createEnum(expected.getEnumSymbols().get(i), expected);
+      }
+      return symbols[i];
+    }
     return createEnum(expected.getEnumSymbols().get(in.readEnum()), expected);
   }
 
@@ -288,6 +412,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       LogicalType logicalType = expectedType.getLogicalType();
       Conversion<?> conversion = getData().getConversionFor(logicalType);
       Object array = newArray(old, (int) l, expected);
+      if (logicalType == null && array instanceof PrimitivesArrays.PrimitiveArray
+          && ((PrimitivesArrays.PrimitiveArray) array).elementType() == expectedType.getType()
+          && PrimitivesArrays.isPrimitive(expectedType)) {
+        // read unboxed
+        do {
+          ((PrimitivesArrays.PrimitiveArray) array).read(l, in);
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
       do {
         if (logicalType != null && conversion != null) {
           for (long i = 0; i < l; i++) {
@@ -308,7 +441,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   }
 
   private Object pruneArray(Object object) {
-    if (object instanceof GenericArray<?>) {
+    if (object instanceof GenericArray<?> && !allocationFree) { // else keep elements to read into
       ((GenericArray<?>) object).prune();
     }
     return object;
@@ -343,6 +476,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     LogicalType logicalType = eValue.getLogicalType();
     Conversion<?> conversion = getData().getConversionFor(logicalType);
     Object map = newMap(old, (int) l);
+    ReusableMap<?, ?> spares = (map instanceof ReusableMap) ? (ReusableMap<?, ?>) map : null;
     if (l > 0) {
       do {
         if (logicalType != null && conversion != null) {
@@ -350,6 +484,11 @@ public class GenericDatumReader<D> implements DatumReader<D> {
             addToMap(map, readMapKey(null, expected, in),
                 readWithConversion(null, eValue, logicalType, conversion, in));
           }
+        } else if (spares != null) {
+          for (int i = 0; i < l; i++) {
+            addToMap(map, readMapKey(spares.spareKey(), expected, in),
+                readWithoutConversion(spares.spareValue(), eValue, in));
+          }
         } else {
           for (int i = 0; i < l; i++) {
             addToMap(map, readMapKey(null, expected, in), readWithoutConversion(null, eValue, in));
@@ -440,10 +579,18 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   /**
    * Called to create new array instances. Subclasses may override to use a
-   * different map implementation. By default, this returns a {@link HashMap}.
+   * different map implementation. By default, this returns a {@link ReusableMap}
+   * for the generic and specific data models, and a {@link HashMap} for others.
    */
   @SuppressWarnings("unchecked")
   protected Object newMap(Object old, int size) {
+    if (old instanceof ReusableMap) {
+      ((ReusableMap<?, ?>) old).recycle(size);
+      return old;
+    }
+    if (old == null && readsReusableMaps) {
+      return new ReusableMap<>(size);
+    }
     return data.newMap(old, size);
   }
 
@@ -19,6 +19,7 @@ package org.apache.avro.generic;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Map;
@@ -48,6 +49,7 @@ import org.apache.avro.util.SchemaUtil;
 public class GenericDatumWriter<D> implements DatumWriter<D> {
   private final GenericData data;
   private Schema root;
+  private Map<Schema, UnionDispatcher> unions = Collections.emptyMap();
 
   public GenericDatumWriter() {
     this(GenericData.get());
@@ -74,6 +76,7 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   public void setSchema(Schema root) {
     this.root = root;
+    this.unions = UnionDispatcher.forUnions(root, data);
   }
 
   public void write(D datum, Encoder out) throws IOException {
@@ -282,15 +285,22 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
     long actualSize = 0;
     out.writeArrayStart();
     out.setItemCount(size);
-    for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
-      out.startItem();
-      try {
-        write(element, it.next(), out);
-      } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
-        e.tracePath(new ArrayPositionPredicate(actualSize));
-        throw e;
+    if (datum instanceof PrimitivesArrays.PrimitiveArray
+        && ((PrimitivesArrays.PrimitiveArray) datum).elementType() == element.getType()
+        && PrimitivesArrays.isPrimitive(element)) {
+      // write unboxed
+      actualSize = ((PrimitivesArrays.PrimitiveArray) datum).write(out);
+    } else {
+      for (Iterator<? extends Object> it = getArrayElements(datum); it.hasNext();) {
+        out.startItem();
+        try {
+          write(element, it.next(), out);
+        } catch (TracingNullPointException | TracingClassCastException | TracingAvroTypeException e) {
+          e.tracePath(new ArrayPositionPredicate(actualSize));
+          throw e;
+        }
+        actualSize++;
       }
-      actualSize++;
     }
     out.writeArrayEnd();
     if (actualSize != size) {
@@ -301,10 +311,12 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
 
   /**
    * Called to find the index for a datum within a union. By default calls
-   * {@link GenericData#resolveUnion(Schema,Object)}.
+   * {@link GenericData#resolveUnion(Schema,Object)}, remembering the branch found
+   * for each class of datum in the unions of the schema of this writer.
    */
   protected int resolveUnion(Schema union, Object datum) {
-    return data.resolveUnion(union, datum);
+    UnionDispatcher dispatcher = unions.get(union);
+    return (dispatcher != null) ? dispatcher.resolve(union, datum) : data.resolveUnion(union, datum);
   }
 
   /**
@@ -0,0 +1,865 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * Arrays of primitive values, stored unboxed. {@link GenericData#newArray}
+ * creates them for arrays whose elements are {@code int}, {@code long},
+ * {@code float}, {@code double} or {@code boolean} without a logical type, and
+ * {@link GenericDatumReader} and {@link GenericDatumWriter} read and write
+ * their elements without boxing them. They are still lists of boxed values,
+ * which {@link java.util.List} methods box and unbox; the primitive accessors
+ * of each class avoid that. Null elements are not permitted.
+ */
+public final class PrimitivesArrays {
+
+  private PrimitivesArrays() {
+  }
+
+  /** Whether elements of a schema are stored in a primitive array. */
+  static boolean isPrimitive(Schema elementSchema) {
+    if (elementSchema.getLogicalType() != null || elementSchema.hasProps()) {
+      return false;
+    }
+    switch (elementSchema.getType()) {
+    case INT:
+    case LONG:
+    case FLOAT:
+    case DOUBLE:
+    case BOOLEAN:
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  /** Create an empty primitive array for an array schema. */
+  static GenericData.AbstractArray<?> newArray(int capacity, Schema schema) {
+    switch (schema.getElementType().getType()) {
+    case INT:
+      return new IntArray(capacity, schema);
+    case LONG:
+      return new LongArray(capacity, schema);
+    case FLOAT:
+      return new FloatArray(capacity, schema);
+    case DOUBLE:
+      return new DoubleArray(capacity, schema);
+    case BOOLEAN:
+      return new BooleanArray(capacity, schema);
+    default:
+      throw new IllegalArgumentException("Not an array of primitives: " + schema);
+    }
+  }
+
+  /** Reads and writes elements without boxing them. */
+  interface PrimitiveArray {
+    /** The type of the elements. */
+    Schema.Type elementType();
+
+    /** Append {@code count} elements read from a decoder. */
+    void read(long count, Decoder in) throws IOException;
+
+    /**
+     * Write the elements as array items, each started with startItem(), returning
+     * the number written.
+     */
+    int write(Encoder out) throws IOException;
+
+    /** A copy of this array, with a schema. */
+    GenericData.AbstractArray<?> copy(Schema schema);
+  }
+
+  /** An array of {@code int} values. */
+  public static class IntArray extends GenericData.AbstractArray<Integer> implements PrimitiveArray {
+    private static final int[] EMPTY = new int[0];
+    private int[] elements = EMPTY;
+
+    public IntArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0) {
+        elements = new int[capacity];
+      }
+    }
+
+    public IntArray(Schema schema, Collection<Integer> c) {
+      super(schema);
+      if (c != null) {
+        elements = new int[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Schema.Type elementType() {
+      return Schema.Type.INT;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public Integer get(int i) {
+      return getInt(i);
+    }
+
+    /** Return an element, without boxing it. */
+    public int getInt(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      return elements[i];
+    }
+
+    @Override
+    public void add(int location, Integer o) {
+      addInt(location, o);
+    }
+
+    /** Append an element. */
+    public void addInt(int o) {
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      elements[size++] = o;
+    }
+
+    /** Insert an element at a position. */
+    public void addInt(int location, int o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      elements[location] = o;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Integer set(int i, Integer o) {
+      return setInt(i, o);
+    }
+
+    /** Replace an element, returning the previous one. */
+    public int setInt(int i, int o) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      int response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override
+    public Integer remove(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      int result = elements[i];
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, (size - i));
+      modCount++;
+      return result;
+    }
+
+    @Override
+    public Integer peek() {
+      return null;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        int tmp = elements[left];
+        elements[left] = elements[right];
+        elements[right] = tmp;
+      }
+    }
+
+    @Override
+    public IntArray copy(Schema schema) {
+      IntArray copy = new IntArray(0, schema);
+      copy.elements = Arrays.copyOf(elements, size);
+      copy.size = size;
+      return copy;
+    }
+
+    /** Copy the elements into a new array. */
+    public int[] toIntArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(long capacity) {
+      // Increase size by 1.5x + 1
+      long newSize = Math.max(capacity, size + (size >> 1) + 1);
+      if (newSize > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Array too large: " + capacity);
+      }
+      elements = Arrays.copyOf(elements, (int) newSize);
+    }
+
+    @Override
+    public void read(long count, Decoder in) throws IOException {
+      if (size + count > elements.length) {
+        grow(size + count);
+      }
+      for (long i = 0; i < count; i++) {
+        elements[size++] = in.readInt();
+      }
+    }
+
+    @Override
+    public int write(Encoder out) throws IOException {
+      int i = 0;
+      for (; i < size; i++) {
+        out.startItem();
+        out.writeInt(elements[i]);
+      }
+      return i;
+    }
+  }
+
+  /** An array of {@code long} values. */
+  public static class LongArray extends GenericData.AbstractArray<Long> implements PrimitiveArray {
+    private static final long[] EMPTY = new long[0];
+    private long[] elements = EMPTY;
+
+    public LongArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0) {
+        elements = new long[capacity];
+      }
+    }
+
+    public LongArray(Schema schema, Collection<Long> c) {
+      super(schema);
+      if (c != null) {
+        elements = new long[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Schema.Type elementType() {
+      return Schema.Type.LONG;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public Long get(int i) {
+      return getLong(i);
+    }
+
+    /** Return an element, without boxing it. */
+    public long getLong(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      return elements[i];
+    }
+
+    @Override
+    public void add(int location, Long o) {
+      addLong(location, o);
+    }
+
+    /** Append an element. */
+    public void addLong(long o) {
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      elements[size++] = o;
+    }
+
+    /** Insert an element at a position. */
+    public void addLong(int location, long o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      elements[location] = o;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Long set(int i, Long o) {
+      return setLong(i, o);
+    }
+
+    /** Replace an element, returning the previous one. */
+    public long setLong(int i, long o) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      long response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override
+    public Long remove(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      long result = elements[i];
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, (size - i));
+      modCount++;
+      return result;
+    }
+
+    @Override
+    public Long peek() {
+      return null;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        long tmp = elements[left];
+        elements[left] = elements[right];
+        elements[right] = tmp;
+      }
+    }
+
+    @Override
+    public LongArray copy(Schema schema) {
+      LongArray copy = new LongArray(0, schema);
+      copy.elements = Arrays.copyOf(elements, size);
+      copy.size = size;
+      return copy;
+    }
+
+    /** Copy the elements into a new array. */
+    public long[] toLongArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(long capacity) {
+      // Increase size by 1.5x + 1
+      long newSize = Math.max(capacity, size + (size >> 1) + 1);
+      if (newSize > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Array too large: " + capacity);
+      }
+      elements = Arrays.copyOf(elements, (int) newSize);
+    }
+
+    @Override
+    public void read(long count, Decoder in) throws IOException {
+      if (size + count > elements.length) {
+        grow(size + count);
+      }
+      for (long i = 0; i < count; i++) {
+        elements[size++] = in.readLong();
+      }
+    }
+
+    @Override
+    public int write(Encoder out) throws IOException {
+      int i = 0;
+      for (; i < size; i++) {
+        out.startItem();
+        out.writeLong(elements[i]);
+      }
+      return i;
+    }
+  }
+
+  /** An array of {@code float} values. */
+  public static class FloatArray extends GenericData.AbstractArray<Float> implements PrimitiveArray {
+    private static final float[] EMPTY = new float[0];
+    private float[] elements = EMPTY;
+
+    public FloatArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0) {
+        elements = new float[capacity];
+      }
+    }
+
+    public FloatArray(Schema schema, Collection<Float> c) {
+      super(schema);
+      if (c != null) {
+        elements = new float[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Schema.Type elementType() {
+      return Schema.Type.FLOAT;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public Float get(int i) {
+      return getFloat(i);
+    }
+
+    /** Return an element, without boxing it. */
+    public float getFloat(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      return elements[i];
+    }
+
+    @Override
+    public void add(int location, Float o) {
+      addFloat(location, o);
+    }
+
+    /** Append an element. */
+    public void addFloat(float o) {
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      elements[size++] = o;
+    }
+
+    /** Insert an element at a position. */
+    public void addFloat(int location, float o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      elements[location] = o;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Float set(int i, Float o) {
+      return setFloat(i, o);
+    }
+
+    /** Replace an element, returning the previous one. */
+    public float setFloat(int i, float o) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      float response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override
+    public Float remove(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      float result = elements[i];
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, (size - i));
+      modCount++;
+      return result;
+    }
+
+    @Override
+    public Float peek() {
+      return null;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        float tmp = elements[left];
+        elements[left] = elements[right];
+        elements[right] = tmp;
+      }
+    }
+
+    @Override
+    public FloatArray copy(Schema schema) {
+      FloatArray copy = new FloatArray(0, schema);
+      copy.elements = Arrays.copyOf(elements, size);
+      copy.size = size;
+      return copy;
+    }
+
+    /** Copy the elements into a new array. */
+    public float[] toFloatArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(long capacity) {
+      // Increase size by 1.5x + 1
+      long newSize = Math.max(capacity, size + (size >> 1) + 1);
+      if (newSize > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Array too large: " + capacity);
+      }
+      elements = Arrays.copyOf(elements, (int) newSize);
+    }
+
+    @Override
+    public void read(long count, Decoder in) throws IOException {
+      if (size + count > elements.length) {
+        grow(size + count);
+      }
+      for (long i = 0; i < count; i++) {
+        elements[size++] = in.readFloat();
+      }
+    }
+
+    @Override
+    public int write(Encoder out) throws IOException {
+      int i = 0;
+      for (; i < size; i++) {
+        out.startItem();
+        out.writeFloat(elements[i]);
+      }
+      return i;
+    }
+  }
+
+  /** An array of {@code double} values. */
+  public static class DoubleArray extends GenericData.AbstractArray<Double> implements PrimitiveArray {
+    private static final double[] EMPTY = new double[0];
+    private double[] elements = EMPTY;
+
+    public DoubleArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0) {
+        elements = new double[capacity];
+      }
+    }
+
+    public DoubleArray(Schema schema, Collection<Double> c) {
+      super(schema);
+      if (c != null) {
+        elements = new double[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Schema.Type elementType() {
+      return Schema.Type.DOUBLE;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public Double get(int i) {
+      return getDouble(i);
+    }
+
+    /** Return an element, without boxing it. */
+    public double getDouble(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      return elements[i];
+    }
+
+    @Override
+    public void add(int location, Double o) {
+      addDouble(location, o);
+    }
+
+    /** Append an element. */
+    public void addDouble(double o) {
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      elements[size++] = o;
+    }
+
+    /** Insert an element at a position. */
+    public void addDouble(int location, double o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      elements[location] = o;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Double set(int i, Double o) {
+      return setDouble(i, o);
+    }
+
+    /** Replace an element, returning the previous one. */
+    public double setDouble(int i, double o) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      double response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override
+    public Double remove(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      double result = elements[i];
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, (size - i));
+      modCount++;
+      return result;
+    }
+
+    @Override
+    public Double peek() {
+      return null;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        double tmp = elements[left];
+        elements[left] = elements[right];
+        elements[right] = tmp;
+      }
+    }
+
+    @Override
+    public DoubleArray copy(Schema schema) {
+      DoubleArray copy = new DoubleArray(0, schema);
+      copy.elements = Arrays.copyOf(elements, size);
+      copy.size = size;
+      return copy;
+    }
+
+    /** Copy the elements into a new array. */
+    public double[] toDoubleArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(long capacity) {
+      // Increase size by 1.5x + 1
+      long newSize = Math.max(capacity, size + (size >> 1) + 1);
+      if (newSize > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Array too large: " + capacity);
+      }
+      elements = Arrays.copyOf(elements, (int) newSize);
+    }
+
+    @Override
+    public void read(long count, Decoder in) throws IOException {
+      if (size + count > elements.length) {
+        grow(size + count);
+      }
+      for (long i = 0; i < count; i++) {
+        elements[size++] = in.readDouble();
+      }
+    }
+
+    @Override
+    public int write(Encoder out) throws IOException {
+      int i = 0;
+      for (; i < size; i++) {
+        out.startItem();
+        out.writeDouble(elements[i]);
+      }
+      return i;
+    }
+  }
+
+  /** An array of {@code boolean} values. */
+  public static class BooleanArray extends GenericData.AbstractArray<Boolean> implements PrimitiveArray {
+    private static final boolean[] EMPTY = new boolean[0];
+    private boolean[] elements = EMPTY;
+
+    public BooleanArray(int capacity, Schema schema) {
+      super(schema);
+      if (capacity != 0) {
+        elements = new boolean[capacity];
+      }
+    }
+
+    public BooleanArray(Schema schema, Collection<Boolean> c) {
+      super(schema);
+      if (c != null) {
+        elements = new boolean[c.size()];
+        addAll(c);
+      }
+    }
+
+    @Override
+    public Schema.Type elementType() {
+      return Schema.Type.BOOLEAN;
+    }
+
+    @Override
+    public void clear() {
+      size = 0;
+    }
+
+    @Override
+    public Boolean get(int i) {
+      return getBoolean(i);
+    }
+
+    /** Return an element, without boxing it. */
+    public boolean getBoolean(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      return elements[i];
+    }
+
+    @Override
+    public void add(int location, Boolean o) {
+      addBoolean(location, o);
+    }
+
+    /** Append an element. */
+    public void addBoolean(boolean o) {
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      elements[size++] = o;
+    }
+
+    /** Insert an element at a position. */
+    public void addBoolean(int location, boolean o) {
+      if (location > size || location < 0) {
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      }
+      if (size == elements.length) {
+        grow(size + 1);
+      }
+      System.arraycopy(elements, location, elements, location + 1, size - location);
+      elements[location] = o;
+      size++;
+      modCount++;
+    }
+
+    @Override
+    public Boolean set(int i, Boolean o) {
+      return setBoolean(i, o);
+    }
+
+    /** Replace an element, returning the previous one. */
+    public boolean setBoolean(int i, boolean o) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      boolean response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override
+    public Boolean remove(int i) {
+      if (i >= size) {
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+      }
+      boolean result = elements[i];
+      --size;
+      System.arraycopy(elements, i + 1, elements, i, (size - i));
+      modCount++;
+      return result;
+    }
+
+    @Override
+    public Boolean peek() {
+      return null;
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--) {
+        boolean tmp = elements[left];
+        elements[left] = elements[right];
+        elements[right] = tmp;
+      }
+    }
+
+    @Override
+    public BooleanArray copy(Schema schema) {
+      BooleanArray copy = new BooleanArray(0, schema);
+      copy.elements = Arrays.copyOf(elements, size);
+      copy.size = size;
+      return copy;
+    }
+
+    /** Copy the elements into a new array. */
+    public boolean[] toBooleanArray() {
+      return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(long capacity) {
+      // Increase size by 1.5x + 1
+      long newSize = Math.max(capacity, size + (size >> 1) + 1);
+      if (newSize > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Array too large: " + capacity);
+      }
+      elements = Arrays.copyOf(elements, (int) newSize);
+    }
+
+    @Override
+    public void read(long count, Decoder in) throws IOException {
+      if (size + count > elements.length) {
+        grow(size + count);
+      }
+      for (long i = 0; i < count; i++) {
+        elements[size++] = in.readBoolean();
+      }
+    }
+
+    @Override
+    public int write(Encoder out) throws IOException {
+      int i = 0;
+      for (; i < size; i++) {
+        out.startItem();
+        out.writeBoolean(elements[i]);
+      }
+      return i;
+    }
+  }
+}
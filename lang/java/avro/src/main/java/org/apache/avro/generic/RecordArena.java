@@ -0,0 +1,644 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.NonCopyingByteArrayOutputStream;
+import org.apache.avro.util.Utf8;
+
+/**
+ * Stores records of a schema outside the Java heap, in direct buffers allocated
+ * in large chunks, so that holding many records costs the garbage collector
+ * nothing. All the records of an arena are released at once, by
+ * {@link #reset()} or {@link #close()}.
+ *
+ * Records are laid out by their schema: fields of fixed width ({@code int},
+ * {@code long}, {@code float}, {@code double}, {@code boolean}, {@code enum}
+ * and {@code fixed}) are stored at fixed offsets, and other fields in their
+ * binary encoding after them. A record is identified by a {@code long} handle,
+ * returned when it is added, which can be kept in primitive collections; a
+ * {@link Record} is a view of the record with a handle, through which fields of
+ * fixed width are read and updated in place. Other fields are decoded when
+ * read, and cannot be updated.
+ *
+ * Records are added with {@link #read(Decoder)}, which copies a datum from a
+ * decoder field by field without creating objects for it, or from heap records
+ * with {@link #add(IndexedRecord)}. {@link ArenaDatumReader} and
+ * {@link ArenaDatumWriter} read and write records in an arena with data files
+ * and other users of {@link org.apache.avro.io.DatumReader} and
+ * {@link org.apache.avro.io.DatumWriter}, the writer encoding records straight
+ * from the arena.
+ *
+ * Adding records is not thread safe, but records can be read from any number of
+ * threads while none are added. Handles and views must not be used once the
+ * arena is reset or closed; views check this. Direct buffers are freed by the
+ * garbage collector once the arena no longer refers to them.
+ */
+public class RecordArena implements Closeable {
+  public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  private static final int VARIABLE = -1; // width of fields stored encoded
+
+  private final Schema schema;
+  private final int chunkSize;
+  private final int[] offsets; // of each field in the fixed part
+  private final int[] widths; // of each field, or VARIABLE
+  private final int fixedSize;
+  private final GenericDatumReader<Object>[] fieldReaders;
+  private final GenericDatumWriter<Object>[] fieldWriters;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+  private final Deque<ByteBuffer> free = new ArrayDeque<>();
+  private int current = -1; // index of the chunk being filled
+  private int position; // in the current chunk
+  private long used;
+  private long count;
+  private int generation;
+  private boolean closed;
+
+  // scratch space for adding records
+  private final ByteBuffer fixed;
+  private final NonCopyingByteArrayOutputStream variable = new NonCopyingByteArrayOutputStream(256);
+  private BinaryEncoder encoder;
+  private Utf8 string;
+  private ByteBuffer bytes;
+  private byte[] fixedBytes = new byte[0];
+
+  /** Create an arena for records of a schema, with chunks of 1 MB. */
+  public RecordArena(Schema schema) {
+    this(schema, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Create an arena for records of a schema.
+   *
+   * @param chunkSize the size of the direct buffers to allocate; larger records
+   *                  get a buffer of their own
+   */
+  @SuppressWarnings("unchecked")
+  public RecordArena(Schema schema, int chunkSize) {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new AvroRuntimeException("Not a record schema: " + schema);
+    }
+    if (chunkSize < 64) {
+      throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+    }
+    this.schema = schema;
+    this.chunkSize = chunkSize;
+    List<Schema.Field> fields = schema.getFields();
+    this.offsets = new int[fields.size()];
+    this.widths = new int[fields.size()];
+    this.fieldReaders = new GenericDatumReader[fields.size()];
+    this.fieldWriters = new GenericDatumWriter[fields.size()];
+    int offset = 0;
+    for (Schema.Field field : fields) {
+      int width = width(field.schema());
+      offsets[field.pos()] = offset;
+      widths[field.pos()] = width;
+      offset += (width == VARIABLE) ? 8 : width; // offset and length of encoding
+      if (width == VARIABLE) {
+        fieldReaders[field.pos()] = new GenericDatumReader<>(field.schema(), field.schema(), GenericData.get());
+        fieldWriters[field.pos()] = new GenericDatumWriter<>(field.schema(), GenericData.get());
+      }
+    }
+    this.fixedSize = offset;
+    this.fixed = ByteBuffer.allocate(fixedSize);
+  }
+
+  private static int width(Schema schema) {
+    switch (schema.getType()) {
+    case BOOLEAN:
+      return 1;
+    case INT:
+    case FLOAT:
+    case ENUM:
+      return 4;
+    case LONG:
+    case DOUBLE:
+      return 8;
+    case FIXED:
+      return schema.getFixedSize();
+    default:
+      return VARIABLE;
+    }
+  }
+
+  /** The schema of the records. */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /** The number of records added since the arena was created or reset. */
+  public long getRecordCount() {
+    return count;
+  }
+
+  /** The bytes taken by the records. */
+  public long getUsedBytes() {
+    return used;
+  }
+
+  /** The bytes of the direct buffers held, including any free for reuse. */
+  public long getAllocatedBytes() {
+    long allocated = 0;
+    for (ByteBuffer chunk : chunks) {
+      allocated += chunk.capacity();
+    }
+    for (ByteBuffer chunk : free) {
+      allocated += chunk.capacity();
+    }
+    return allocated;
+  }
+
+  /**
+   * Decode a record of this arena's schema and add it, copying its fields without
+   * creating objects for them.
+   *
+   * @return the handle of the record
+   */
+  public long read(Decoder in) throws IOException {
+    checkOpen();
+    ((Buffer) fixed).clear();
+    variable.reset();
+    encoder = EncoderFactory.get().directBinaryEncoder(variable, encoder);
+    for (Schema.Field field : schema.getFields()) {
+      int pos = field.pos();
+      Schema s = field.schema();
+      switch (s.getType()) {
+      case BOOLEAN:
+        fixed.put(offsets[pos], (byte) (in.readBoolean() ? 1 : 0));
+        break;
+      case INT:
+        fixed.putInt(offsets[pos], in.readInt());
+        break;
+      case ENUM:
+        fixed.putInt(offsets[pos], in.readEnum());
+        break;
+      case LONG:
+        fixed.putLong(offsets[pos], in.readLong());
+        break;
+      case FLOAT:
+        fixed.putFloat(offsets[pos], in.readFloat());
+        break;
+      case DOUBLE:
+        fixed.putDouble(offsets[pos], in.readDouble());
+        break;
+      case FIXED:
+        in.readFixed(fixed.array(), offsets[pos], widths[pos]);
+        break;
+      default:
+        int start = variable.size();
+        copy(s, in, encoder);
+        fixed.putInt(offsets[pos], fixedSize + start); // from the record start
+        fixed.putInt(offsets[pos] + 4, variable.size() - start);
+      }
+    }
+    return store();
+  }
+
+  // copy a datum from a decoder to an encoder
+  private void copy(Schema s, Decoder in, Encoder out) throws IOException {
+    switch (s.getType()) {
+    case NULL:
+      in.readNull();
+      out.writeNull();
+      break;
+    case BOOLEAN:
+      out.writeBoolean(in.readBoolean());
+      break;
+    case INT:
+      out.writeInt(in.readInt());
+      break;
+    case LONG:
+      out.writeLong(in.readLong());
+      break;
+    case FLOAT:
+      out.writeFloat(in.readFloat());
+      break;
+    case DOUBLE:
+      out.writeDouble(in.readDouble());
+      break;
+    case ENUM:
+      out.writeEnum(in.readEnum());
+      break;
+    case STRING:
+      string = in.readString(string);
+      out.writeString(string);
+      break;
+    case BYTES:
+      bytes = in.readBytes(bytes);
+      out.writeBytes(bytes);
+      break;
+    case FIXED:
+      if (fixedBytes.length < s.getFixedSize()) {
+        fixedBytes = new byte[s.getFixedSize()];
+      }
+      in.readFixed(fixedBytes, 0, s.getFixedSize());
+      out.writeFixed(fixedBytes, 0, s.getFixedSize());
+      break;
+    case ARRAY:
+      out.writeArrayStart();
+      for (long n = in.readArrayStart(); n > 0; n = in.arrayNext()) {
+        out.setItemCount(n);
+        for (long i = 0; i < n; i++) {
+          out.startItem();
+          copy(s.getElementType(), in, out);
+        }
+      }
+      out.writeArrayEnd();
+      break;
+    case MAP:
+      out.writeMapStart();
+      for (long n = in.readMapStart(); n > 0; n = in.mapNext()) {
+        out.setItemCount(n);
+        for (long i = 0; i < n; i++) {
+          out.startItem();
+          string = in.readString(string);
+          out.writeString(string);
+          copy(s.getValueType(), in, out);
+        }
+      }
+      out.writeMapEnd();
+      break;
+    case UNION:
+      int branch = in.readIndex();
+      out.writeIndex(branch);
+      copy(s.getTypes().get(branch), in, out);
+      break;
+    case RECORD:
+      for (Schema.Field field : s.getFields()) {
+        copy(field.schema(), in, out);
+      }
+      break;
+    default:
+      throw new AvroRuntimeException("Unexpected schema: " + s);
+    }
+  }
+
+  /**
+   * Add a copy of a record of this arena's schema.
+   *
+   * @return the handle of the record
+   */
+  public long add(IndexedRecord record) throws IOException {
+    checkOpen();
+    ((Buffer) fixed).clear();
+    variable.reset();
+    encoder = EncoderFactory.get().directBinaryEncoder(variable, encoder);
+    for (Schema.Field field : schema.getFields()) {
+      int pos = field.pos();
+      if (widths[pos] == VARIABLE) {
+        int start = variable.size();
+        fieldWriters[pos].write(record.get(pos), encoder);
+        fixed.putInt(offsets[pos], fixedSize + start); // from the record start
+        fixed.putInt(offsets[pos] + 4, variable.size() - start);
+      } else {
+        putFixed(fixed, offsets[pos], field, record.get(pos));
+      }
+    }
+    return store();
+  }
+
+  private static void putFixed(ByteBuffer buffer, int offset, Schema.Field field, Object value) {
+    Schema s = field.schema();
+    switch (s.getType()) {
+    case BOOLEAN:
+      buffer.put(offset, (byte) (((Boolean) value) ? 1 : 0));
+      break;
+    case INT:
+      buffer.putInt(offset, ((Number) value).intValue());
+      break;
+    case ENUM:
+      buffer.putInt(offset, s.getEnumOrdinal(value.toString()));
+      break;
+    case LONG:
+      buffer.putLong(offset, ((Number) value).longValue());
+      break;
+    case FLOAT:
+      buffer.putFloat(offset, ((Number) value).floatValue());
+      break;
+    case DOUBLE:
+      buffer.putDouble(offset, ((Number) value).doubleValue());
+      break;
+    case FIXED:
+      byte[] b = ((GenericFixed) value).bytes();
+      if (b.length != s.getFixedSize()) {
+        throw new AvroRuntimeException("Fixed " + field.name() + " is " + b.length + " bytes, not " + s.getFixedSize());
+      }
+      for (int i = 0; i < b.length; i++) {
+        buffer.put(offset + i, b[i]);
+      }
+      break;
+    default:
+      throw new AvroRuntimeException("Not a field of fixed width: " + field);
+    }
+  }
+
+  // copy the scratch record into the arena
+  private long store() {
+    int variableSize = variable.size();
+    if (variableSize > Integer.MAX_VALUE - fixedSize) {
+      throw new AvroRuntimeException("Record too large: " + variableSize + " bytes");
+    }
+    int size = fixedSize + variableSize;
+    ByteBuffer chunk;
+    int chunkIndex;
+    int offset;
+    if (size > chunkSize) { // a chunk of its own
+      chunk = ByteBuffer.allocateDirect(size);
+      chunks.add(chunk);
+      chunkIndex = chunks.size() - 1;
+      offset = 0;
+    } else {
+      if (current < 0 || chunkSize - position < size) {
+        ByteBuffer next = free.poll();
+        chunks.add((next != null) ? next : ByteBuffer.allocateDirect(chunkSize));
+        current = chunks.size() - 1;
+        position = 0;
+      }
+      chunkIndex = current;
+      chunk = chunks.get(current);
+      offset = position;
+      position += size;
+    }
+    ((Buffer) chunk).position(offset);
+    chunk.put(fixed.array(), 0, fixedSize);
+    chunk.put(variable.asByteBuffer());
+    used += size;
+    count++;
+    return ((long) chunkIndex << 32) | offset;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Arena is closed");
+    }
+  }
+
+  ByteBuffer chunk(long handle) {
+    return chunks.get((int) (handle >>> 32));
+  }
+
+  int generation() {
+    return generation;
+  }
+
+  static int offset(long handle) {
+    return (int) handle;
+  }
+
+  int fieldOffset(int pos) {
+    return offsets[pos];
+  }
+
+  int fieldWidth(int pos) {
+    return widths[pos];
+  }
+
+  /** A new view of a record. */
+  public Record get(long handle) {
+    return get(handle, null);
+  }
+
+  /**
+   * A view of a record.
+   *
+   * @param reuse a view of this arena to point at the record, or null
+   */
+  public Record get(long handle, Record reuse) {
+    checkOpen();
+    Record view = (reuse != null && reuse.arena == this) ? reuse : new Record(this);
+    view.chunk = chunk(handle);
+    view.base = offset(handle);
+    view.handle = handle;
+    view.generation = generation;
+    return view;
+  }
+
+  /**
+   * Release all records, keeping the standard-size buffers to store new ones.
+   */
+  public void reset() {
+    checkOpen();
+    for (ByteBuffer chunk : chunks) {
+      if (chunk.capacity() == chunkSize) {
+        free.add(chunk);
+      }
+    }
+    chunks.clear();
+    current = -1;
+    used = 0;
+    count = 0;
+    generation++;
+  }
+
+  /** Release all records and buffers. */
+  @Override
+  public void close() {
+    chunks.clear();
+    free.clear();
+    current = -1;
+    used = 0;
+    count = 0;
+    generation++;
+    closed = true;
+  }
+
+  /**
+   * A view of a record in an arena. Fields of fixed width can be read without
+   * boxing with the typed getters and updated with {@link #put(int, Object)};
+   * other fields are decoded each time they are read.
+   */
+  public static final class Record implements IndexedRecord, GenericRecord, Comparable<Record> {
+    private final RecordArena arena;
+    private ByteBuffer chunk;
+    private int base;
+    private long handle;
+    private int generation;
+
+    private Record(RecordArena arena) {
+      this.arena = arena;
+    }
+
+    /** The handle of the record. */
+    public long getHandle() {
+      return handle;
+    }
+
+    /** The arena holding the record. */
+    public RecordArena getArena() {
+      return arena;
+    }
+
+    void checkValid() {
+      if (generation != arena.generation) {
+        throw new IllegalStateException("Arena was reset or closed");
+      }
+    }
+
+    @Override
+    public Schema getSchema() {
+      return arena.schema;
+    }
+
+    private int fixedOffset(int i, Schema.Type type) {
+      checkValid();
+      Schema.Field field = arena.schema.getFields().get(i);
+      if (field.schema().getType() != type) {
+        throw new AvroRuntimeException("Field " + field.name() + " is not " + type + ": " + field.schema());
+      }
+      return base + arena.offsets[i];
+    }
+
+    public int getInt(int i) {
+      return chunk.getInt(fixedOffset(i, Schema.Type.INT));
+    }
+
+    public long getLong(int i) {
+      return chunk.getLong(fixedOffset(i, Schema.Type.LONG));
+    }
+
+    public float getFloat(int i) {
+      return chunk.getFloat(fixedOffset(i, Schema.Type.FLOAT));
+    }
+
+    public double getDouble(int i) {
+      return chunk.getDouble(fixedOffset(i, Schema.Type.DOUBLE));
+    }
+
+    public boolean getBoolean(int i) {
+      return chunk.get(fixedOffset(i, Schema.Type.BOOLEAN)) != 0;
+    }
+
+    /** The ordinal of the symbol of an enum field. */
+    public int getEnumOrdinal(int i) {
+      return chunk.getInt(fixedOffset(i, Schema.Type.ENUM));
+    }
+
+    @Override
+    public Object get(int i) {
+      checkValid();
+      Schema s = arena.schema.getFields().get(i).schema();
+      int offset = base + arena.offsets[i];
+      switch (s.getType()) {
+      case BOOLEAN:
+        return chunk.get(offset) != 0;
+      case INT:
+        return chunk.getInt(offset);
+      case LONG:
+        return chunk.getLong(offset);
+      case FLOAT:
+        return chunk.getFloat(offset);
+      case DOUBLE:
+        return chunk.getDouble(offset);
+      case ENUM:
+        return new GenericData.EnumSymbol(s, s.getEnumSymbols().get(chunk.getInt(offset)));
+      case FIXED:
+        byte[] b = new byte[s.getFixedSize()];
+        ByteBuffer in = chunk.duplicate();
+        ((Buffer) in).position(offset);
+        in.get(b);
+        return new GenericData.Fixed(s, b);
+      default:
+        byte[] encoded = new byte[chunk.getInt(offset + 4)];
+        ByteBuffer data = chunk.duplicate();
+        ((Buffer) data).position(base + chunk.getInt(offset));
+        data.get(encoded);
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(encoded, null);
+        try {
+          return arena.fieldReaders[i].read(null, decoder);
+        } catch (IOException e) {
+          throw new AvroRuntimeException(e);
+        }
+      }
+    }
+
+    @Override
+    public Object get(String key) {
+      Schema.Field field = arena.schema.getField(key);
+      return (field == null) ? null : get(field.pos());
+    }
+
+    /**
+     * Update a field of fixed width in place.
+     *
+     * @throws UnsupportedOperationException for other fields
+     */
+    @Override
+    public void put(int i, Object v) {
+      checkValid();
+      Schema.Field field = arena.schema.getFields().get(i);
+      if (arena.widths[i] == VARIABLE) {
+        throw new UnsupportedOperationException("Field " + field.name() + " cannot be updated in an arena");
+      }
+      putFixed(chunk, base + arena.offsets[i], field, v);
+    }
+
+    @Override
+    public void put(String key, Object v) {
+      Schema.Field field = arena.schema.getField(key);
+      if (field == null) {
+        throw new AvroRuntimeException("Not a valid schema field: " + key);
+      }
+      put(field.pos(), v);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof IndexedRecord)) {
+        return false;
+      }
+      IndexedRecord that = (IndexedRecord) o;
+      return arena.schema.equals(that.getSchema()) && GenericData.get().compare(this, that, arena.schema, true) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return GenericData.get().hashCode(this, arena.schema);
+    }
+
+    @Override
+    public int compareTo(Record that) {
+      return GenericData.get().compare(this, that, arena.schema);
+    }
+
+    @Override
+    public String toString() {
+      return GenericData.get().toString(this);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.avro.util.Utf8;
+
+/**
+ * A map for decoded Avro maps, whose keys are strings, usually {@link Utf8}s.
+ * It holds its keys and values in arrays, indexed by an open addressing hash
+ * table of ints with linear probing, so that adding an entry does not allocate
+ * once its arrays are large enough, and finding one compares the cached hash
+ * codes of the keys before the keys themselves.
+ *
+ * {@link GenericDatumReader} and the fast reader read maps of the generic and
+ * specific data models into this, sized from the count of the first block of
+ * entries, up to a limit, since that count is not trusted. A map that is reused
+ * is read into in place, with its keys and values read into those of the
+ * entries it held.
+ *
+ * Iteration is in the order entries were added, until one is removed, which
+ * moves the last entry in its place.
+ */
+public class ReusableMap<K, V> extends AbstractMap<K, V> {
+  private static final int MIN_CAPACITY = 4;
+  // capacities usually come from counts in the data, which are not trusted
+  private static final int MAX_PRESIZE = 1 << 16;
+  private static final int MAX_CAPACITY = 1 << 29; // the largest whose table fits
+
+  private Object[] keys;
+  private Object[] values;
+  private int[] hashes;
+  private int[] table; // index of an entry plus one, or zero if free
+  private int size;
+  private int modCount;
+
+  public ReusableMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Make a map that holds {@code capacity} entries before growing, up to 65536;
+   * larger maps grow as entries are added.
+   */
+  public ReusableMap(int capacity) {
+    allocate(presize(capacity));
+  }
+
+  private static int presize(int capacity) {
+    return Math.max(MIN_CAPACITY, Math.min(capacity, MAX_PRESIZE));
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    hashes = new int[capacity];
+    table = new int[Integer.highestOneBit(capacity - 1) << 2]; // at most half full
+  }
+
+  private static int hash(Object key) {
+    int h = (key == null) ? 0 : key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  // the slot of a key in the table, or of the free slot ending its probe
+  private int slot(Object key, int hash) {
+    int mask = table.length - 1;
+    for (int i = hash & mask;; i = (i + 1) & mask) {
+      int e = table[i] - 1;
+      if (e < 0 || (hashes[e] == hash && (keys[e] == key || (key != null && key.equals(keys[e]))))) {
+        return i;
+      }
+    }
+  }
+
+  // the slot holding an entry
+  private int slotOf(int e) {
+    int mask = table.length - 1;
+    int i = hashes[e] & mask;
+    while (table[i] != e + 1) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return table[slot(key, hash(key))] != 0;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    int e = table[slot(key, hash(key))] - 1;
+    return (e < 0) ? null : (V) values[e];
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V put(K key, V value) {
+    int hash = hash(key);
+    int slot = slot(key, hash);
+    int e = table[slot] - 1;
+    if (e >= 0) {
+      V old = (V) values[e];
+      values[e] = value;
+      if (size < values.length && values[size] == value) { // value was read into the spare
+        values[size] = old;
+      }
+      return old;
+    }
+    if (size == keys.length) {
+      if (size == MAX_CAPACITY) {
+        throw new IllegalStateException("Map is full: " + size);
+      }
+      grow(Math.min(2 * size, MAX_CAPACITY));
+      slot = slot(key, hash);
+    }
+    keys[size] = key;
+    values[size] = value;
+    hashes[size] = hash;
+    table[slot] = ++size;
+    modCount++;
+    return null;
+  }
+
+  private void grow(int capacity) {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    allocate(capacity);
+    System.arraycopy(oldKeys, 0, keys, 0, oldKeys.length);
+    System.arraycopy(oldValues, 0, values, 0, oldValues.length);
+    System.arraycopy(oldHashes, 0, hashes, 0, oldHashes.length);
+    int mask = table.length - 1;
+    for (int e = 0; e < size; e++) {
+      int i = hashes[e] & mask;
+      while (table[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      table[i] = e + 1;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V remove(Object key) {
+    int slot = slot(key, hash(key));
+    int e = table[slot] - 1;
+    if (e < 0) {
+      return null;
+    }
+    V old = (V) values[e];
+    removeAt(e, slot);
+    return old;
+  }
+
+  private void removeAt(int e, int slot) {
+    free(slot);
+    int last = --size;
+    if (e != last) { // move the last entry into the hole
+      table[slotOf(last)] = e + 1;
+      keys[e] = keys[last];
+      values[e] = values[last];
+      hashes[e] = hashes[last];
+    }
+    keys[last] = null;
+    values[last] = null;
+    modCount++;
+  }
+
+  // free a slot, moving back the entries after it that probed past it
+  private void free(int slot) {
+    int mask = table.length - 1;
+    int i = slot;
+    for (int j = (i + 1) & mask; table[j] != 0; j = (j + 1) & mask) {
+      int home = hashes[table[j] - 1] & mask;
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        table[i] = table[j];
+        i = j;
+      }
+    }
+    table[i] = 0;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0, size, null);
+    Arrays.fill(values, 0, size, null);
+    recycle(0);
+  }
+
+  /**
+   * Remove every entry, but keep the keys and values to be read into by
+   * {@link #spareKey()} and {@link #spareValue()}, and make room for
+   * {@code capacity} entries, up to 65536.
+   */
+  public void recycle(int capacity) {
+    capacity = presize(capacity);
+    if (size < table.length / 8) { // clear only the slots used
+      for (int e = 0; e < size; e++) {
+        table[slotOf(e)] = 0;
+      }
+    } else {
+      Arrays.fill(table, 0);
+    }
+    size = 0;
+    modCount++;
+    if (capacity > keys.length) {
+      grow(capacity);
+    }
+  }
+
+  /** A key that is not in the map, to read the key of the next entry into. */
+  public Object spareKey() {
+    return (size < keys.length) ? keys[size] : null;
+  }
+
+  /** A value that is not in the map, to read the value of the next entry into. */
+  public Object spareValue() {
+    return (size < values.length) ? values[size] : null;
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public int size() {
+        return size;
+      }
+
+      @Override
+      public void clear() {
+        ReusableMap.this.clear();
+      }
+
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new Iterator<Entry<K, V>>() {
+          private int cursor;
+          private int last = -1;
+          private int expectedModCount = modCount;
+
+          @Override
+          public boolean hasNext() {
+            return cursor < size;
+          }
+
+          @Override
+          public Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+              throw new ConcurrentModificationException();
+            }
+            if (cursor >= size) {
+              throw new NoSuchElementException();
+            }
+            last = cursor++;
+            return new IndexEntry(last);
+          }
+
+          @Override
+          public void remove() {
+            if (last < 0) {
+              throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+              throw new ConcurrentModificationException();
+            }
+            removeAt(last, slotOf(last));
+            cursor = last; // the last entry moved here
+            last = -1;
+            expectedModCount = modCount;
+          }
+        };
+      }
+    };
+  }
+
+  private final class IndexEntry implements Entry<K, V> {
+    private final int index;
+
+    private IndexEntry(int index) {
+      this.index = index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public K getKey() {
+      return (K) keys[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getValue() {
+      return (V) values[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V setValue(V value) {
+      V old = (V) values[index];
+      values[index] = value;
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.UnresolvedUnionException;
+import org.apache.avro.util.internal.ClassValueCache;
+
+/**
+ * Finds the branch of a union for a datum by its class, remembering the branch
+ * found for each class, so that the schema name of a datum need not be looked
+ * up for every datum written. Datums whose branch does not follow from their
+ * class, as decided by {@link GenericData#isResolvedByClass(Object, Schema)},
+ * are resolved with {@link GenericData#resolveUnion(Schema, Object)} each time.
+ * The dispatchers of a data model are cached by it, and shared by its readers
+ * and writers.
+ */
+final class UnionDispatcher {
+  private static final int UNRESOLVED = -1;
+
+  private final GenericData data;
+  private final int nullIndex;
+  private volatile Branches branches;
+
+  // the branch found for each class, while no conversion is added to data
+  private static final class Branches {
+    private final ClassValueCache<int[]> byClass = new ClassValueCache<>(c -> new int[] { UNRESOLVED });
+    private final int conversionsAdded;
+
+    private Branches(int conversionsAdded) {
+      this.conversionsAdded = conversionsAdded;
+    }
+  }
+
+  // the union is not kept, as GenericData caches dispatchers by weak union keys
+  UnionDispatcher(GenericData data, Schema union) {
+    this.data = data;
+    Integer i = union.getIndexNamed(Schema.Type.NULL.getName());
+    this.nullIndex = (i == null) ? UNRESOLVED : i;
+    this.branches = new Branches(data.conversionsAdded);
+  }
+
+  /** The cached dispatchers for the unions in a schema, by identity. */
+  static Map<Schema, UnionDispatcher> forUnions(Schema schema, GenericData data) {
+    if (schema == null || !data.unionsByClass) {
+      return Collections.emptyMap();
+    }
+    Map<Schema, UnionDispatcher> unions = new IdentityHashMap<>();
+    collect(schema, data, unions, Collections.newSetFromMap(new IdentityHashMap<>()));
+    return unions;
+  }
+
+  private static void collect(Schema schema, GenericData data, Map<Schema, UnionDispatcher> unions, Set<Schema> seen) {
+    if (!seen.add(schema)) {
+      return;
+    }
+    switch (schema.getType()) {
+    case RECORD:
+      for (Field f : schema.getFields()) {
+        collect(f.schema(), data, unions, seen);
+      }
+      break;
+    case ARRAY:
+      collect(schema.getElementType(), data, unions, seen);
+      break;
+    case MAP:
+      collect(schema.getValueType(), data, unions, seen);
+      break;
+    case UNION:
+      unions.put(schema, data.getUnionDispatcher(schema));
+      for (Schema branch : schema.getTypes()) {
+        collect(branch, data, unions, seen);
+      }
+      break;
+    default:
+      break;
+    }
+  }
+
+  /** The index of the branch of a union, the one of this, for a datum. */
+  int resolve(Schema union, Object datum) {
+    if (datum == null) {
+      if (nullIndex == UNRESOLVED) {
+        throw new UnresolvedUnionException(union, null);
+      }
+      return nullIndex;
+    }
+    Branches b = branches;
+    if (b.conversionsAdded != data.conversionsAdded) { // forget branches of classes that may now convert
+      b = new Branches(data.conversionsAdded);
+      branches = b;
+    }
+    int[] branch = b.byClass.apply(datum.getClass());
+    int i = branch[0];
+    if (i == UNRESOLVED) {
+      i = data.resolveUnion(union, datum);
+      if (data.isResolvedByClass(datum, union.getTypes().get(i))) {
+        branch[0] = i;
+      }
+    }
+    return i;
+  }
+}
@@ -19,7 +19,6 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -47,6 +46,8 @@ import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericFixed;
 import org.apache.avro.generic.IndexedRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.generic.ReusableMap;
 import org.apache.avro.io.FastReaderBuilder.RecordReader.Stage;
 import org.apache.avro.io.parsing.ResolvingGrammarGenerator;
 import org.apache.avro.reflect.ReflectionUtil;
@@ -457,7 +458,7 @@ public class FastReaderBuilder {
   private FieldReader createArrayReader(Schema readerSchema, Container action) throws IOException {
     FieldReader elementReader = getReaderFor(action.elementAction, null);
 
-    return reusingReader((reuse, decoder) -> {
+    FieldReader boxedReader = reusingReader((reuse, decoder) -> {
       if (reuse instanceof GenericArray) {
         GenericArray<Object> reuseArray = (GenericArray<Object>) reuse;
         long l = decoder.readArrayStart();
@@ -472,8 +473,8 @@ public class FastReaderBuilder {
         return reuseArray;
       } else {
         long l = decoder.readArrayStart();
-        List<Object> array = (reuse instanceof List) ? (List<Object>) reuse
-            : new GenericData.Array<>((int) l, readerSchema);
+        List<Object> array = (List<Object>) ((reuse instanceof List) ? reuse
+            : data.newArray(null, (int) l, readerSchema));
         array.clear();
         while (l > 0) {
           for (long i = 0; i < l; i++) {
@@ -484,6 +485,64 @@ public class FastReaderBuilder {
         return array;
       }
     });
+    if (action.elementAction.type != Action.Type.DO_NOTHING) {
+      return boxedReader;
+    }
+    return createPrimitiveArrayReader(readerSchema, boxedReader);
+  }
+
+  /** Reads an element into a primitive array without boxing it. */
+  private interface PrimitiveAdder {
+    void add(Object array, Decoder decoder) throws IOException;
+  }
+
+  // read arrays of primitives that need no promotion into PrimitivesArrays
+  private FieldReader createPrimitiveArrayReader(Schema readerSchema, FieldReader boxedReader) {
+    Schema element = readerSchema.getElementType();
+    if (element.getLogicalType() != null || element.hasProps()) {
+      return boxedReader;
+    }
+    Class<?> arrayClass;
+    PrimitiveAdder adder;
+    switch (element.getType()) {
+    case INT:
+      arrayClass = PrimitivesArrays.IntArray.class;
+      adder = (array, decoder) -> ((PrimitivesArrays.IntArray) array).addInt(decoder.readInt());
+      break;
+    case LONG:
+      arrayClass = PrimitivesArrays.LongArray.class;
+      adder = (array, decoder) -> ((PrimitivesArrays.LongArray) array).addLong(decoder.readLong());
+      break;
+    case FLOAT:
+      arrayClass = PrimitivesArrays.FloatArray.class;
+      adder = (array, decoder) -> ((PrimitivesArrays.FloatArray) array).addFloat(decoder.readFloat());
+      break;
+    case DOUBLE:
+      arrayClass = PrimitivesArrays.DoubleArray.class;
+      adder = (array, decoder) -> ((PrimitivesArrays.DoubleArray) array).addDouble(decoder.readDouble());
+      break;
+    case BOOLEAN:
+      arrayClass = PrimitivesArrays.BooleanArray.class;
+      adder = (array, decoder) -> ((PrimitivesArrays.BooleanArray) array).addBoolean(decoder.readBoolean());
+      break;
+    default:
+      return boxedReader;
+    }
+    return reusingReader((reuse, decoder) -> {
+      if (reuse != null && !arrayClass.isInstance(reuse)) {
+        return boxedReader.read(reuse, decoder);
+      }
+      Object array = data.newArray(reuse, 0, readerSchema);
+      if (!arrayClass.isInstance(array)) {
+        return boxedReader.read(array, decoder);
+      }
+      for (long l = decoder.readArrayStart(); l > 0; l = decoder.arrayNext()) {
+        for (long i = 0; i < l; i++) {
+          adder.add(array, decoder);
+        }
+      }
+      return array;
+    });
   }
 
   private FieldReader createEnumReader(EnumAdjust action) {
@@ -590,14 +649,21 @@ public class FastReaderBuilder {
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Object read(Object reuse, Decoder decoder) throws IOException {
       long l = decoder.readMapStart();
-      Map<Object, Object> targetMap = new HashMap<>();
+      ReusableMap<Object, Object> targetMap;
+      if (reuse instanceof ReusableMap) {
+        targetMap = (ReusableMap<Object, Object>) reuse;
+        targetMap.recycle((int) l);
+      } else {
+        targetMap = new ReusableMap<>((int) l);
+      }
 
       while (l > 0) {
         for (int i = 0; i < l; i++) {
-          Object key = keyReader.read(null, decoder);
-          Object value = valueReader.read(null, decoder);
+          Object key = keyReader.read(targetMap.spareKey(), decoder);
+          Object value = valueReader.read(targetMap.spareValue(), decoder);
           targetMap.put(key, value);
         }
         l = decoder.mapNext();
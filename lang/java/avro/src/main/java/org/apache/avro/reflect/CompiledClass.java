@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.util.Map;
+
+import org.apache.avro.Schema;
+
+/**
+ * Base class of the code generated for an {@link AvroCompiled} class: its
+ * schema, and accessors for the fields the generated code can reach. Named
+ * after the class, with the suffix {@value #SUFFIX}.
+ */
+public abstract class CompiledClass {
+  /** Appended to the name of a class to name its generated code. */
+  public static final String SUFFIX = "$AvroCompiled";
+
+  private final String json;
+  private volatile Schema schema; // parsed on first use
+
+  /** @param schema the schema as JSON, split into parts */
+  protected CompiledClass(String... schema) {
+    this.json = String.join("", schema);
+  }
+
+  /**
+   * The schema of the class, parsed once and shared by every caller, so it must
+   * not be modified.
+   */
+  public Schema getSchema() {
+    Schema result = schema;
+    if (result == null) {
+      result = new Schema.Parser().parse(json);
+      schema = result;
+    }
+    return result;
+  }
+
+  /** Accessors for the fields of the class, by Java field name. */
+  protected abstract Map<String, CompiledField> getFields();
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.lang.reflect.Field;
+
+import org.apache.avro.AvroRuntimeException;
+
+/**
+ * Base class of the field accessors generated for an {@link AvroCompiled}
+ * class, which access the field directly.
+ */
+public abstract class CompiledField extends FieldAccessor {
+  private final Field field;
+  private final boolean isStringable;
+
+  protected CompiledField(Class<?> c, String name) {
+    try {
+      this.field = c.getDeclaredField(name);
+    } catch (NoSuchFieldException e) {
+      throw new AvroRuntimeException(e);
+    }
+    this.isStringable = field.isAnnotationPresent(Stringable.class);
+  }
+
+  @Override
+  protected Field getField() {
+    return field;
+  }
+
+  @Override
+  protected boolean isStringable() {
+    return isStringable;
+  }
+}
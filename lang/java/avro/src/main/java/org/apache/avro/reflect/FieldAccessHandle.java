@@ -0,0 +1,513 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.reflect;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/**
+ * Accesses fields through method handles, typed to the fields, so primitive
+ * fields are read and written without boxing. Used where
+ * {@code sun.misc.Unsafe} is not available, and for the fields of Java records.
+ */
+class FieldAccessHandle extends FieldAccess {
+
+  @Override
+  protected FieldAccessor getAccessor(Field field) {
+    AvroEncode enc = field.getAnnotation(AvroEncode.class);
+    if (enc != null)
+      try {
+        return new HandleCustomEncodedField(field, enc.using().getDeclaredConstructor().newInstance());
+      } catch (Exception e) {
+        throw new AvroRuntimeException("Could not instantiate custom Encoding");
+      }
+    Class<?> c = field.getType();
+    if (c == int.class)
+      return new HandleIntField(field);
+    else if (c == long.class)
+      return new HandleLongField(field);
+    else if (c == byte.class)
+      return new HandleByteField(field);
+    else if (c == float.class)
+      return new HandleFloatField(field);
+    else if (c == double.class)
+      return new HandleDoubleField(field);
+    else if (c == char.class)
+      return new HandleCharField(field);
+    else if (c == boolean.class)
+      return new HandleBooleanField(field);
+    else if (c == short.class)
+      return new HandleShortField(field);
+    else
+      return new HandleObjectField(field);
+  }
+
+  abstract static class HandleCachedField extends FieldAccessor {
+    protected final MethodHandle getter;
+    protected final MethodHandle setter;
+    protected Field field;
+    protected final boolean isStringable;
+
+    HandleCachedField(Field f, Class<?> type) {
+      f.setAccessible(true);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      try {
+        this.getter = lookup.unreflectGetter(f).asType(MethodType.methodType(type, Object.class));
+      } catch (IllegalAccessException e) {
+        throw new AvroRuntimeException(e);
+      }
+      MethodHandle set;
+      try {
+        set = lookup.unreflectSetter(f);
+      } catch (IllegalAccessException e) {
+        // final fields of records are read-only; records are created with
+        // their values instead
+        set = MethodHandles.dropArguments(MethodHandles.throwException(void.class, AvroRuntimeException.class)
+            .bindTo(new AvroRuntimeException("Field is read-only: " + f)), 0, Object.class, type);
+      }
+      this.setter = set.asType(MethodType.methodType(void.class, Object.class, type));
+      this.field = f;
+      this.isStringable = f.isAnnotationPresent(Stringable.class);
+    }
+
+    // invokeExact declares Throwable, but field handles only throw unchecked
+    static RuntimeException unchecked(Throwable t) {
+      if (t instanceof Error) {
+        throw (Error) t;
+      }
+      return (t instanceof RuntimeException) ? (RuntimeException) t : new AvroRuntimeException(t);
+    }
+
+    @Override
+    protected Field getField() {
+      return field;
+    }
+
+    @Override
+    protected boolean supportsIO() {
+      return true;
+    }
+
+    @Override
+    protected boolean isStringable() {
+      return isStringable;
+    }
+  }
+
+  final static class HandleIntField extends HandleCachedField {
+    HandleIntField(Field f) {
+      super(f, int.class);
+    }
+
+    private int getInt(Object object) {
+      try {
+        return (int) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setInt(Object object, int value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setInt(object, (Integer) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getInt(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setInt(object, in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getInt(object));
+    }
+  }
+
+  final static class HandleFloatField extends HandleCachedField {
+    HandleFloatField(Field f) {
+      super(f, float.class);
+    }
+
+    private float getFloat(Object object) {
+      try {
+        return (float) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setFloat(Object object, float value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setFloat(object, (Float) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getFloat(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setFloat(object, in.readFloat());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeFloat(getFloat(object));
+    }
+  }
+
+  final static class HandleShortField extends HandleCachedField {
+    HandleShortField(Field f) {
+      super(f, short.class);
+    }
+
+    private short getShort(Object object) {
+      try {
+        return (short) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setShort(Object object, short value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setShort(object, (Short) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getShort(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setShort(object, (short) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getShort(object));
+    }
+  }
+
+  final static class HandleByteField extends HandleCachedField {
+    HandleByteField(Field f) {
+      super(f, byte.class);
+    }
+
+    private byte getByte(Object object) {
+      try {
+        return (byte) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setByte(Object object, byte value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setByte(object, (Byte) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getByte(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setByte(object, (byte) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getByte(object));
+    }
+  }
+
+  final static class HandleBooleanField extends HandleCachedField {
+    HandleBooleanField(Field f) {
+      super(f, boolean.class);
+    }
+
+    private boolean getBoolean(Object object) {
+      try {
+        return (boolean) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setBoolean(Object object, boolean value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setBoolean(object, (Boolean) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getBoolean(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setBoolean(object, in.readBoolean());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeBoolean(getBoolean(object));
+    }
+  }
+
+  final static class HandleCharField extends HandleCachedField {
+    HandleCharField(Field f) {
+      super(f, char.class);
+    }
+
+    private char getChar(Object object) {
+      try {
+        return (char) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setChar(Object object, char value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setChar(object, (Character) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getChar(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setChar(object, (char) in.readInt());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeInt(getChar(object));
+    }
+  }
+
+  final static class HandleLongField extends HandleCachedField {
+    HandleLongField(Field f) {
+      super(f, long.class);
+    }
+
+    private long getLong(Object object) {
+      try {
+        return (long) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setLong(Object object, long value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setLong(object, (Long) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getLong(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setLong(object, in.readLong());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeLong(getLong(object));
+    }
+  }
+
+  final static class HandleDoubleField extends HandleCachedField {
+    HandleDoubleField(Field f) {
+      super(f, double.class);
+    }
+
+    private double getDouble(Object object) {
+      try {
+        return (double) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    private void setDouble(Object object, double value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      setDouble(object, (Double) value);
+    }
+
+    @Override
+    protected Object get(Object object) {
+      return getDouble(object);
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      setDouble(object, in.readDouble());
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      out.writeDouble(getDouble(object));
+    }
+  }
+
+  static class HandleObjectField extends HandleCachedField {
+    HandleObjectField(Field f) {
+      super(f, Object.class);
+    }
+
+    @Override
+    protected void set(Object object, Object value) {
+      try {
+        setter.invokeExact(object, value);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected Object get(Object object) {
+      try {
+        return (Object) getter.invokeExact(object);
+      } catch (Throwable t) {
+        throw unchecked(t);
+      }
+    }
+
+    @Override
+    protected boolean supportsIO() {
+      return false;
+    }
+  }
+
+  final static class HandleCustomEncodedField extends HandleObjectField {
+
+    private CustomEncoding<?> encoding;
+
+    HandleCustomEncodedField(Field f, CustomEncoding<?> encoding) {
+      super(f);
+      this.encoding = encoding;
+    }
+
+    @Override
+    protected void read(Object object, Decoder in) throws IOException {
+      set(object, encoding.read(in));
+    }
+
+    @Override
+    protected void write(Object object, Encoder out) throws IOException {
+      encoding.write(get(object), out);
+    }
+
+    @Override
+    protected boolean supportsIO() {
+      return true;
+    }
+
+    @Override
+    protected boolean isCustomEncoded() {
+      return true;
+    }
+  }
+}
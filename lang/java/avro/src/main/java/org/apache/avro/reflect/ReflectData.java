@@ -40,6 +40,10 @@ import org.apache.avro.util.MapUtil;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -123,9 +127,29 @@ public class ReflectData extends SpecificData {
    */
   public ReflectData addStringable(Class c) {
     stringableClasses.add(c);
+    compiledSchemas = false;
     return this;
   }
 
+  // whether schemas generated for AvroCompiled classes are those this creates
+  private boolean compiledSchemas = !overrides(getClass(), "createSchema", Type.class, Map.class)
+      && !overrides(getClass(), "createFieldSchema", Field.class, Map.class)
+      && !overrides(getClass(), "createSchemaDefaultValue", Type.class, Field.class, Schema.class)
+      && !overrides(getClass(), "isStringable", Class.class);
+
+  // whether a subclass of ReflectData declares a method
+  private static boolean overrides(Class<?> c, String name, Class<?>... parameterTypes) {
+    for (; c != ReflectData.class; c = c.getSuperclass()) {
+      try {
+        c.getDeclaredMethod(name, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // keep looking
+      }
+    }
+    return false;
+  }
+
   /**
    * If this flag is set to true, default values for fields will be assigned
    * dynamically using Java reflections. When enabled, defaults are the field
@@ -321,6 +345,15 @@ public class ReflectData extends SpecificData {
     return c.isArray() && c.getComponentType() == Byte.TYPE;
   }
 
+  @Override
+  protected boolean isResolvedByClass(Object datum, Schema branch) {
+    if (datum instanceof Map) { // an array if its keys are not strings
+      return false;
+    }
+    // the schemas of other classes are found by class
+    return !(datum instanceof GenericContainer) || super.isResolvedByClass(datum, branch);
+  }
+
   @Override
   protected Schema getRecordSchema(Object record) {
     if (record instanceof GenericContainer)
@@ -354,34 +387,210 @@ public class ReflectData extends SpecificData {
     }
   };
 
+  // accessors for a schema, not keeping the schema reachable
+  private static final class SchemaAccessors extends WeakReference<Schema> {
+    private final FieldAccessor[] accessors;
+
+    private SchemaAccessors(Schema schema, FieldAccessor[] accessors) {
+      super(schema);
+      this.accessors = accessors;
+    }
+  }
+
+  private static final int RECENT_SCHEMAS = 4;
+
+  private static final FieldAccess RECORD_FIELD_ACCESS = new FieldAccessHandle();
+
+  /**
+   * Creates instances of a class through the constructor that takes a value for
+   * each of its fields: the canonical constructor of a Java record, or that of a
+   * class whose fields are all final and which has no no-arg constructor.
+   */
+  static final class Creator {
+    /** The field set by each parameter of the constructor. */
+    final Field[] parameters;
+    /** Values for parameters that are not read: zero or null. */
+    final Object[] defaults;
+    private final MethodHandle constructor;
+
+    private Creator(Field[] parameters, Constructor<?> constructor) throws IllegalAccessException {
+      this.parameters = parameters;
+      this.defaults = new Object[parameters.length];
+      for (int i = 0; i < parameters.length; i++) {
+        Class<?> type = parameters[i].getType();
+        if (type.isPrimitive()) {
+          defaults[i] = java.lang.reflect.Array.get(java.lang.reflect.Array.newInstance(type, 1), 0);
+        }
+      }
+      constructor.setAccessible(true);
+      this.constructor = MethodHandles.lookup().unreflectConstructor(constructor)
+          .asType(MethodType.genericMethodType(parameters.length)).asSpreader(Object[].class, parameters.length);
+    }
+
+    /** Create an instance from its constructor arguments. */
+    Object newInstance(Object[] arguments) {
+      try {
+        return (Object) constructor.invokeExact(arguments);
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new AvroRuntimeException("Failed to create " + constructor, t);
+      }
+    }
+
+    // null if the class is neither a record nor such a value class
+    private static Creator of(Class<?> c) throws ReflectiveOperationException {
+      if (isJavaRecord(c)) {
+        Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(c);
+        Field[] parameters = new Field[components.length];
+        Class<?>[] types = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+          String name = (String) components[i].getClass().getMethod("getName").invoke(components[i]);
+          parameters[i] = c.getDeclaredField(name);
+          types[i] = parameters[i].getType();
+        }
+        return new Creator(parameters, c.getDeclaredConstructor(types));
+      }
+      if (c.getSuperclass() != Object.class || Modifier.isAbstract(c.getModifiers()) || c.isLocalClass()
+          || c.isAnonymousClass() || c.isMemberClass() && !Modifier.isStatic(c.getModifiers())) {
+        return null;
+      }
+      List<Field> fields = new ArrayList<>();
+      for (Field f : c.getDeclaredFields()) {
+        if (!Modifier.isStatic(f.getModifiers())) {
+          if (!Modifier.isFinal(f.getModifiers())) {
+            return null;
+          }
+          fields.add(f);
+        }
+      }
+      Constructor<?> found = null;
+      Field[] parameters = null;
+      for (Constructor<?> constructor : c.getDeclaredConstructors()) {
+        if (constructor.getParameterCount() == 0) {
+          return null; // instantiated as usual
+        }
+        Field[] matched = matchParameters(constructor, fields);
+        if (matched != null) {
+          found = constructor;
+          parameters = matched;
+        }
+      }
+      return (found == null) ? null : new Creator(parameters, found);
+    }
+
+    // the field for each parameter, matched by type, and by name if the names
+    // were compiled in; null if the match is ambiguous
+    private static Field[] matchParameters(Constructor<?> constructor, List<Field> fields) {
+      Parameter[] params = constructor.getParameters();
+      if (params.length != fields.size()) {
+        return null;
+      }
+      Field[] matched = new Field[params.length];
+      for (int i = 0; i < params.length; i++) {
+        Field match = null;
+        for (Field f : fields) {
+          if (f.getType() == params[i].getType()
+              && (!params[i].isNamePresent() || f.getName().equals(params[i].getName()))) {
+            if (match != null) {
+              return null; // ambiguous
+            }
+            match = f;
+          }
+        }
+        if (match == null || Arrays.asList(matched).contains(match)) {
+          return null;
+        }
+        matched[i] = match;
+      }
+      return matched;
+    }
+  }
+
+  // Class.isRecord(), which is not available in Java 8
+  private static boolean isJavaRecord(Class<?> c) {
+    return c.getSuperclass() != null && "java.lang.Record".equals(c.getSuperclass().getName());
+  }
+
+  static final ClassValue<CompiledClass> COMPILED_CACHE = new ClassValue<CompiledClass>() {
+    @Override
+    protected CompiledClass computeValue(Class<?> c) {
+      if (!c.isAnnotationPresent(AvroCompiled.class)) {
+        return null;
+      }
+      try {
+        return (CompiledClass) Class.forName(c.getName() + CompiledClass.SUFFIX, true, c.getClassLoader())
+            .getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+        return null; // not processed, use reflection
+      }
+    }
+  };
+
   static class ClassAccessorData {
     private final Class<?> clazz;
     private final Map<String, FieldAccessor> byName = new HashMap<>();
-    // getAccessorsFor is already synchronized, no need to wrap
+    final Creator creator;
+    // guarded by itself; the recently used entries are read without locking
     final Map<Schema, FieldAccessor[]> bySchema = new WeakHashMap<>();
+    private volatile SchemaAccessors[] recent = new SchemaAccessors[0];
 
     private ClassAccessorData(Class<?> c) {
       clazz = c;
+      // record fields can't be accessed through Unsafe
+      FieldAccess access = isJavaRecord(c) ? RECORD_FIELD_ACCESS : ReflectionUtil.getFieldAccess();
+      CompiledClass compiled = COMPILED_CACHE.get(c);
+      Map<String, CompiledField> generated = (compiled == null) ? Collections.emptyMap() : compiled.getFields();
       for (Field f : getFields(c, false)) {
         if (f.isAnnotationPresent(AvroIgnore.class)) {
           continue;
         }
-        FieldAccessor accessor = ReflectionUtil.getFieldAccess().getAccessor(f);
+        FieldAccessor accessor = generated.get(f.getName());
+        if (accessor == null || !accessor.getField().equals(f)) {
+          accessor = access.getAccessor(f);
+        }
         AvroName avroname = f.getAnnotation(AvroName.class);
         byName.put((avroname != null ? avroname.value() : f.getName()), accessor);
       }
+      Creator found;
+      try {
+        found = Creator.of(c);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        found = null;
+      }
+      creator = found;
     }
 
     /**
      * Return the field accessors as an array, indexed by the field index of the
      * given schema.
      */
-    private synchronized FieldAccessor[] getAccessorsFor(Schema schema) {
-      // if synchronized is removed from this method, adjust bySchema appropriately
-      FieldAccessor[] result = bySchema.get(schema);
-      if (result == null) {
-        result = createAccessorsFor(schema);
-        bySchema.put(schema, result);
+    private FieldAccessor[] getAccessorsFor(Schema schema) {
+      SchemaAccessors[] entries = recent;
+      for (SchemaAccessors entry : entries) {
+        if (entry.get() == schema) {
+          return entry.accessors;
+        }
+      }
+      FieldAccessor[] result;
+      synchronized (bySchema) {
+        result = bySchema.get(schema);
+        if (result == null) {
+          result = createAccessorsFor(schema);
+          bySchema.put(schema, result);
+        }
+        // publish a copy with this schema first, dropping the oldest or cleared
+        entries = recent;
+        int kept = 0;
+        SchemaAccessors[] updated = new SchemaAccessors[Math.min(entries.length + 1, RECENT_SCHEMAS)];
+        updated[kept++] = new SchemaAccessors(schema, result);
+        for (SchemaAccessors entry : entries) {
+          Schema s = entry.get();
+          if (kept < updated.length && s != null && s != schema) {
+            updated[kept++] = entry;
+          }
+        }
+        recent = Arrays.copyOf(updated, kept);
       }
       return result;
     }
@@ -408,7 +617,16 @@ public class ReflectData extends SpecificData {
     return ACCESSOR_CACHE.get(c);
   }
 
-  private FieldAccessor[] getFieldAccessors(Class<?> c, Schema s) {
+  /**
+   * The creator of instances of a class that is built from its field values, or
+   * null if the class is instantiated with a no-arg constructor.
+   */
+  Creator getCreator(Class<?> c) {
+    ClassAccessorData data = getClassAccessorData(c);
+    return (data == null) ? null : data.creator;
+  }
+
+  FieldAccessor[] getFieldAccessors(Class<?> c, Schema s) {
     ClassAccessorData data = getClassAccessorData(c);
     if (data != null) {
       return data.getAccessorsFor(s);
@@ -729,6 +947,8 @@ public class ReflectData extends SpecificData {
           consumeAvroAliasAnnotation(c, schema);
         } else if (IndexedRecord.class.isAssignableFrom(c)) { // specific
           return super.createSchema(type, names);
+        } else if (compiledSchemas && !defaultGenerated && COMPILED_CACHE.get(c) != null) { // generated
+          schema = shareNamedTypes(COMPILED_CACHE.get(c).getSchema(), names);
         } else { // record
           List<Schema.Field> fields = new ArrayList<>();
           boolean error = Throwable.class.isAssignableFrom(c);
@@ -785,6 +1005,58 @@ public class ReflectData extends SpecificData {
     return super.createSchema(type, names);
   }
 
+  /**
+   * Copy a schema generated for an {@link AvroCompiled} class, so that its named
+   * types are shared through {@code names}, keyed by class name, as those of the
+   * record branch of {@link #createSchema} are: types already in {@code names}
+   * are used in place of those of the copy, and the others are added.
+   */
+  private Schema shareNamedTypes(Schema s, Map<String, Schema> names) {
+    switch (s.getType()) {
+    case RECORD:
+    case ENUM:
+    case FIXED:
+      Class<?> c = getClass(s);
+      String key = (c != null) ? c.getName() : s.getFullName();
+      Schema known = names.get(key);
+      if (known != null) {
+        return known;
+      }
+      if (s.getType() != Schema.Type.RECORD) {
+        names.put(key, s);
+        return s;
+      }
+      Schema record = Schema.createRecord(s.getName(), s.getDoc(), s.getNamespace(), s.isError());
+      for (String alias : s.getAliases()) {
+        record.addAlias(alias);
+      }
+      record.addAllProps(s);
+      names.put(key, record);
+      List<Schema.Field> fields = new ArrayList<>(s.getFields().size());
+      for (Schema.Field f : s.getFields()) {
+        fields.add(new Schema.Field(f, shareNamedTypes(f.schema(), names)));
+      }
+      record.setFields(fields);
+      return record;
+    case ARRAY:
+      Schema array = Schema.createArray(shareNamedTypes(s.getElementType(), names));
+      array.addAllProps(s);
+      return array;
+    case MAP:
+      Schema map = Schema.createMap(shareNamedTypes(s.getValueType(), names));
+      map.addAllProps(s);
+      return map;
+    case UNION:
+      List<Schema> branches = new ArrayList<>(s.getTypes().size());
+      for (Schema branch : s.getTypes()) {
+        branches.add(shareNamedTypes(branch, names));
+      }
+      return Schema.createUnion(branches);
+    default:
+      return s;
+    }
+  }
+
   @Override
   protected boolean isStringable(Class<?> c) {
     return c.isAnnotationPresent(Stringable.class) || super.isStringable(c);
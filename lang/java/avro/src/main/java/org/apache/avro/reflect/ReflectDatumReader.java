@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Conversion;
@@ -70,6 +72,9 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
     super(data);
   }
 
+  // readers may be shared between threads
+  private final Map<Schema, RecordBuilder> builders = new ConcurrentHashMap<>();
+
   @Override
   protected Object newArray(Object old, int size, Schema schema) {
     Class<?> collectionClass = ReflectData.getClassProp(schema, SpecificData.CLASS_PROP);
@@ -253,6 +258,105 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
     return value;
   }
 
+  @Override
+  protected Object readRecord(Object old, Schema expected, ResolvingDecoder in) throws IOException {
+    RecordBuilder builder = builders.computeIfAbsent(expected, s -> RecordBuilder.of((ReflectData) getData(), s));
+    if (builder == RecordBuilder.NONE) {
+      return super.readRecord(old, expected, in);
+    }
+    return builder.read(this, in);
+  }
+
+  /**
+   * Reads records of a class that is created with its field values, such as a
+   * Java record, into the arguments of its constructor. Holds no state between
+   * reads, so may be used by several threads.
+   */
+  private static final class RecordBuilder {
+    static final RecordBuilder NONE = new RecordBuilder(null, null, null, null);
+
+    private final ReflectData.Creator creator;
+    // by field position
+    private final FieldAccessor[] accessors;
+    private final CustomEncoding<?>[] encodings;
+    private final int[] arguments; // the constructor parameter, or -1
+
+    private RecordBuilder(ReflectData.Creator creator, FieldAccessor[] accessors, CustomEncoding<?>[] encodings,
+        int[] arguments) {
+      this.creator = creator;
+      this.accessors = accessors;
+      this.encodings = encodings;
+      this.arguments = arguments;
+    }
+
+    static RecordBuilder of(ReflectData data, Schema schema) {
+      Class<?> c = data.getClass(schema);
+      ReflectData.Creator creator = (c == null) ? null : data.getCreator(c);
+      if (creator == null) {
+        return NONE;
+      }
+      FieldAccessor[] accessors = data.getFieldAccessors(c, schema);
+      CustomEncoding<?>[] encodings = new CustomEncoding<?>[accessors.length];
+      int[] arguments = new int[accessors.length];
+      for (int pos = 0; pos < accessors.length; pos++) {
+        arguments[pos] = -1;
+        if (accessors[pos] == null) {
+          continue;
+        }
+        java.lang.reflect.Field f = accessors[pos].getField();
+        arguments[pos] = Arrays.asList(creator.parameters).indexOf(f);
+        if (accessors[pos].isCustomEncoded()) {
+          try {
+            encodings[pos] = f.getAnnotation(AvroEncode.class).using().getDeclaredConstructor().newInstance();
+          } catch (Exception e) {
+            throw new AvroRuntimeException("Could not instantiate custom Encoding");
+          }
+        }
+      }
+      return new RecordBuilder(creator, accessors, encodings, arguments);
+    }
+
+    Object read(ReflectDatumReader<?> reader, ResolvingDecoder in) throws IOException {
+      Object[] args = creator.defaults.clone();
+      for (Field field : in.readFieldOrder()) {
+        Object value = readValue(reader, field, in);
+        int arg = arguments[field.pos()];
+        if (arg >= 0) {
+          args[arg] = value;
+        }
+      }
+      return creator.newInstance(args);
+    }
+
+    // as readField does, without a record to set the value in
+    private Object readValue(ReflectDatumReader<?> reader, Field field, ResolvingDecoder in) throws IOException {
+      FieldAccessor accessor = accessors[field.pos()];
+      if (accessor == null) {
+        return reader.read(null, field.schema(), in);
+      }
+      if (encodings[field.pos()] != null) {
+        return encodings[field.pos()].read(in);
+      }
+      if (accessor.isStringable()) {
+        try {
+          String asString = (String) reader.read(null, field.schema(), in);
+          return asString == null ? null : reader.newInstanceFromString(accessor.getField().getType(), asString);
+        } catch (Exception e) {
+          throw new AvroRuntimeException("Failed to read Stringable", e);
+        }
+      }
+      LogicalType logicalType = field.schema().getLogicalType();
+      if (logicalType != null) {
+        Conversion<?> conversion = reader.getData().getConversionByClass(accessor.getField().getType(), logicalType);
+        if (conversion != null) {
+          return reader.convert(reader.readWithoutConversion(null, field.schema(), in), field.schema(), logicalType,
+              conversion);
+        }
+      }
+      return reader.readWithoutConversion(null, field.schema(), in);
+    }
+  }
+
   @Override
   protected void readField(Object record, Field field, Object oldDatum, ResolvingDecoder in, Object state)
       throws IOException {
@@ -64,6 +64,15 @@ public class ReflectionUtil {
       }
     } catch (Throwable ignored) {
     }
+    if (access == null) {
+      try {
+        FieldAccess handleAccess = load("org.apache.avro.reflect.FieldAccessHandle", FieldAccess.class);
+        if (validate(handleAccess)) {
+          access = handleAccess;
+        }
+      } catch (Throwable ignored) {
+      }
+    }
     if (access == null) {
       try {
         FieldAccess reflectAccess = load("org.apache.avro.reflect.FieldAccessReflect", FieldAccess.class);
@@ -214,6 +214,13 @@ public class SpecificData extends GenericData {
     return datum instanceof Enum || super.isEnum(datum);
   }
 
+  @Override
+  protected boolean isResolvedByClass(Object datum, Schema branch) {
+    // the schemas of generated classes and Java enums are found by class
+    return datum instanceof SpecificRecord || datum instanceof SpecificFixed || datum instanceof Enum
+        || super.isResolvedByClass(datum, branch);
+  }
+
   @Override
   public Object createEnum(String symbol, Schema schema) {
     Class c = getClass(schema);
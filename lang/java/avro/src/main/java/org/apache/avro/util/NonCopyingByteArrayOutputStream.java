@@ -19,6 +19,7 @@
 package org.apache.avro.util;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 
 /**
@@ -48,4 +49,37 @@ public class NonCopyingByteArrayOutputStream extends ByteArrayOutputStream {
   public ByteBuffer asByteBuffer() {
     return ByteBuffer.wrap(super.buf, 0, super.count);
   }
+
+  /**
+   * Creates a byte array output stream writing into the array backing
+   * {@code reuse}, which must be a heap buffer with an array offset of zero.
+   * Should the array fill up, it is replaced by a larger copy as usual.
+   *
+   * @param reuse a buffer whose array may be overwritten
+   */
+  public NonCopyingByteArrayOutputStream(ByteBuffer reuse) {
+    super(0);
+    if (!reuse.hasArray() || reuse.arrayOffset() != 0) {
+      throw new IllegalArgumentException("Buffer is not a heap buffer at offset zero");
+    }
+    super.buf = reuse.array();
+  }
+
+  /**
+   * Get the contents of this stream as a ByteBuffer, returning {@code reuse},
+   * with its position and limit set, if this stream is still writing into its
+   * array.
+   *
+   * @param reuse the buffer passed to
+   *              {@link #NonCopyingByteArrayOutputStream(ByteBuffer)}, or null
+   * @return The contents of this ByteArrayOutputstream wrapped as a ByteBuffer
+   */
+  public ByteBuffer asByteBuffer(ByteBuffer reuse) {
+    if (reuse != null && reuse.hasArray() && reuse.array() == super.buf) {
+      ((Buffer) reuse).clear();
+      ((Buffer) reuse).limit(super.count);
+      return reuse;
+    }
+    return asByteBuffer();
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.junit.Test;
+
+public class BlockCacheTest {
+  private static final Schema SCHEMA = Schema.create(Schema.Type.INT);
+
+  private static byte[] write(byte[] sync, int first) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Integer> writer = new DataFileWriter<>(new GenericDatumWriter<Integer>(SCHEMA))) {
+      writer.setCodec(CodecFactory.deflateCodec(6));
+      writer.create(SCHEMA, out, sync);
+      for (int i = first; i < first + 100; i++) {
+        writer.append(i);
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static List<Integer> read(byte[] file, BlockCache cache) throws IOException {
+    List<Integer> result = new ArrayList<>();
+    try (DataFileReader<Integer> reader = new DataFileReader<>(new SeekableByteArrayInput(file),
+        new GenericDatumReader<>(SCHEMA))) {
+      reader.setBlockCache(cache);
+      for (Integer i : reader) {
+        result.add(i);
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void filesSharingSyncMarker() throws IOException {
+    byte[] sync = new byte[DataFileConstants.SYNC_SIZE];
+    byte[] a = write(sync, 0);
+    byte[] b = write(sync, 1000);
+    BlockCache cache = new BlockCache(1 << 20);
+
+    assertEquals(0, (int) read(a, cache).get(0));
+    assertEquals(1000, (int) read(b, cache).get(0));
+    assertEquals(0, cache.getHitCount());
+
+    List<Integer> again = read(b, cache);
+    assertEquals(100, again.size());
+    assertEquals(1000, (int) again.get(0));
+    assertEquals(1099, (int) again.get(99));
+    assertEquals(1, cache.getHitCount());
+  }
+}
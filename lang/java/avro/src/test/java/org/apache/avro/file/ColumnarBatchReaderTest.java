@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Test;
+
+public class ColumnarBatchReaderTest {
+  private static final Schema SCHEMA = Schema.create(Schema.Type.LONG);
+
+  private static DataFileStream<Object> file(int blocks, int perBlock) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Long> writer = new DataFileWriter<>(new GenericDatumWriter<Long>(SCHEMA))) {
+      writer.create(SCHEMA, out);
+      long n = 0;
+      for (int b = 0; b < blocks; b++) {
+        for (int i = 0; i < perBlock; i++) {
+          writer.append(n++);
+        }
+        writer.sync();
+      }
+    }
+    return new DataFileReader<>(new SeekableByteArrayInput(out.toByteArray()), new GenericDatumReader<>());
+  }
+
+  @Test
+  public void nextWithoutHasNext() throws IOException {
+    try (ColumnarBatchReader batches = new ColumnarBatchReader(file(3, 10))) {
+      for (int b = 0; b < 3; b++) {
+        ColumnVector.LongVector batch = (ColumnVector.LongVector) batches.next();
+        assertEquals(10, batch.size());
+        assertEquals(b * 10, batch.getLong(0));
+        assertEquals(b * 10 + 9, batch.getLong(9));
+      }
+      assertFalse(batches.hasNext());
+    }
+  }
+
+  @Test
+  public void nextAfterHasNext() throws IOException {
+    try (ColumnarBatchReader batches = new ColumnarBatchReader(file(2, 5))) {
+      long n = 0;
+      while (batches.hasNext()) {
+        ColumnVector.LongVector batch = (ColumnVector.LongVector) batches.next();
+        for (int i = 0; i < batch.size(); i++) {
+          assertEquals(n++, batch.getLong(i));
+        }
+      }
+      assertEquals(10, n);
+    }
+  }
+
+  @Test
+  public void nullParentsOfNullableFields() throws IOException {
+    Schema schema = new Schema.Parser().parse("{\"type\":\"record\",\"name\":\"O\",\"fields\":[{\"name\":\"inner\","
+        + "\"type\":[\"null\",{\"type\":\"record\",\"name\":\"I\",\"fields\":[{\"name\":\"x\","
+        + "\"type\":[\"null\",\"int\"]}]}]}]}");
+    Schema inner = schema.getField("inner").schema().getTypes().get(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.create(schema, out);
+      for (int i = 0; i < 200; i++) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("inner", null);
+        writer.append(record);
+      }
+      GenericRecord value = new GenericData.Record(inner);
+      value.put("x", 7);
+      GenericRecord record = new GenericData.Record(schema);
+      record.put("inner", value);
+      writer.append(record);
+    }
+    try (ColumnarBatchReader batches = new ColumnarBatchReader(
+        new DataFileReader<>(new SeekableByteArrayInput(out.toByteArray()), new GenericDatumReader<>()))) {
+      ColumnVector.StructVector batch = (ColumnVector.StructVector) batches.next();
+      assertEquals(201, batch.size());
+      ColumnVector.StructVector parents = (ColumnVector.StructVector) batch.getField("inner");
+      ColumnVector.IntVector xs = (ColumnVector.IntVector) parents.getField("x");
+      assertEquals(201, xs.size());
+      for (int i = 0; i < 200; i++) {
+        assertTrue(parents.isNull(i));
+        assertTrue(xs.isNull(i));
+      }
+      assertFalse(parents.isNull(200));
+      assertFalse(xs.isNull(200));
+      assertEquals(7, xs.getInt(200));
+      assertFalse(batches.hasNext());
+    }
+  }
+}
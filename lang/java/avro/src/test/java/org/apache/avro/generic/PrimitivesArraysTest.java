@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class PrimitivesArraysTest {
+  private static final Schema INTS = Schema.createArray(Schema.create(Schema.Type.INT));
+  private static final Schema BOOLEANS = Schema.createArray(Schema.create(Schema.Type.BOOLEAN));
+
+  @Test
+  public void intArrayListSemantics() {
+    PrimitivesArrays.IntArray array = new PrimitivesArrays.IntArray(0, INTS);
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      array.add(i * 3);
+      expected.add(i * 3);
+    }
+    array.add(0, -1);
+    expected.add(0, -1);
+    array.add(10, 100);
+    expected.add(10, 100);
+    assertEquals(expected.set(5, 55), array.set(5, 55));
+    assertEquals(expected.remove(3), array.remove(3));
+    assertEquals(expected, array);
+    assertEquals(expected.size(), array.size());
+    assertEquals(expected.indexOf(55), array.indexOf(55));
+    assertTrue(array.contains(57));
+    assertFalse(array.contains(58));
+    assertEquals(expected.subList(2, 7), array.subList(2, 7));
+
+    ListIterator<Integer> it = array.listIterator();
+    while (it.hasNext()) {
+      it.set(it.next() + 1);
+    }
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i) + 1, array.getInt(i));
+    }
+
+    int[] unboxed = array.toIntArray();
+    array.reverse();
+    for (int i = 0; i < unboxed.length; i++) {
+      assertEquals(unboxed[unboxed.length - 1 - i], array.getInt(i));
+    }
+    array.clear();
+    assertTrue(array.isEmpty());
+    assertArrayEquals(new int[0], array.toIntArray());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void intArrayGetOutOfBounds() {
+    PrimitivesArrays.IntArray array = new PrimitivesArrays.IntArray(10, INTS);
+    array.add(1);
+    array.get(1);
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void intArrayRejectsNull() {
+    new PrimitivesArrays.IntArray(0, INTS).add(null);
+  }
+
+  @Test
+  public void booleanArrayListSemantics() {
+    PrimitivesArrays.BooleanArray array = new PrimitivesArrays.BooleanArray(0, BOOLEANS);
+    List<Boolean> expected = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      array.add(i % 3 == 0);
+      expected.add(i % 3 == 0);
+    }
+    array.add(4, true);
+    expected.add(4, true);
+    assertEquals(expected.set(1, true), array.set(1, true));
+    assertEquals(expected.remove(0), array.remove(0));
+    assertEquals(expected, array);
+    assertEquals(expected.lastIndexOf(false), array.lastIndexOf(false));
+
+    boolean[] unboxed = array.toBooleanArray();
+    assertEquals(expected.size(), unboxed.length);
+    for (int i = 0; i < unboxed.length; i++) {
+      assertEquals(expected.get(i), unboxed[i]);
+      assertEquals(expected.get(i), array.getBoolean(i));
+    }
+    assertEquals(expected.subList(3, 9), array.subList(3, 9));
+    array.subList(3, 9).clear();
+    expected.subList(3, 9).clear();
+    assertEquals(expected, array);
+  }
+
+  @Test
+  public void equalsAndHashCodeMatchGenericArray() {
+    PrimitivesArrays.IntArray ints = new PrimitivesArrays.IntArray(INTS, Arrays.asList(3, 1, 4, 1, 5));
+    GenericData.Array<Integer> boxedInts = new GenericData.Array<>(INTS, Arrays.asList(3, 1, 4, 1, 5));
+    assertEquals(boxedInts, ints);
+    assertEquals(ints, boxedInts);
+    assertEquals(boxedInts.hashCode(), ints.hashCode());
+    assertEquals(0, GenericData.get().compare(ints, boxedInts, INTS));
+    boxedInts.add(9);
+    assertNotEquals(boxedInts, ints);
+    assertNotEquals(ints, boxedInts);
+
+    PrimitivesArrays.BooleanArray booleans = new PrimitivesArrays.BooleanArray(BOOLEANS,
+        Arrays.asList(true, false, true));
+    GenericData.Array<Boolean> boxedBooleans = new GenericData.Array<>(BOOLEANS, Arrays.asList(true, false, true));
+    assertEquals(boxedBooleans, booleans);
+    assertEquals(booleans, boxedBooleans);
+    assertEquals(boxedBooleans.hashCode(), booleans.hashCode());
+    booleans.set(1, true);
+    assertNotEquals(boxedBooleans, booleans);
+  }
+
+  @Test
+  public void writeChecksSize() throws IOException {
+    PrimitivesArrays.IntArray array = new PrimitivesArrays.IntArray(INTS, Arrays.asList(1, 2, 3));
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<Object>(INTS) {
+      @Override
+      protected long getArraySize(Object array) {
+        return super.getArraySize(array) + 1; // as if an element was added meanwhile
+      }
+    };
+    try {
+      writer.write(array, EncoderFactory.get().binaryEncoder(new ByteArrayOutputStream(), null));
+      fail("Expected a ConcurrentModificationException");
+    } catch (ConcurrentModificationException e) {
+      // expected
+    }
+  }
+}
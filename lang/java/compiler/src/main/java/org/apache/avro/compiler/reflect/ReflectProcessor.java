@@ -0,0 +1,591 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.compiler.reflect;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.reflect.AvroAlias;
+import org.apache.avro.reflect.AvroCompiled;
+import org.apache.avro.reflect.AvroDefault;
+import org.apache.avro.reflect.AvroDoc;
+import org.apache.avro.reflect.AvroEncode;
+import org.apache.avro.reflect.AvroIgnore;
+import org.apache.avro.reflect.AvroMeta;
+import org.apache.avro.reflect.AvroName;
+import org.apache.avro.reflect.AvroSchema;
+import org.apache.avro.reflect.CompiledClass;
+import org.apache.avro.reflect.Nullable;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.Stringable;
+import org.apache.avro.reflect.Union;
+import org.apache.avro.specific.SpecificData;
+
+/**
+ * Generates a {@link CompiledClass} for each class annotated with
+ * {@link AvroCompiled}. It holds the schema of the class, created as
+ * {@link ReflectData} would create it, and accessors for the fields declared by
+ * the class that are neither private nor final.
+ *
+ * Only classes whose fields have primitive, string, bytes, array, collection,
+ * map, enum and stringable types, or the types of other {@link AvroCompiled}
+ * classes, are supported. Other classes are reported with a warning and left to
+ * reflection.
+ */
+@SupportedAnnotationTypes("org.apache.avro.reflect.AvroCompiled")
+public class ReflectProcessor extends AbstractProcessor {
+  // maximum size for string constants, to avoid javac limits
+  private static final int MAX_STRING_CHARS = 8192;
+
+  // as SpecificData's default stringable classes
+  private static final Set<String> STRINGABLE = new HashSet<>(
+      Arrays.asList("java.math.BigDecimal", "java.math.BigInteger", "java.net.URI", "java.net.URL", "java.io.File"));
+
+  /** A class whose schema can't be generated. */
+  private static class UnsupportedException extends Exception {
+    UnsupportedException(String message) {
+      super(message);
+    }
+  }
+
+  private Elements elements;
+  private Types types;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    this.elements = processingEnv.getElementUtils();
+    this.types = processingEnv.getTypeUtils();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element e : roundEnv.getElementsAnnotatedWith(AvroCompiled.class)) {
+      if (!e.getKind().isClass() || e.getKind() == ElementKind.ENUM) {
+        error(e, "@AvroCompiled only applies to classes");
+        continue;
+      }
+      TypeElement c = (TypeElement) e;
+      try {
+        Schema schema = createSchema(c.asType(), new HashMap<>());
+        write(c, schema);
+      } catch (UnsupportedException ex) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+            "Not generating the schema of " + c + ", it will be created at run time: " + ex.getMessage(), c);
+      } catch (AvroRuntimeException | IOException ex) {
+        error(c, "Can't generate the schema of " + c + ": " + ex.getMessage());
+      }
+    }
+    return true;
+  }
+
+  private void error(Element e, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+  }
+
+  /** Create the schema of a type, as {@link ReflectData#createSchema} does. */
+  private Schema createSchema(TypeMirror type, Map<String, Schema> names) throws UnsupportedException {
+    switch (type.getKind()) {
+    case BOOLEAN:
+      return Schema.create(Schema.Type.BOOLEAN);
+    case INT:
+      return Schema.create(Schema.Type.INT);
+    case LONG:
+      return Schema.create(Schema.Type.LONG);
+    case FLOAT:
+      return Schema.create(Schema.Type.FLOAT);
+    case DOUBLE:
+      return Schema.create(Schema.Type.DOUBLE);
+    case BYTE:
+      return intSchema(Byte.class);
+    case SHORT:
+      return intSchema(Short.class);
+    case CHAR:
+      return intSchema(Character.class);
+    case ARRAY:
+      return createArraySchema((ArrayType) type, names);
+    case DECLARED:
+      return createDeclaredSchema((DeclaredType) type, names);
+    default:
+      throw new UnsupportedException("unsupported type " + type);
+    }
+  }
+
+  private static Schema intSchema(Class<?> c) {
+    Schema result = Schema.create(Schema.Type.INT);
+    result.addProp(SpecificData.CLASS_PROP, c.getName());
+    return result;
+  }
+
+  private Schema createArraySchema(ArrayType type, Map<String, Schema> names) throws UnsupportedException {
+    TypeMirror component = type.getComponentType();
+    if (isGeneric(component)) { // generic array
+      return Schema.createArray(createSchema(component, names));
+    }
+    Schema result = (component.getKind() == TypeKind.BYTE) ? Schema.create(Schema.Type.BYTES)
+        : Schema.createArray(createSchema(component, names));
+    result.addProp(SpecificData.CLASS_PROP, className(type));
+    return result;
+  }
+
+  private Schema createDeclaredSchema(DeclaredType type, Map<String, Schema> names) throws UnsupportedException {
+    TypeElement c = (TypeElement) type.asElement();
+    String fullName = binaryName(c);
+    List<? extends TypeMirror> params = type.getTypeArguments();
+    if (!params.isEmpty()) {
+      if (isSubtype(type, "java.util.Map") && params.size() == 2) { // Map
+        TypeMirror key = params.get(0);
+        Schema schema = Schema.createMap(createSchema(params.get(1), names));
+        if (isStringable(key)) {
+          schema.addProp(SpecificData.KEY_CLASS_PROP, binaryName((TypeElement) types.asElement(key)));
+        } else if (!isClass(key, "java.lang.String")) {
+          throw new UnsupportedException("map keys of " + key);
+        }
+        return schema;
+      } else if (isSubtype(type, "java.util.Collection") && params.size() == 1) { // Collection
+        Schema schema = Schema.createArray(createSchema(params.get(0), names));
+        schema.addProp(SpecificData.CLASS_PROP, fullName);
+        return schema;
+      }
+      throw new UnsupportedException("generic type " + type);
+    }
+    switch (fullName) {
+    case "java.lang.Boolean":
+      return Schema.create(Schema.Type.BOOLEAN);
+    case "java.lang.Integer":
+      return Schema.create(Schema.Type.INT);
+    case "java.lang.Long":
+      return Schema.create(Schema.Type.LONG);
+    case "java.lang.Float":
+      return Schema.create(Schema.Type.FLOAT);
+    case "java.lang.Double":
+      return Schema.create(Schema.Type.DOUBLE);
+    case "java.lang.Void":
+      return Schema.create(Schema.Type.NULL);
+    case "java.lang.Byte":
+      return intSchema(Byte.class);
+    case "java.lang.Short":
+      return intSchema(Short.class);
+    case "java.lang.Character":
+      return intSchema(Character.class);
+    default:
+    }
+    AvroSchema explicit = c.getAnnotation(AvroSchema.class);
+    if (explicit != null) // explicit schema
+      return new Schema.Parser().parse(explicit.value());
+    if (isSubtype(type, "java.lang.CharSequence")) // String
+      return Schema.create(Schema.Type.STRING);
+    if (isSubtype(type, "java.nio.ByteBuffer")) // bytes
+      return Schema.create(Schema.Type.BYTES);
+    Schema schema = names.get(fullName);
+    if (schema != null) {
+      return schema;
+    }
+    if (c.getAnnotation(Union.class) != null) {
+      throw new UnsupportedException("union " + c);
+    } else if (isStringable(type)) { // Stringable
+      Schema result = Schema.create(Schema.Type.STRING);
+      result.addProp(SpecificData.CLASS_PROP, fullName);
+      return result;
+    } else if (c.getKind() == ElementKind.ENUM) { // Enum
+      List<String> symbols = new ArrayList<>();
+      for (Element constant : c.getEnclosedElements()) {
+        if (constant.getKind() == ElementKind.ENUM_CONSTANT) {
+          symbols.add(constant.getSimpleName().toString());
+        }
+      }
+      schema = Schema.createEnum(c.getSimpleName().toString(), doc(c), namespace(c), symbols);
+      addAliases(c, schema);
+    } else if (c.getAnnotation(AvroCompiled.class) != null) { // record
+      schema = createRecordSchema(c, names);
+    } else {
+      throw new UnsupportedException(c + " is not @AvroCompiled");
+    }
+    names.put(fullName, schema);
+    return schema;
+  }
+
+  private Schema createRecordSchema(TypeElement c, Map<String, Schema> names) throws UnsupportedException {
+    if (isSubtype(c.asType(), "java.lang.Throwable") || isSubtype(c.asType(), "org.apache.avro.generic.GenericFixed")
+        || isSubtype(c.asType(), "org.apache.avro.generic.IndexedRecord")) {
+      throw new UnsupportedException("record type " + c);
+    }
+    if (c.getNestingKind() != NestingKind.TOP_LEVEL && !c.getModifiers().contains(Modifier.STATIC)
+        && c.getKind() != ElementKind.INTERFACE && !isJavaRecord(c)) {
+      throw new UnsupportedException(c + " is not a static inner class");
+    }
+    Schema schema = Schema.createRecord(c.getSimpleName().toString(), doc(c), namespace(c), false);
+    addAliases(c, schema);
+    names.put(binaryName(c), schema);
+    List<Schema.Field> fields = new ArrayList<>();
+    for (VariableElement field : getFields(c)) {
+      if (field.getAnnotation(AvroIgnore.class) != null) {
+        continue;
+      }
+      Schema fieldSchema = createFieldSchema(field, names);
+      AvroDefault defaultAnnotation = field.getAnnotation(AvroDefault.class);
+      Object defaultValue = (defaultAnnotation == null) ? null : Schema.parseJsonToObject(defaultAnnotation.value());
+      if (defaultValue == null && fieldSchema.getType() == Schema.Type.UNION
+          && fieldSchema.getTypes().get(0).getType() == Schema.Type.NULL) {
+        defaultValue = JsonProperties.NULL_VALUE;
+      }
+      AvroName annotatedName = field.getAnnotation(AvroName.class); // Rename fields
+      String fieldName = (annotatedName != null) ? annotatedName.value() : field.getSimpleName().toString();
+      Schema.Field recordField = new Schema.Field(fieldName, fieldSchema, doc(field), defaultValue);
+      for (AvroMeta meta : field.getAnnotationsByType(AvroMeta.class)) { // add metadata
+        if (recordField.getObjectProps().containsKey(meta.key())) {
+          throw new AvroRuntimeException("Duplicate field prop key: " + meta.key());
+        }
+        recordField.addProp(meta.key(), meta.value());
+      }
+      for (Schema.Field f : fields) {
+        if (f.name().equals(fieldName))
+          throw new AvroRuntimeException("double field entry: " + fieldName);
+      }
+      for (AvroAlias alias : field.getAnnotationsByType(AvroAlias.class)) {
+        if (!alias.space().equals(AvroAlias.NULL)) {
+          throw new AvroRuntimeException(
+              "Namespaces are not allowed on field aliases. " + "Offending field: " + recordField.name());
+        }
+        recordField.addAlias(alias.alias());
+      }
+      fields.add(recordField);
+    }
+    schema.setFields(fields);
+    for (AvroMeta meta : c.getAnnotationsByType(AvroMeta.class)) {
+      if (schema.getObjectProps().containsKey(meta.key())) {
+        throw new AvroRuntimeException("Duplicate type prop key: " + meta.key());
+      }
+      schema.addProp(meta.key(), meta.value());
+    }
+    return schema;
+  }
+
+  private Schema createFieldSchema(VariableElement field, Map<String, Schema> names) throws UnsupportedException {
+    if (field.getAnnotation(AvroEncode.class) != null) {
+      throw new UnsupportedException("custom encoded field " + field);
+    }
+    AvroSchema explicit = field.getAnnotation(AvroSchema.class);
+    if (explicit != null) // explicit schema
+      return new Schema.Parser().parse(explicit.value());
+    if (field.getAnnotation(Union.class) != null) {
+      throw new UnsupportedException("union field " + field);
+    }
+    Schema schema = (field.getAnnotation(Stringable.class) != null) ? Schema.create(Schema.Type.STRING)
+        : createSchema(field.asType(), names);
+    if (field.getAnnotation(Nullable.class) != null) // nullable
+      schema = ReflectData.makeNullable(schema);
+    return schema;
+  }
+
+  // the fields of a class and its superclasses, as ReflectData orders them
+  private List<VariableElement> getFields(TypeElement c) throws UnsupportedException {
+    List<VariableElement> fields = new ArrayList<>();
+    Set<String> fieldNames = new HashSet<>();
+    for (TypeElement k = c; k != null; k = superclass(k)) {
+      if (elements.getPackageOf(k).getQualifiedName().toString().startsWith("java."))
+        break; // skip java built-in classes
+      List<VariableElement> declared = new ArrayList<>(ElementFilter.fieldsIn(k.getEnclosedElements()));
+      declared.sort(Comparator.comparing(f -> f.getSimpleName().toString()));
+      for (VariableElement field : declared) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+          if (!fieldNames.add(field.getSimpleName().toString()))
+            throw new UnsupportedException(k + " contains two fields named: " + field);
+          fields.add(field);
+        }
+      }
+    }
+    return fields;
+  }
+
+  private TypeElement superclass(TypeElement c) {
+    TypeMirror superclass = c.getSuperclass();
+    return (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) types.asElement(superclass) : null;
+  }
+
+  private boolean isJavaRecord(TypeElement c) {
+    TypeElement superclass = superclass(c);
+    return superclass != null && superclass.getQualifiedName().contentEquals("java.lang.Record");
+  }
+
+  private boolean isStringable(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    TypeElement c = (TypeElement) types.asElement(type);
+    return c.getAnnotation(Stringable.class) != null || STRINGABLE.contains(binaryName(c));
+  }
+
+  private boolean isSubtype(TypeMirror type, String className) {
+    TypeElement c = elements.getTypeElement(className);
+    return c != null && types.isAssignable(types.erasure(type), types.erasure(c.asType()));
+  }
+
+  private boolean isClass(TypeMirror type, String className) {
+    return type.getKind() == TypeKind.DECLARED
+        && ((TypeElement) types.asElement(type)).getQualifiedName().contentEquals(className);
+  }
+
+  private static boolean isGeneric(TypeMirror type) {
+    switch (type.getKind()) {
+    case ARRAY:
+      return isGeneric(((ArrayType) type).getComponentType());
+    case DECLARED:
+      return !((DeclaredType) type).getTypeArguments().isEmpty();
+    default:
+      return !type.getKind().isPrimitive();
+    }
+  }
+
+  // as Class.getName()
+  private String className(TypeMirror type) {
+    switch (type.getKind()) {
+    case ARRAY:
+      return "[" + descriptor(((ArrayType) type).getComponentType());
+    case DECLARED:
+      return binaryName((TypeElement) types.asElement(type));
+    default:
+      return type.toString();
+    }
+  }
+
+  private String descriptor(TypeMirror type) {
+    switch (type.getKind()) {
+    case BOOLEAN:
+      return "Z";
+    case BYTE:
+      return "B";
+    case CHAR:
+      return "C";
+    case SHORT:
+      return "S";
+    case INT:
+      return "I";
+    case LONG:
+      return "J";
+    case FLOAT:
+      return "F";
+    case DOUBLE:
+      return "D";
+    case ARRAY:
+      return className(type);
+    default:
+      return "L" + className(type) + ";";
+    }
+  }
+
+  private String binaryName(TypeElement c) {
+    return elements.getBinaryName(c).toString();
+  }
+
+  // the enclosing class for nested classes, as ReflectData names them
+  private String namespace(TypeElement c) {
+    Element enclosing = c.getEnclosingElement();
+    if (enclosing instanceof TypeElement) // nested class
+      return binaryName((TypeElement) enclosing).replace('$', '.');
+    return elements.getPackageOf(c).getQualifiedName().toString();
+  }
+
+  private static String doc(Element e) {
+    AvroDoc annotatedDoc = e.getAnnotation(AvroDoc.class); // Docstring
+    return (annotatedDoc != null) ? annotatedDoc.value() : null;
+  }
+
+  private static void addAliases(TypeElement c, Schema schema) {
+    for (AvroAlias alias : c.getAnnotationsByType(AvroAlias.class)) {
+      String space = alias.space();
+      if (AvroAlias.NULL.equals(space))
+        space = null;
+      schema.addAlias(alias.alias(), space);
+    }
+  }
+
+  /** Write the generated class for a class and its schema. */
+  private void write(TypeElement c, Schema schema) throws IOException {
+    String pkg = elements.getPackageOf(c).getQualifiedName().toString();
+    String binaryName = binaryName(c);
+    String name = binaryName.substring(pkg.isEmpty() ? 0 : pkg.length() + 1) + CompiledClass.SUFFIX;
+    StringBuilder out = new StringBuilder();
+    if (!pkg.isEmpty()) {
+      out.append("package ").append(pkg).append(";\n\n");
+    }
+    out.append("/** Schema and field accessors of {@link ").append(c.getQualifiedName()).append("}. */\n");
+    out.append("@org.apache.avro.specific.AvroGenerated\n");
+    out.append("public final class ").append(name).append(" extends org.apache.avro.reflect.CompiledClass {\n");
+    out.append("  public ").append(name).append("() {\n");
+    out.append("    super(").append(split(schema.toString())).append(");\n");
+    out.append("  }\n\n");
+    out.append("  @Override\n");
+    out.append("  @SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+    out.append("  protected java.util.Map<String, org.apache.avro.reflect.CompiledField> getFields() {\n");
+    out.append(
+        "    java.util.Map<String, org.apache.avro.reflect.CompiledField> fields = new java.util.HashMap<>();\n");
+    if (isAccessible(c)) {
+      for (VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+        if (hasAccessor(field)) {
+          writeAccessor(out, c, field);
+        }
+      }
+    }
+    out.append("    return fields;\n");
+    out.append("  }\n");
+    out.append("}\n");
+    try (Writer writer = processingEnv.getFiler().createSourceFile((pkg.isEmpty() ? "" : pkg + ".") + name, c)
+        .openWriter()) {
+      writer.write(out.toString());
+    }
+  }
+
+  // whether generated code in the package of a class can name it
+  private static boolean isAccessible(TypeElement c) {
+    for (Element e = c; e instanceof TypeElement; e = e.getEnclosingElement()) {
+      if (e.getModifiers().contains(Modifier.PRIVATE)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasAccessor(VariableElement field) {
+    Set<Modifier> modifiers = field.getModifiers();
+    if (field.asType().getKind() == TypeKind.ARRAY && isGeneric(field.asType())) {
+      return false; // not read as an array of its type
+    }
+    return !modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.FINAL)
+        && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)
+        && field.getAnnotation(AvroIgnore.class) == null && field.getAnnotation(AvroEncode.class) == null;
+  }
+
+  private void writeAccessor(StringBuilder out, TypeElement c, VariableElement field) {
+    String owner = types.erasure(c.asType()).toString();
+    String name = field.getSimpleName().toString();
+    String ref = "((" + owner + ") object)." + name;
+    TypeMirror type = field.asType();
+    String boxed = type.getKind().isPrimitive() ? types.boxedClass((PrimitiveType) type).getQualifiedName().toString()
+        : types.erasure(type).toString();
+    out.append("    fields.put(\"").append(name).append("\", new org.apache.avro.reflect.CompiledField(").append(owner)
+        .append(".class, \"").append(name).append("\") {\n");
+    out.append("      @Override\n");
+    out.append("      protected Object get(Object object) {\n");
+    out.append("        return ").append(ref).append(";\n");
+    out.append("      }\n\n");
+    out.append("      @Override\n");
+    out.append("      protected void set(Object object, Object value) {\n");
+    out.append("        ").append(ref).append(" = (").append(boxed).append(") value;\n");
+    out.append("      }\n");
+    String read = null;
+    String write = null;
+    switch (type.getKind()) {
+    case INT:
+      read = "in.readInt()";
+      write = "out.writeInt(" + ref + ")";
+      break;
+    case LONG:
+      read = "in.readLong()";
+      write = "out.writeLong(" + ref + ")";
+      break;
+    case FLOAT:
+      read = "in.readFloat()";
+      write = "out.writeFloat(" + ref + ")";
+      break;
+    case DOUBLE:
+      read = "in.readDouble()";
+      write = "out.writeDouble(" + ref + ")";
+      break;
+    case BOOLEAN:
+      read = "in.readBoolean()";
+      write = "out.writeBoolean(" + ref + ")";
+      break;
+    case SHORT:
+    case BYTE:
+    case CHAR:
+      read = "(" + type + ") in.readInt()";
+      write = "out.writeInt(" + ref + ")";
+      break;
+    default:
+    }
+    if (read != null) {
+      out.append("\n");
+      out.append("      @Override\n");
+      out.append(
+          "      protected void read(Object object, org.apache.avro.io.Decoder in) throws java.io.IOException {\n");
+      out.append("        ").append(ref).append(" = ").append(read).append(";\n");
+      out.append("      }\n\n");
+      out.append("      @Override\n");
+      out.append(
+          "      protected void write(Object object, org.apache.avro.io.Encoder out) throws java.io.IOException {\n");
+      out.append("        ").append(write).append(";\n");
+      out.append("      }\n\n");
+      out.append("      @Override\n");
+      out.append("      protected boolean supportsIO() {\n");
+      out.append("        return true;\n");
+      out.append("      }\n");
+    }
+    out.append("    });\n");
+  }
+
+  // a string constant, split into quoted, comma-separated parts
+  private static String split(String s) {
+    StringBuilder b = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i += MAX_STRING_CHARS) {
+      if (i != 0)
+        b.append(", ");
+      String chunk = s.substring(i, Math.min(s.length(), i + MAX_STRING_CHARS));
+      b.append('"').append(chunk.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+    }
+    return b.toString();
+  }
+}
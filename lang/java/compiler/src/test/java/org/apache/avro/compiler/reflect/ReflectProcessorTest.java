@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.compiler.reflect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.avro.Schema;
+import org.apache.avro.reflect.CompiledClass;
+import org.apache.avro.reflect.ReflectData;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReflectProcessorTest {
+  @ClassRule
+  public static final TemporaryFolder DIR = new TemporaryFolder();
+
+  private static final String[][] SOURCES = { { "sample/Outer.java", //
+      "package sample;", //
+      "import java.nio.ByteBuffer;", //
+      "import java.util.*;", //
+      "import org.apache.avro.reflect.*;", //
+      "@AvroCompiled", //
+      "public class Outer {", //
+      "  boolean b; byte by; short s; char c; int i; long l; float f; double d;", //
+      "  Integer boxed; String str; byte[] bytes; ByteBuffer buffer; int[] ints;", //
+      "  @Nullable String maybe;", //
+      "  @AvroName(\"renamed\") int original;", //
+      "  @AvroIgnore int ignored;", //
+      "  transient int skipped;", //
+      "  Color color;", //
+      "  Inner inner;", //
+      "  List<Inner> inners;", //
+      "  Set<String> tags;", //
+      "  Map<String, Long> counts;", //
+      "  public enum Color { RED, GREEN }", //
+      "  @AvroCompiled", //
+      "  public static class Inner { String name; @Nullable Inner next; }", //
+      "}" },
+      { "sample/Holder.java", //
+          "package sample;", //
+          "public class Holder { Outer outer; Outer.Inner inner; }" },
+      { "sample/WithUnion.java", //
+          "package sample;", //
+          "import org.apache.avro.reflect.*;", //
+          "@AvroCompiled", //
+          "public class WithUnion {", //
+          "  @Union({ Integer.class, String.class }) Object value;", //
+          "}" } };
+
+  private static final List<Diagnostic<? extends JavaFileObject>> warnings = new ArrayList<>();
+  private static ClassLoader loader;
+
+  // creates schemas by reflection only, as overriding isStringable disables
+  // the use of generated schemas
+  private static final ReflectData REFLECTED = new ReflectData() {
+    @Override
+    protected boolean isStringable(Class<?> c) {
+      return super.isStringable(c);
+    }
+  };
+
+  @BeforeClass
+  public static void compile() throws IOException {
+    File src = DIR.newFolder("src");
+    File classes = DIR.newFolder("classes");
+    List<File> files = new ArrayList<>();
+    for (String[] source : SOURCES) {
+      File file = new File(src, source[0]);
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), Arrays.asList(source).subList(1, source.length), StandardCharsets.UTF_8);
+      files.add(file);
+    }
+
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = javac.getStandardFileManager(diagnostics, null, null)) {
+      List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", classes.getPath(),
+          "-processor", ReflectProcessor.class.getName());
+      boolean compiled = javac
+          .getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files))
+          .call();
+      assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+    }
+    for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+      if (d.getKind() == Diagnostic.Kind.WARNING) {
+        warnings.add(d);
+      }
+    }
+    loader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, ReflectProcessorTest.class.getClassLoader());
+  }
+
+  private static Schema generated(String name) throws ReflectiveOperationException {
+    return ((CompiledClass) Class.forName(name + CompiledClass.SUFFIX, true, loader).getDeclaredConstructor()
+        .newInstance()).getSchema();
+  }
+
+  @Test
+  public void generatedSchemasMatchReflection() throws ReflectiveOperationException {
+    for (String name : new String[] { "sample.Outer", "sample.Outer$Inner" }) {
+      Type c = Class.forName(name, true, loader);
+      Schema schema = generated(name);
+      assertEquals(REFLECTED.getSchema(c), schema);
+      assertEquals(ReflectData.get().getSchema(c), schema);
+    }
+    Schema outer = generated("sample.Outer");
+    assertEquals(Schema.Type.INT, outer.getField("renamed").schema().getType());
+    assertEquals(null, outer.getField("ignored"));
+    assertEquals(null, outer.getField("skipped"));
+    assertEquals(Schema.Type.ENUM, outer.getField("color").schema().getType());
+  }
+
+  @Test
+  public void generatedNamedTypesAreShared() throws ReflectiveOperationException {
+    Class<?> holder = Class.forName("sample.Holder", true, loader);
+    Schema schema = ReflectData.get().getSchema(holder);
+    assertEquals(REFLECTED.getSchema(holder), schema);
+    Schema inner = schema.getField("inner").schema();
+    assertSame(inner, schema.getField("outer").schema().getField("inner").schema());
+    assertSame(inner, schema.getField("outer").schema().getField("inners").schema().getElementType());
+  }
+
+  @Test
+  public void unsupportedFieldFallsBackToReflection() throws ReflectiveOperationException {
+    Class<?> c = Class.forName("sample.WithUnion", true, loader);
+    try {
+      Class.forName("sample.WithUnion" + CompiledClass.SUFFIX, true, loader);
+      throw new AssertionError("generated code for a union field");
+    } catch (ClassNotFoundException expected) {
+      // left to reflection
+    }
+    assertEquals(1, warnings.size());
+    String warning = warnings.get(0).getMessage(null);
+    assertTrue(warning, warning.startsWith("Not generating the schema of sample.WithUnion"));
+    assertTrue(warning, warning.contains("union field value"));
+
+    Schema schema = ReflectData.get().getSchema(c);
+    assertEquals(REFLECTED.getSchema(c), schema);
+    assertEquals(Schema.Type.UNION, schema.getField("value").schema().getType());
+  }
+}
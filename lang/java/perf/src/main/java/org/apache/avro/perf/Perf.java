@@ -26,6 +26,7 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
@@ -46,6 +47,9 @@ public final class Perf {
     options.addOption(Option.builder().argName("warmupIterations").longOpt("wi").hasArg()
         .desc("The number of warmup iterations").numberOfArgs(1).build());
 
+    options.addOption(
+        Option.builder().argName("gcProfiler").longOpt("gc").desc("Report allocation with the GC profiler").build());
+
     options.addOption(Option.builder().argName("bulkWarmup").longOpt("bw").desc("Flag to enabled bulk warmup").build());
 
     options.addOption(
@@ -79,6 +83,10 @@ public final class Perf {
       runOpt.warmupMode(WarmupMode.BULK);
     }
 
+    if (cmd.hasOption("gc")) {
+      runOpt.addProfiler(GCProfiler.class);
+    }
+
     for (final String test : tests) {
       runOpt.include(test);
     }
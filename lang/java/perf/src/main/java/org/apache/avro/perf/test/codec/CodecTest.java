@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.avro.file.BZip2Codec;
+import org.apache.avro.file.Codec;
+import org.apache.avro.file.DeflateCodec;
+import org.apache.avro.file.LZ4Codec;
+import org.apache.avro.file.XZCodec;
+import org.apache.avro.file.ZstandardCodec;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compresses and decompresses one data file block per operation, with and
+ * without reusing the output buffer. Run with the GC profiler to see the bytes
+ * allocated per block.
+ */
+public class CodecTest {
+
+  @Benchmark
+  public ByteBuffer compress(final TestState state) throws Exception {
+    ByteBuffer result = state.codec.compress(state.uncompressed.duplicate(), state.reuse ? state.compressOut : null);
+    state.compressOut = result;
+    return result;
+  }
+
+  @Benchmark
+  public ByteBuffer decompress(final TestState state) throws Exception {
+    ByteBuffer result = state.codec.decompress(state.compressed.duplicate(), state.reuse ? state.decompressOut : null);
+    state.decompressOut = result;
+    return result;
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+
+    @Param({ "deflate", "bzip2", "xz", "zstandard", "lz4", "lz4hc" })
+    public String codecName;
+
+    @Param({ "false", "true" })
+    public boolean reuse;
+
+    private Codec codec;
+    private ByteBuffer uncompressed;
+    private ByteBuffer compressed;
+    private ByteBuffer compressOut;
+    private ByteBuffer decompressOut;
+
+    public TestState() {
+      super();
+    }
+
+    /**
+     * Encode a block of records about the size of the default sync interval.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      switch (codecName) {
+      case "deflate":
+        codec = new DeflateCodec(6);
+        break;
+      case "bzip2":
+        codec = new BZip2Codec();
+        break;
+      case "xz":
+        codec = new XZCodec(6);
+        break;
+      case "zstandard":
+        codec = new ZstandardCodec(3, false, false);
+        break;
+      case "lz4":
+        codec = new LZ4Codec(LZ4Codec.DEFAULT_COMPRESSION);
+        break;
+      case "lz4hc":
+        codec = new LZ4Codec(LZ4Codec.DEFAULT_HIGH_COMPRESSION);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown codec: " + codecName);
+      }
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+      final Random r = super.getRandom();
+      while (baos.size() < 64000) {
+        encoder.writeLong(r.nextInt(1 << 20));
+        encoder.writeString("name-" + r.nextInt(500));
+        encoder.writeDouble(r.nextInt(10000) / 100.0);
+        encoder.writeBoolean(r.nextBoolean());
+      }
+      this.uncompressed = ByteBuffer.wrap(baos.toByteArray());
+      this.compressed = codec.compress(uncompressed.duplicate());
+    }
+  }
+}
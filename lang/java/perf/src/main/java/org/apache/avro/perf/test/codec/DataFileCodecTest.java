@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.LZ4Codec;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Writes and reads a data file of records through each fast codec, to compare
+ * them on whole files rather than single blocks. Only speed is measured: the
+ * write benchmark returns the size of the file it wrote, so that the writes are
+ * not optimized away, but sizes are not reported.
+ */
+public class DataFileCodecTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"id\", \"type\": \"long\" },\n" + "{ \"name\": \"name\", \"type\": \"string\" },\n"
+      + "{ \"name\": \"amount\", \"type\": \"double\" },\n" + "{ \"name\": \"flag\", \"type\": \"boolean\" }\n" + "] }";
+
+  private static final int RECORDS = 16 * BasicState.BATCH_SIZE;
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int write(final TestState state) throws Exception {
+    state.out.reset();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())) {
+      writer.setCodec(state.codec).create(state.schema, state.out);
+      for (GenericRecord rec : state.records) {
+        writer.append(rec);
+      }
+    }
+    return state.out.size();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void read(final Blackhole blackhole, final TestState state) throws Exception {
+    try (DataFileStream<GenericRecord> reader = new DataFileStream<>(new ByteArrayInputStream(state.file),
+        new GenericDatumReader<>())) {
+      GenericRecord rec = null;
+      while (reader.hasNext()) {
+        rec = reader.next(rec);
+        blackhole.consume(rec);
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+
+    @Param({ "snappy", "zstandard", "lz4", "lz4hc" })
+    public String codecName;
+
+    private final Schema schema;
+    private CodecFactory codec;
+    private GenericRecord[] records;
+    private byte[] file;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    public TestState() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    /**
+     * Generate records and write them once for the read benchmark.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      codec = "lz4hc".equals(codecName) ? CodecFactory.lz4Codec(LZ4Codec.DEFAULT_HIGH_COMPRESSION)
+          : CodecFactory.fromString(codecName);
+
+      final Random r = super.getRandom();
+      records = new GenericRecord[RECORDS];
+      for (int i = 0; i < records.length; i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        rec.put("id", (long) r.nextInt(1 << 20));
+        rec.put("name", "name-" + r.nextInt(500));
+        rec.put("amount", r.nextInt(10000) / 100.0);
+        rec.put("flag", r.nextBoolean());
+        records[i] = rec;
+      }
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())) {
+        writer.setCodec(codec).create(schema, baos);
+        for (GenericRecord rec : records) {
+          writer.append(rec);
+        }
+      }
+      this.file = baos.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.avro.file.CoalescingSeekableInput;
+import org.apache.avro.file.SeekableInput;
+
+/**
+ * A local file that reads like remote storage: every read pays a fixed latency
+ * plus a transfer time at a given bandwidth, as a round trip to an object store
+ * would. Usable directly as a {@link SeekableInput}, where each read is a round
+ * trip, or as the source of a {@link CoalescingSeekableInput}, where reads may
+ * run concurrently.
+ */
+public class SimulatedLatencyInput implements SeekableInput, CoalescingSeekableInput.RangeSource {
+  private final FileChannel channel;
+  private final long latencyNanos;
+  private final long bytesPerSecond;
+  private final AtomicLong reads = new AtomicLong();
+  private long position;
+
+  /**
+   * @param file           the file to read
+   * @param latency        the time taken by every read
+   * @param unit           the unit of {@code latency}
+   * @param bytesPerSecond the bandwidth of each read
+   */
+  public SimulatedLatencyInput(File file, long latency, TimeUnit unit, long bytesPerSecond) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.latencyNanos = unit.toNanos(latency);
+    this.bytesPerSecond = bytesPerSecond;
+  }
+
+  /** The number of round trips made. */
+  public long getReadCount() {
+    return reads.get();
+  }
+
+  private void roundTrip(int bytes) {
+    reads.incrementAndGet();
+    long nanos = latencyNanos + TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond;
+    long deadline = System.nanoTime() + nanos;
+    for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+      LockSupport.parkNanos(left);
+    }
+  }
+
+  @Override
+  public void readFully(long at, byte[] b, int off, int len) throws IOException {
+    roundTrip(len);
+    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, at + buffer.position() - off) < 0) {
+        throw new IOException("Read past the end of the file at " + at);
+      }
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    roundTrip(len);
+    int n = channel.read(ByteBuffer.wrap(b, off, len), position);
+    if (n > 0) {
+      position += n;
+    }
+    return n;
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException {
+    return position;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.file;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.BloomFilterIndex;
+import org.apache.avro.file.CoalescingSeekableInput;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.file.SeekableInput;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Looks a key up through a Bloom filter index in a file on simulated remote
+ * storage, reading the candidate blocks one round trip at a time, or with
+ * vectored reads through a {@link CoalescingSeekableInput}. Each key occurs in
+ * 8 blocks spread over the file.
+ */
+public class VectoredReadTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"tag\", \"type\": \"int\" },\n" + "{ \"name\": \"name\", \"type\": \"string\" }\n" + "] }";
+
+  private static final int TAGS = 25;
+  private static final int BLOCKS = 8 * TAGS;
+  private static final int RECORDS_PER_BLOCK = 1000;
+
+  @Benchmark
+  public int lookupSequential(final TestState state) throws Exception {
+    return lookup(state,
+        new SimulatedLatencyInput(state.file, state.latencyMillis, TimeUnit.MILLISECONDS, TestState.BYTES_PER_SECOND));
+  }
+
+  @Benchmark
+  public int lookupVectored(final TestState state) throws Exception {
+    SimulatedLatencyInput source = new SimulatedLatencyInput(state.file, state.latencyMillis, TimeUnit.MILLISECONDS,
+        TestState.BYTES_PER_SECOND);
+    return lookup(state, new CoalescingSeekableInput(source, source.length(), state.executor));
+  }
+
+  private static int lookup(TestState state, SeekableInput input) throws IOException {
+    try (DataFileReader<GenericRecord> reader = new DataFileReader<>(input, new GenericDatumReader<>())) {
+      List<GenericRecord> found = reader.lookup(state.index, "tag", state.nextTag());
+      if (found.size() != 8 * RECORDS_PER_BLOCK) {
+        throw new IllegalStateException("Found " + found.size());
+      }
+      return found.size();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+    private static final long BYTES_PER_SECOND = 100L * 1024 * 1024;
+
+    @Param({ "5" })
+    public int latencyMillis;
+
+    private final Schema schema;
+    private File file;
+    private File indexFile;
+    private BloomFilterIndex index;
+    private ExecutorService executor;
+    private int tag;
+
+    public TestState() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    /**
+     * Write a data file with its index.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      file = File.createTempFile("vectored", ".avro");
+      indexFile = File.createTempFile("vectored", ".index");
+      try (OutputStream indexOut = new FileOutputStream(indexFile);
+          DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>())) {
+        writer.setCodec(CodecFactory.deflateCodec(1)).setBloomFilter(indexOut, 0.01, 4096, "tag");
+        writer.create(schema, file);
+        for (int b = 0; b < BLOCKS; b++) {
+          for (int i = 0; i < RECORDS_PER_BLOCK; i++) {
+            GenericRecord rec = new GenericData.Record(schema);
+            rec.put("tag", b % TAGS);
+            rec.put("name", "name-" + super.getRandom().nextInt());
+            writer.append(rec);
+          }
+          writer.sync();
+        }
+      }
+      index = BloomFilterIndex.read(indexFile);
+      executor = Executors.newFixedThreadPool(16);
+    }
+
+    private int nextTag() {
+      tag = (tag + 1) % TAGS;
+      return tag;
+    }
+
+    @TearDown(Level.Trial)
+    public void doTearDownTrial() throws IOException {
+      executor.shutdownNow();
+      Files.delete(file.toPath());
+      Files.delete(indexFile.toPath());
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Decodes records reusing the previous one, with and without
+ * {@link GenericDatumReader#setAllocationFree(boolean)}. Run with
+ * {@code -prof gc} to compare the bytes allocated per operation.
+ */
+public class GenericAllocationFreeTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"f1\", \"type\": \"string\" },\n"
+      + "{ \"name\": \"f2\", \"type\": { \"type\": \"enum\", \"name\": \"E\", \"symbols\": [\"A\", \"B\", \"C\"] } },\n"
+      + "{ \"name\": \"f3\", \"type\": { \"type\": \"fixed\", \"name\": \"F\", \"size\": 16 } },\n"
+      + "{ \"name\": \"f4\", \"type\": \"bytes\" },\n"
+      + "{ \"name\": \"f5\", \"type\": [\"null\", { \"type\": \"record\", \"name\": \"S\","
+      + " \"fields\": [ { \"name\": \"s1\", \"type\": \"string\" } ] }, \"string\"] },\n"
+      + "{ \"name\": \"f6\", \"type\": { \"type\": \"map\", \"values\": [\"null\", \"S\"] } },\n"
+      + "{ \"name\": \"f7\", \"type\": { \"type\": \"array\", \"items\": \"S\" } }\n" + "] }";
+
+  private static final int MAX_SIZE = 8;
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeReusing(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    decode(blackhole, state.decoder, new GenericDatumReader<>(state.schema), state.getBatchSize());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeAllocationFree(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    decode(blackhole, state.decoder, state.allocationFreeReader, state.getBatchSize());
+  }
+
+  private static void decode(Blackhole blackhole, Decoder d, GenericDatumReader<Object> reader, int count)
+      throws IOException {
+    Object reuse = null;
+    for (int i = 0; i < count; i++) {
+      reuse = reader.read(reuse, d);
+      blackhole.consume(reuse);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicState {
+
+    private final Schema schema;
+    private final GenericDatumReader<Object> allocationFreeReader;
+
+    private byte[] testData;
+    private Decoder decoder;
+
+    public TestStateDecode() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+      this.allocationFreeReader = new GenericDatumReader<>(schema);
+      this.allocationFreeReader.setAllocationFree(true);
+    }
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      Schema s = schema.getField("f5").schema().getTypes().get(1);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+      GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+
+      for (int i = 0; i < getBatchSize(); i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        rec.put(0, new Utf8("string" + super.getRandom().nextInt()));
+        rec.put(1, new GenericData.EnumSymbol(schema.getField("f2").schema(), "ABC".substring(i % 3, i % 3 + 1)));
+        byte[] fixed = new byte[16];
+        super.getRandom().nextBytes(fixed);
+        rec.put(2, new GenericData.Fixed(schema.getField("f3").schema(), fixed));
+        byte[] bytes = new byte[super.getRandom().nextInt(64)];
+        super.getRandom().nextBytes(bytes);
+        rec.put(3, ByteBuffer.wrap(bytes));
+        rec.put(4, (i % 3 == 0) ? null : (i % 3 == 1) ? newS(s, "s" + i) : new Utf8("u" + i));
+        Map<Utf8, Object> map = new HashMap<>();
+        List<Object> array = new ArrayList<>();
+        int size = super.getRandom().nextInt(MAX_SIZE);
+        for (int j = 0; j < size; j++) {
+          map.put(new Utf8("key" + j), super.getRandom().nextBoolean() ? newS(s, "v" + j) : null);
+          array.add(newS(s, "a" + j));
+        }
+        rec.put(5, map);
+        rec.put(6, array);
+        writer.write(rec, encoder);
+      }
+      encoder.flush();
+
+      this.testData = baos.toByteArray();
+    }
+
+    private static GenericRecord newS(Schema s, String value) {
+      GenericRecord rec = new GenericData.Record(s);
+      rec.put(0, new Utf8(value));
+      return rec;
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = super.newDecoder(this.testData);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Deep copies records with {@link GenericData#deepCopy(Schema, Object)}, which
+ * follows a plan compiled per schema, and with a data model that overrides
+ * deepCopy, which switches on the type of each value as it goes.
+ */
+public class GenericDeepCopyTest {
+
+  private static final String RECORD_SCHEMA = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"f1\", \"type\": \"long\" },\n" + "{ \"name\": \"f2\", \"type\": \"string\" },\n"
+      + "{ \"name\": \"f3\", \"type\": [\"null\", \"bytes\"] },\n"
+      + "{ \"name\": \"f4\", \"type\": { \"type\": \"array\", \"items\": \"double\" } },\n"
+      + "{ \"name\": \"f5\", \"type\": { \"type\": \"map\", \"values\": \"int\" } },\n"
+      + "{ \"name\": \"f6\", \"type\": { \"type\": \"array\", \"items\": { \"type\": \"record\", \"name\": \"S\","
+      + " \"fields\": [ { \"name\": \"s1\", \"type\": \"string\" }, { \"name\": \"s2\", \"type\": \"int\" } ] } } }\n"
+      + "] }";
+
+  private static final int ARRAY_SIZE = 8;
+
+  /** Copies values by type as it goes, as deepCopy is overridden. */
+  private static class InterpretedData extends GenericData {
+    @Override
+    public <T> T deepCopy(Schema schema, T value) {
+      return super.deepCopy(schema, value);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void compiled(final Blackhole blackhole, final TestState state) {
+    final GenericData data = GenericData.get();
+    for (final GenericRecord rec : state.testData) {
+      blackhole.consume(data.deepCopy(state.schema, rec));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void interpreted(final Blackhole blackhole, final TestState state) {
+    final GenericData data = state.interpreted;
+    for (final GenericRecord rec : state.testData) {
+      blackhole.consume(data.deepCopy(state.schema, rec));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+
+    private final Schema schema;
+    private final GenericData interpreted = new InterpretedData();
+
+    private GenericRecord[] testData;
+
+    public TestState() {
+      super();
+      this.schema = new Schema.Parser().parse(RECORD_SCHEMA);
+    }
+
+    /**
+     * Setup the trial data.
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() {
+      Schema s = schema.getField("f6").schema().getElementType();
+      this.testData = new GenericRecord[getBatchSize()];
+      for (int i = 0; i < testData.length; i++) {
+        GenericRecord rec = new GenericData.Record(schema);
+        rec.put(0, super.getRandom().nextLong());
+        rec.put(1, new Utf8("string" + super.getRandom().nextInt()));
+        byte[] bytes = new byte[16];
+        super.getRandom().nextBytes(bytes);
+        rec.put(2, (i % 2 == 0) ? ByteBuffer.wrap(bytes) : null);
+        GenericData.Array<Object> doubles = new GenericData.Array<>(ARRAY_SIZE, schema.getField("f4").schema());
+        GenericData.Array<Object> records = new GenericData.Array<>(ARRAY_SIZE, schema.getField("f6").schema());
+        Map<Utf8, Integer> map = new HashMap<>();
+        for (int j = 0; j < ARRAY_SIZE; j++) {
+          doubles.add(super.getRandom().nextDouble());
+          map.put(new Utf8("key" + j), super.getRandom().nextInt());
+          GenericRecord nested = new GenericData.Record(s);
+          nested.put(0, new Utf8("nested" + j));
+          nested.put(1, super.getRandom().nextInt());
+          records.add(nested);
+        }
+        rec.put(3, doubles);
+        rec.put(4, map);
+        rec.put(5, records);
+        testData[i] = rec;
+      }
+    }
+  }
+}
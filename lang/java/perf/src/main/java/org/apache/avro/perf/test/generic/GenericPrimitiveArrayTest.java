@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf.test.generic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.PrimitivesArrays;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads and writes records of numeric arrays, which are stored unboxed in
+ * {@link PrimitivesArrays}.
+ */
+public class GenericPrimitiveArrayTest {
+
+  private static final String GENERIC_ARRAYS = "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+      + "{ \"name\": \"f1\", \"type\": { \"type\": \"array\", \"items\": \"long\" } },\n"
+      + "{ \"name\": \"f2\", \"type\": { \"type\": \"array\", \"items\": \"double\" } }\n" + "] }";
+
+  private static final int ARRAY_SIZE = 32;
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encode(final TestStateEncode state) throws Exception {
+    final Encoder e = state.encoder;
+    final GenericDatumWriter<Object> writer = new GenericDatumWriter<>(state.readerSchema);
+    for (final GenericRecord rec : state.testData) {
+      writer.write(rec, e);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decode(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final Decoder d = state.decoder;
+    final GenericDatumReader<Object> reader = new GenericDatumReader<>(state.readerSchema);
+    for (int i = 0; i < state.getBatchSize(); i++) {
+      blackhole.consume(reader.read(null, d));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void decodeReusing(final Blackhole blackhole, final TestStateDecode state) throws Exception {
+    final Decoder d = state.decoder;
+    final GenericDatumReader<Object> reader = new GenericDatumReader<>(state.readerSchema);
+    Object reuse = null;
+    for (int i = 0; i < state.getBatchSize(); i++) {
+      reuse = reader.read(reuse, d);
+      blackhole.consume(reuse);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateEncode extends BasicState {
+
+    private final Schema readerSchema;
+
+    private GenericRecord[] testData;
+    private Encoder encoder;
+
+    public TestStateEncode() {
+      super();
+      this.readerSchema = new Schema.Parser().parse(GENERIC_ARRAYS);
+    }
+
+    /**
+     * Setup the trial data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      this.encoder = super.newEncoder(false, getNullOutputStream());
+      this.testData = new GenericRecord[getBatchSize()];
+
+      for (int i = 0; i < testData.length; i++) {
+        GenericRecord rec = new GenericData.Record(readerSchema);
+        PrimitivesArrays.LongArray longs = new PrimitivesArrays.LongArray(ARRAY_SIZE,
+            readerSchema.getField("f1").schema());
+        PrimitivesArrays.DoubleArray doubles = new PrimitivesArrays.DoubleArray(ARRAY_SIZE,
+            readerSchema.getField("f2").schema());
+        for (int j = 0; j < ARRAY_SIZE; j++) {
+          longs.addLong(super.getRandom().nextLong());
+          doubles.addDouble(super.getRandom().nextDouble());
+        }
+        rec.put(0, longs);
+        rec.put(1, doubles);
+        testData[i] = rec;
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class TestStateDecode extends BasicState {
+
+    private final Schema readerSchema;
+
+    private byte[] testData;
+    private Decoder decoder;
+
+    public TestStateDecode() {
+      super();
+      this.readerSchema = new Schema.Parser().parse(GENERIC_ARRAYS);
+    }
+
+    /**
+     * Generate test data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws IOException {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Encoder encoder = super.newEncoder(true, baos);
+
+      for (int i = 0; i < getBatchSize(); i++) {
+        encoder.writeArrayStart();
+        encoder.setItemCount(ARRAY_SIZE);
+        for (int j = 0; j < ARRAY_SIZE; j++) {
+          encoder.startItem();
+          encoder.writeLong(super.getRandom().nextLong());
+        }
+        encoder.writeArrayEnd();
+        encoder.writeArrayStart();
+        encoder.setItemCount(ARRAY_SIZE);
+        for (int j = 0; j < ARRAY_SIZE; j++) {
+          encoder.startItem();
+          encoder.writeDouble(super.getRandom().nextDouble());
+        }
+        encoder.writeArrayEnd();
+      }
+
+      this.testData = baos.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void doSetupInvocation() throws Exception {
+      this.decoder = super.newDecoder(this.testData);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.perf.test.reflect;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.perf.test.BasicRecord;
+import org.apache.avro.perf.test.BasicState;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Field access through {@link ReflectData}, with the default (Unsafe) field
+ * access and with method handles, from one thread and from several threads
+ * sharing a schema.
+ */
+public class ReflectFieldAccessTest {
+
+  private static final Schema SCHEMA = ReflectData.get().getSchema(BasicRecord.class);
+  private static final String[] FIELDS = SCHEMA.getFields().stream().map(Schema.Field::name).toArray(String[]::new);
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encode(final TestState state) throws Exception {
+    state.encode();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  @Fork(jvmArgsAppend = "-Davro.disable.unsafe=true")
+  public void encodeHandles(final TestState state) throws Exception {
+    state.encode();
+  }
+
+  @Benchmark
+  @Threads(4)
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void encodeContended(final TestState state) throws Exception {
+    state.encode();
+  }
+
+  @Benchmark
+  @Threads(4)
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  @Fork(jvmArgsAppend = "-Davro.disable.unsafe=true")
+  public void encodeContendedHandles(final TestState state) throws Exception {
+    state.encode();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  public void getField(final Blackhole blackhole, final TestState state) {
+    state.getFields(blackhole);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BasicState.BATCH_SIZE)
+  @Fork(jvmArgsAppend = "-Davro.disable.unsafe=true")
+  public void getFieldHandles(final Blackhole blackhole, final TestState state) {
+    state.getFields(blackhole);
+  }
+
+  @State(Scope.Thread)
+  public static class TestState extends BasicState {
+
+    private BasicRecord[] testData;
+    private Encoder encoder;
+    private ReflectDatumWriter<BasicRecord> datumWriter;
+
+    /**
+     * Setup the trial data.
+     *
+     * @throws IOException Could not setup test data
+     */
+    @Setup(Level.Trial)
+    public void doSetupTrial() throws Exception {
+      this.encoder = super.newEncoder(false, getNullOutputStream());
+      this.datumWriter = new ReflectDatumWriter<>(SCHEMA);
+      this.testData = new BasicRecord[getBatchSize()];
+
+      for (int i = 0; i < testData.length; i++) {
+        this.testData[i] = new BasicRecord(getRandom());
+      }
+    }
+
+    private void encode() throws IOException {
+      for (final BasicRecord r : testData) {
+        datumWriter.write(r, encoder);
+      }
+    }
+
+    private void getFields(final Blackhole blackhole) {
+      final ReflectData data = ReflectData.get();
+      for (final BasicRecord r : testData) {
+        for (int i = 0; i < FIELDS.length; i++) {
+          blackhole.consume(data.getField(r, FIELDS[i], i));
+        }
+      }
+    }
+  }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.avro.tool;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -57,7 +59,10 @@ public class ConcatTool implements Tool {
 
     OutputStream output = out;
     if (args.size() > 1) {
-      output = Util.fileOrStdout(args.get(args.size() - 1), out);
+      String outFile = args.get(args.size() - 1);
+      File localOutput = Util.localFile(outFile);
+      // the writer copies blocks between local files without reading them
+      output = localOutput != null ? new FileOutputStream(localOutput) : Util.fileOrStdout(outFile, out);
       args = args.subList(0, args.size() - 1);
     }
 
@@ -116,8 +121,14 @@ public class ConcatTool implements Tool {
         }
       }
 
-      writer.appendAllFrom(reader, /* recompress */ false);
-      reader.close();
+      File localInput = Util.localFile(inFile);
+      if (localInput != null) {
+        reader.close();
+        writer.appendAllFrom(localInput);
+      } else {
+        writer.appendAllFrom(reader, /* recompress */ false);
+        reader.close();
+      }
     }
 
     writer.close();
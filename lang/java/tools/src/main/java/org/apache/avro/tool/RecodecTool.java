@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -43,6 +45,8 @@ public class RecodecTool implements Tool {
     OptionParser optParser = new OptionParser();
     OptionSpec<String> codecOpt = Util.compressionCodecOptionWithDefault(optParser, DataFileConstants.NULL_CODEC);
     OptionSpec<Integer> levelOpt = Util.compressionLevelOption(optParser);
+    OptionSpec<Integer> threadsOpt = optParser.accepts("threads", "Number of threads recompressing blocks")
+        .withRequiredArg().ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
     OptionSet opts = optParser.parse(args.toArray(new String[0]));
 
     List<String> nargs = (List<String>) opts.nonOptionArguments();
@@ -77,7 +81,17 @@ public class RecodecTool implements Tool {
     }
     writer.create(schema, output);
 
-    writer.appendAllFrom(reader, true);
+    int threads = threadsOpt.value(opts);
+    if (threads > 1) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        writer.appendAllFrom(reader, true, executor);
+      } finally {
+        executor.shutdownNow();
+      }
+    } else {
+      writer.appendAllFrom(reader, true);
+    }
     writer.flush();
 
     if (inputNeedsClosing) {
@@ -44,6 +44,7 @@ import org.apache.avro.mapred.FsInput;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 
 import joptsimple.OptionSet;
@@ -76,6 +77,22 @@ class Util {
     return new BufferedOutputStream(filename.equals("-") ? stdout : createFromFS(filename));
   }
 
+  /**
+   * Returns the local file a name refers to, or null if it is "-" or belongs to
+   * another filesystem.
+   *
+   * @param filename The filename to be resolved
+   * @throws IOException
+   */
+  static File localFile(String filename) throws IOException {
+    if (filename.equals("-")) {
+      return null;
+    }
+    Path p = new Path(filename);
+    FileSystem fs = p.getFileSystem(new Configuration());
+    return (fs instanceof LocalFileSystem) ? ((LocalFileSystem) fs).pathToFile(p) : null;
+  }
+
   /**
    * Returns an InputStream for the file using the owning filesystem, or the
    * default if none is given.
@@ -260,7 +277,7 @@ class Util {
   }
 
   static OptionSpec<Integer> compressionLevelOption(OptionParser optParser) {
-    return optParser.accepts("level", "Compression level (only applies to deflate, xz, and zstandard)")
+    return optParser.accepts("level", "Compression level (only applies to deflate, xz, zstandard and lz4)")
         .withRequiredArg().ofType(Integer.class).defaultsTo(Deflater.DEFAULT_COMPRESSION);
   }
 
@@ -277,6 +294,8 @@ class Util {
       return CodecFactory.xzCodec(level.value(opts));
     } else if (codecName.equals(DataFileConstants.ZSTANDARD_CODEC)) {
       return CodecFactory.zstandardCodec(level.value(opts));
+    } else if (codecName.equals(DataFileConstants.LZ4_CODEC)) {
+      return CodecFactory.lz4Codec(level.value(opts));
     } else {
       return CodecFactory.fromString(codec.value(opts));
     }